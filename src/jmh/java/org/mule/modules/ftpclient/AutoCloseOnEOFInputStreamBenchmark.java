@@ -0,0 +1,83 @@
+package org.mule.modules.ftpclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.mule.modules.ftpclient.AutoCloseOnEOFInputStream.ConsumerWithIOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading through the stream which gives connections back to the pool, as
+ * done for every streamed file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AutoCloseOnEOFInputStreamBenchmark {
+    private static final ConsumerWithIOException DO_NOTHING = new ConsumerWithIOException() {
+        @Override
+        public void apply() {
+            // nothing to release
+        }
+    };
+
+    @Param({ "1048576" })
+    private int size;
+
+    @Param({ "1", "8192" })
+    private int bufferSize;
+
+    private byte[] content;
+    private byte[] buffer;
+
+    @Setup
+    public void setup() {
+        content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) i;
+        }
+        buffer = new byte[bufferSize];
+    }
+
+    @Benchmark
+    public long readRaw() throws IOException {
+        return readAll(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public long readWrapped() throws IOException {
+        return readAll(new AutoCloseOnEOFInputStream(new ByteArrayInputStream(content), DO_NOTHING));
+    }
+
+    private long readAll(InputStream is) throws IOException {
+        long sum = 0;
+        if (bufferSize == 1) {
+            int b;
+            while ((b = is.read()) >= 0) {
+                sum += b;
+            }
+        } else {
+            int count;
+            while ((count = is.read(buffer)) >= 0) {
+                sum += count;
+            }
+        }
+        is.close();
+        return sum;
+    }
+}
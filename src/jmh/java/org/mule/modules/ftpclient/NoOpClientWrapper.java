@@ -0,0 +1,78 @@
+package org.mule.modules.ftpclient;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A {@link ClientWrapper} without a server: Directory changes only change the
+ * directory stored in {@link ClientWrapper}, everything else is not supported.
+ */
+public class NoOpClientWrapper extends ClientWrapper {
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+    @Override
+    public boolean validate() {
+        return true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public OutputStream getOutputStream(String directory, String filename, boolean append) {
+        throw new UnsupportedOperationException("getOutputStream");
+    }
+
+    @Override
+    public InputStream getInputStream(String directory, String filename, long offset, Consumer<ClientWrapper> onClose) {
+        throw new UnsupportedOperationException("getInputStream");
+    }
+
+    @Override
+    protected void deleteFile(String directory, String filename) {
+        throw new UnsupportedOperationException("delete");
+    }
+
+    @Override
+    protected void moveFile(String fromFile, String toCompletePath) {
+        throw new UnsupportedOperationException("move");
+    }
+
+    @Override
+    public void list(String directory, Predicate<RemoteFile> filter, Consumer<RemoteFile> consumer) {
+        throw new UnsupportedOperationException("list");
+    }
+
+    @Override
+    protected boolean tryChangeDirectory(String path) {
+        return true;
+    }
+
+    @Override
+    protected void changeToAbsoluteDirectory(String directory, boolean create) {
+        // only the directory stored in ClientWrapper changes
+    }
+
+    @Override
+    protected void changeToParentDirectory() {
+        // only the directory stored in ClientWrapper changes
+    }
+
+    @Override
+    protected void changeToChildDirectory(String name, boolean create) {
+        // only the directory stored in ClientWrapper changes
+    }
+
+    @Override
+    protected void createDirectory(String name) {
+        // nothing to do
+    }
+}
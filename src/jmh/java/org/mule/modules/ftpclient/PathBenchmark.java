@@ -0,0 +1,71 @@
+package org.mule.modules.ftpclient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Path handling done for every file operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PathBenchmark {
+    private static final String DIRECTORY = "/home/mule/data/inbound/";
+    private static final String OTHER_DIRECTORY = "/home/mule/data/archive/2018";
+    private static final String FILENAME = "order-000123.xml";
+
+    private NoOpClientWrapper wrapper;
+
+    @Setup
+    public void setup() throws IOException {
+        wrapper = new NoOpClientWrapper();
+        wrapper.setUsePaths(true);
+        wrapper.changeWorkingDirectory(DIRECTORY, false);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return ClientWrapper.normalize(DIRECTORY);
+    }
+
+    @Benchmark
+    public List<String> split() {
+        return wrapper.split(DIRECTORY);
+    }
+
+    @Benchmark
+    public String getCurrentDirectory() {
+        return wrapper.getCurrentDirectory();
+    }
+
+    @Benchmark
+    public String createCompletePath() {
+        return AbstractConfig.createCompletePath(DIRECTORY, FILENAME);
+    }
+
+    @Benchmark
+    public String pathInCurrentDirectory() {
+        return wrapper.path(DIRECTORY, FILENAME);
+    }
+
+    @Benchmark
+    public String pathInOtherDirectory() {
+        return wrapper.path(OTHER_DIRECTORY, FILENAME);
+    }
+}
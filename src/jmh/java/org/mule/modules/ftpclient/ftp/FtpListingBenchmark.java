@@ -0,0 +1,119 @@
+package org.mule.modules.ftpclient.ftp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPFileEntryParser;
+import org.apache.commons.net.ftp.FTPListParseEngine;
+import org.apache.commons.net.ftp.parser.MLSxEntryParser;
+import org.apache.commons.net.ftp.parser.UnixFTPEntryParser;
+import org.mule.modules.ftpclient.RemoteFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Conversion of a raw LIST/MLSD listing into {@link RemoteFile}s, as done by
+ * {@link FtpClientWrapper#listIterator(String, Predicate)} after the listing
+ * has been transferred.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class FtpListingBenchmark {
+    private static final Predicate<RemoteFile> ACCEPT_ALL = new Predicate<RemoteFile>() {
+        @Override
+        public boolean test(RemoteFile file) {
+            return true;
+        }
+    };
+
+    // The converters are private to the wrapper
+    private static final MethodHandle NEW_ITERATOR;
+    private static final MethodHandle TO_REMOTE_FILE;
+
+    static {
+        try {
+            Class<?> iteratorClass = Class.forName(FtpClientWrapper.class.getName() + "$RemoteFileIterator");
+            Constructor<?> constructor = iteratorClass.getDeclaredConstructor(FTPListParseEngine.class, Predicate.class);
+            constructor.setAccessible(true);
+            NEW_ITERATOR = MethodHandles.lookup().unreflectConstructor(constructor);
+            Method toRemoteFile = FtpClientWrapper.class.getDeclaredMethod("toRemoteFile", FTPFile.class);
+            toRemoteFile.setAccessible(true);
+            TO_REMOTE_FILE = MethodHandles.lookup().unreflect(toRemoteFile);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "10000", "100000", "1000000" })
+    private int entries;
+
+    @Param({ "LIST", "MLSD" })
+    private String format;
+
+    private byte[] listing;
+    private FTPFile[] files;
+
+    @Setup
+    public void setup() throws IOException {
+        StringBuilder sb = new StringBuilder(entries * 80);
+        for (int i = 0; i < entries; i++) {
+            String name = String.format("order-%07d.xml", i);
+            long size = 1000 + i % 100_000;
+            if ("MLSD".equals(format)) {
+                sb.append("type=file;size=").append(size).append(";modify=20180105123400;perm=r; ").append(name);
+            } else {
+                sb.append("-rw-r--r--   1 mule     mule     ").append(String.format("%10d", size)).append(" Jan 05 12:34 ")
+                        .append(name);
+            }
+            sb.append("\r\n");
+        }
+        listing = sb.toString().getBytes(StandardCharsets.UTF_8);
+        files = parse().getFiles();
+    }
+
+    @Benchmark
+    public void parseAndConvert(Blackhole blackhole) throws Throwable {
+        @SuppressWarnings("unchecked")
+        Iterator<RemoteFile> iter = (Iterator<RemoteFile>) NEW_ITERATOR.invoke(parse(), ACCEPT_ALL);
+        while (iter.hasNext()) {
+            blackhole.consume(iter.next());
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) throws Throwable {
+        for (FTPFile file : files) {
+            blackhole.consume((RemoteFile) TO_REMOTE_FILE.invokeExact(file));
+        }
+    }
+
+    private FTPListParseEngine parse() throws IOException {
+        FTPFileEntryParser parser = "MLSD".equals(format) ? MLSxEntryParser.getInstance() : new UnixFTPEntryParser();
+        FTPListParseEngine engine = new FTPListParseEngine(parser);
+        engine.readServerList(new ByteArrayInputStream(listing), "UTF-8");
+        return engine;
+    }
+}
@@ -0,0 +1,68 @@
+package org.mule.modules.ftpclient.load;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A number of files of the same size, written as <code>size*count</code>,
+ * e.g. <code>1M*100</code>. Sizes take the suffixes K, M and G (powers of
+ * 1024).
+ */
+public class Distribution {
+    private final long fileSize;
+    private final int fileCount;
+
+    public Distribution(long fileSize, int fileCount) {
+        this.fileSize = fileSize;
+        this.fileCount = fileCount;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @param spec
+     *            Comma separated list, e.g. <code>1K*1000,1M*100</code>
+     * @return The distributions.
+     */
+    public static List<Distribution> parseList(String spec) {
+        List<Distribution> result = new ArrayList<>();
+        for (String part : spec.split(",")) {
+            String[] sizeAndCount = part.trim().split("\\*");
+            if (sizeAndCount.length != 2) {
+                throw new IllegalArgumentException("Not size*count: " + part);
+            }
+            result.add(new Distribution(parseSize(sizeAndCount[0].trim()), Integer.parseInt(sizeAndCount[1].trim())));
+        }
+        return result;
+    }
+
+    static long parseSize(String size) {
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        long factor;
+        switch (unit) {
+        case 'K':
+            factor = 1L << 10;
+            break;
+        case 'M':
+            factor = 1L << 20;
+            break;
+        case 'G':
+            factor = 1L << 30;
+            break;
+        default:
+            return Long.parseLong(size);
+        }
+        return Long.parseLong(size.substring(0, size.length() - 1)) * factor;
+    }
+
+    @Override
+    public String toString() {
+        return fileSize + "*" + fileCount;
+    }
+}
@@ -0,0 +1,75 @@
+package org.mule.modules.ftpclient.load;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mule.api.MuleEvent;
+import org.mule.api.MuleMessage;
+import org.mule.api.callback.SourceCallback;
+import org.mule.modules.ftpclient.MappedContent;
+
+/**
+ * Reads every polled file to its end (and closes streams, which runs the
+ * completion action) and counts files and bytes. Nothing is kept, so large
+ * files don't fill the heap.
+ */
+public class DrainingCallback implements SourceCallback {
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+
+    public int getFiles() {
+        return files.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    @Override
+    public MuleEvent processEvent(@SuppressWarnings("unused") MuleEvent event) {
+        throw new UnsupportedOperationException("processEvent");
+    }
+
+    @Override
+    public Object process(Object payload, @SuppressWarnings("unused") Map<String, Object> properties) throws Exception {
+        Object content = ((MuleMessage) payload).getPayload();
+        long count;
+        if (content instanceof InputStream) {
+            count = drain((InputStream) content);
+        } else if (content instanceof MappedContent) {
+            count = ((MappedContent) content).getSize();
+        } else {
+            count = ((byte[]) content).length;
+        }
+        bytes.addAndGet(count);
+        files.incrementAndGet();
+        return null;
+    }
+
+    @Override
+    public Object process(@SuppressWarnings("unused") Object payload) throws Exception {
+        throw new UnsupportedOperationException("process");
+    }
+
+    @Override
+    public Object process() throws Exception {
+        throw new UnsupportedOperationException("process");
+    }
+
+    static long drain(InputStream is) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long count = 0;
+        try {
+            int n;
+            while ((n = is.read(buffer)) >= 0) {
+                count += n;
+            }
+        } finally {
+            is.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,35 @@
+package org.mule.modules.ftpclient.load;
+
+import java.io.InputStream;
+
+/**
+ * Content of a given size without holding it in memory.
+ */
+public class GeneratedInputStream extends InputStream {
+    private final long size;
+    private long position;
+
+    public GeneratedInputStream(long size) {
+        this.size = size;
+    }
+
+    @Override
+    public int read() {
+        return position < size ? (int) (position++ & 255) : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(len, size - position);
+        for (int i = 0; i < count; i++) {
+            b[off + i] = (byte) (position++ & 255);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,413 @@
+package org.mule.modules.ftpclient.load;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.PollOptions;
+import org.mule.modules.ftpclient.RegistryMode;
+import org.mule.modules.ftpclient.config.TransferMode;
+import org.mule.modules.ftpclient.ftp.FtpConnectorFactory;
+import org.mule.modules.ftpclient.ftpserver.SimpleFtpServer;
+import org.mule.modules.ftpclient.sftp.SftpConnectorFactory;
+import org.mule.modules.ftpclient.sftpserver.SftpConfig;
+import org.mule.modules.ftpclient.sftpserver.SftpServer;
+import org.mule.modules.ftpclient.sftpserver.SftpUser;
+import org.mule.modules.ftpclient.util.AbstractClientTest;
+
+/**
+ * Load benchmark against the embedded ftp and sftp servers of the tests.
+ * Measures files/s and MB/s for the poll sources, putFile and getFile with
+ * several file size distributions. Arguments are <code>key=value</code> pairs:
+ * <ul>
+ * <li>protocols: ftp, sftp (comma separated, default both)</li>
+ * <li>scenarios: put, get, poll, pollArchiveMove, pollArchiveRename (default
+ * all)</li>
+ * <li>distributions: size*count list (default 1K*1000,1M*100,100M*4, add e.g.
+ * 1G*1 for large files)</li>
+ * <li>threads: Number of threads for put and get (default 1)</li>
+ * <li>parallelism: Parallel workers of the poll sources (default 1)</li>
+ * <li>warmup: Rounds not measured (default 1)</li>
+ * <li>rounds: Measured rounds (default 3)</li>
+ * <li>report: JSON report file (default target/load-benchmark.json)</li>
+ * </ul>
+ */
+public class LoadBenchmark extends AbstractClientTest {
+    private static final String USER = "load";
+    private static final String PASSWORD = "secret";
+    private static final String IN = "in";
+    private static final String ARCHIVE = "archive";
+    private static final String PUT = "put";
+    private static final String GET = "get";
+    private static final String PATTERN = "file-\\d+\\.dat";
+    private static final String ARCHIVE_EXPRESSION = "#[message.inboundProperties.filename + \".archive\"]";
+    private static final long NO_PROGRESS_TIMEOUT = 60_000;
+
+    private enum Protocol {
+        FTP {
+            @Override
+            FtpClientConnector start(LoadBenchmark b) throws Exception {
+                b.home = b.fileManager.getDirectory();
+                SimpleFtpServer server = new SimpleFtpServer(USER, PASSWORD, b.home, 0, 300);
+                server.startServer();
+                b.ftpServer = server;
+                b.ftpConnectorFactory = new FtpConnectorFactory("localhost", server.getPort(), USER, PASSWORD);
+                return b.ftpConnectorFactory.createConnector(TransferMode.Binary, true);
+            }
+
+            @Override
+            void stop(LoadBenchmark b) {
+                b.ftpConnectorFactory.close();
+                b.ftpServer.stopServer();
+            }
+        },
+        SFTP {
+            @Override
+            FtpClientConnector start(LoadBenchmark b) throws Exception {
+                b.home = new File(b.fileManager.getDirectory(), "sftp-home");
+                FileUtils.forceMkdir(b.home);
+                int port;
+                try (ServerSocket socket = new ServerSocket(0)) {
+                    port = socket.getLocalPort();
+                }
+                SftpConfig c = new SftpConfig();
+                c.setHostKeyPath(Paths.get(LoadBenchmark.class.getResource("/server-key.ppk").toURI()));
+                c.addUser(new SftpUser(USER, b.home.toPath(), true).setPassword(PASSWORD));
+                c.setPort(port);
+                b.sftpServer = new SftpServer(c);
+                b.sftpServer.start();
+                String knownHosts = Paths.get(LoadBenchmark.class.getResource("/known_hosts").toURI()).toString();
+                b.sftpConnectorFactory = new SftpConnectorFactory("localhost", port, knownHosts);
+                return b.sftpConnectorFactory.createPwdUserConnector(USER, PASSWORD);
+            }
+
+            @Override
+            void stop(LoadBenchmark b) throws Exception {
+                b.sftpConnectorFactory.close();
+                b.sftpServer.stop();
+            }
+        };
+
+        abstract FtpClientConnector start(LoadBenchmark b) throws Exception;
+
+        abstract void stop(LoadBenchmark b) throws Exception;
+    }
+
+    private enum Scenario {
+        PUT("put") {
+            @Override
+            void prepare(LoadBenchmark b, Distribution d) {
+                // files are created by the benchmark
+            }
+
+            @Override
+            void run(final LoadBenchmark b, final Distribution d) throws Exception {
+                b.runInThreads(d.getFileCount(), new FileTask() {
+                    @Override
+                    public void run(String name) throws Exception {
+                        b.connector.putFile(PUT, name, new GeneratedInputStream(d.getFileSize()), null);
+                    }
+                });
+            }
+        },
+        GET("get") {
+            @Override
+            void prepare(LoadBenchmark b, Distribution d) throws IOException {
+                b.createFiles(GET, d);
+            }
+
+            @Override
+            void run(final LoadBenchmark b, final Distribution d) throws Exception {
+                b.runInThreads(d.getFileCount(), new FileTask() {
+                    @Override
+                    public void run(String name) throws Exception {
+                        long size = DrainingCallback.drain((InputStream) b.connector.getFile(GET, name, true, -1));
+                        if (size != d.getFileSize()) {
+                            throw new IllegalStateException(name + " has " + size + " bytes, expected " + d.getFileSize());
+                        }
+                    }
+                });
+            }
+        },
+        POLL("poll") {
+            @Override
+            void prepare(LoadBenchmark b, Distribution d) throws IOException {
+                b.createFiles(IN, d);
+            }
+
+            @Override
+            void run(final LoadBenchmark b, Distribution d) throws Exception {
+                b.pollAll(d, new PollTask() {
+                    @Override
+                    public void poll(DrainingCallback callback) throws Exception {
+                        b.connector.poll(IN, PATTERN, "", true, true, RegistryMode.None, b.pollOptions(), callback);
+                    }
+                });
+            }
+        },
+        POLL_ARCHIVE_MOVE("pollArchiveMove") {
+            @Override
+            void prepare(LoadBenchmark b, Distribution d) throws IOException {
+                b.createFiles(IN, d);
+            }
+
+            @Override
+            void run(final LoadBenchmark b, Distribution d) throws Exception {
+                b.pollAll(d, new PollTask() {
+                    @Override
+                    public void poll(DrainingCallback callback) throws Exception {
+                        b.connector.pollWithArchivingByMovingToDirectory(IN, PATTERN, "", true, "../" + ARCHIVE, true,
+                                b.pollOptions(), callback);
+                    }
+                });
+            }
+        },
+        POLL_ARCHIVE_RENAME("pollArchiveRename") {
+            @Override
+            void prepare(LoadBenchmark b, Distribution d) throws IOException {
+                b.createFiles(IN, d);
+            }
+
+            @Override
+            void run(final LoadBenchmark b, Distribution d) throws Exception {
+                b.pollAll(d, new PollTask() {
+                    @Override
+                    public void poll(DrainingCallback callback) throws Exception {
+                        b.connector.pollWithArchivingByRenaming(IN, PATTERN, "", ARCHIVE_EXPRESSION, ARCHIVE_EXPRESSION,
+                                true, b.pollOptions(), callback);
+                    }
+                });
+            }
+        };
+
+        private final String name;
+
+        Scenario(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Create the files the scenario needs, not measured.
+         */
+        abstract void prepare(LoadBenchmark b, Distribution d) throws Exception;
+
+        /**
+         * The measured part.
+         */
+        abstract void run(LoadBenchmark b, Distribution d) throws Exception;
+
+        static Scenario byName(String name) {
+            for (Scenario s : values()) {
+                if (s.name.equalsIgnoreCase(name)) {
+                    return s;
+                }
+            }
+            throw new IllegalArgumentException("Unknown scenario: " + name);
+        }
+    }
+
+    private interface FileTask {
+        void run(String name) throws Exception;
+    }
+
+    private interface PollTask {
+        void poll(DrainingCallback callback) throws Exception;
+    }
+
+    private int threads = 1;
+    private int parallelism = 1;
+    private int warmup = 1;
+    private int rounds = 3;
+    private File home;
+    private FtpClientConnector connector;
+    private SimpleFtpServer ftpServer;
+    private FtpConnectorFactory ftpConnectorFactory;
+    private SftpServer sftpServer;
+    private SftpConnectorFactory sftpConnectorFactory;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int index = arg.indexOf('=');
+            if (index < 0) {
+                throw new IllegalArgumentException("Not key=value: " + arg);
+            }
+            options.put(arg.substring(0, index).trim(), arg.substring(index + 1).trim());
+        }
+        List<Protocol> protocols = new ArrayList<>();
+        for (String p : option(options, "protocols", "ftp,sftp").split(",")) {
+            protocols.add(Protocol.valueOf(p.trim().toUpperCase(Locale.ROOT)));
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String s : option(options, "scenarios", "put,get,poll,pollArchiveMove,pollArchiveRename").split(",")) {
+            scenarios.add(Scenario.byName(s.trim()));
+        }
+        List<Distribution> distributions = Distribution
+                .parseList(option(options, "distributions", "1K*1000,1M*100,100M*4"));
+
+        LoadBenchmark benchmark = new LoadBenchmark();
+        benchmark.threads = Integer.parseInt(option(options, "threads", "1"));
+        benchmark.parallelism = Integer.parseInt(option(options, "parallelism", "1"));
+        benchmark.warmup = Integer.parseInt(option(options, "warmup", "1"));
+        benchmark.rounds = Integer.parseInt(option(options, "rounds", "3"));
+        File reportFile = new File(option(options, "report", "target/load-benchmark.json"));
+
+        LoadReport report = new LoadReport();
+        report.setting("threads", benchmark.threads);
+        report.setting("parallelism", benchmark.parallelism);
+        report.setting("warmup", benchmark.warmup);
+        report.setting("rounds", benchmark.rounds);
+        for (Protocol protocol : protocols) {
+            benchmark.run(protocol, scenarios, distributions, report);
+        }
+        report.writeJson(reportFile);
+        report.printTable(System.out);
+        System.out.println("Report written to " + reportFile.getAbsolutePath());
+    }
+
+    private static String option(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    private void run(Protocol protocol, List<Scenario> scenarios, List<Distribution> distributions, LoadReport report)
+            throws Exception {
+        prepare();
+        try {
+            connector = protocol.start(this);
+            connector.setMuleContext(createMuleContext());
+            try {
+                for (Scenario scenario : scenarios) {
+                    for (Distribution d : distributions) {
+                        String protocolName = protocol.name().toLowerCase(Locale.ROOT);
+                        LoadReport.Result result = report.add(protocolName, scenario.name, d);
+                        System.out.println(protocolName + " " + scenario.name + " " + d);
+                        try {
+                            for (int i = 0; i < warmup + rounds; i++) {
+                                long nanos = runRound(scenario, d);
+                                if (i >= warmup) {
+                                    result.addRound(nanos);
+                                }
+                            }
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                            result.setError(e.toString());
+                            clearDirectories();
+                        }
+                    }
+                }
+            } finally {
+                protocol.stop(this);
+            }
+        } finally {
+            cleanup();
+        }
+    }
+
+    private long runRound(Scenario scenario, Distribution d) throws Exception {
+        clearDirectories();
+        scenario.prepare(this, d);
+        long start = System.nanoTime();
+        scenario.run(this, d);
+        long nanos = System.nanoTime() - start;
+        clearDirectories();
+        return nanos;
+    }
+
+    private void runInThreads(int fileCount, final FileTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Void>> futures = new ArrayList<>(fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                final String name = filename(i);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        task.run(name);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private PollOptions pollOptions() {
+        PollOptions options = new PollOptions();
+        options.setParallelism(parallelism);
+        return options;
+    }
+
+    /**
+     * Poll until all files of the distribution have been read.
+     */
+    private void pollAll(Distribution d, PollTask task) throws Exception {
+        DrainingCallback callback = new DrainingCallback();
+        int lastCount = 0;
+        long lastProgress = System.currentTimeMillis();
+        while (callback.getFiles() < d.getFileCount()) {
+            task.poll(callback);
+            if (callback.getFiles() > lastCount) {
+                lastCount = callback.getFiles();
+                lastProgress = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - lastProgress > NO_PROGRESS_TIMEOUT) {
+                throw new IllegalStateException("No progress, " + lastCount + " of " + d.getFileCount() + " files read");
+            }
+        }
+        if (callback.getBytes() != d.getFileCount() * d.getFileSize()) {
+            throw new IllegalStateException(callback.getBytes() + " bytes read, expected " + d.getFileCount() * d.getFileSize());
+        }
+    }
+
+    private void createFiles(String directory, Distribution d) throws IOException {
+        File dir = new File(home, directory);
+        FileUtils.forceMkdir(dir);
+        byte[] buffer = new byte[(int) Math.min(1 << 20, Math.max(1, d.getFileSize()))];
+        for (int i = 0; i < d.getFileCount(); i++) {
+            try (OutputStream out = new FileOutputStream(new File(dir, filename(i)))) {
+                IOUtils.copyLarge(new GeneratedInputStream(d.getFileSize()), out, buffer);
+            }
+        }
+    }
+
+    private void clearDirectories() throws IOException {
+        for (String directory : new String[] { IN, ARCHIVE, PUT, GET }) {
+            File dir = new File(home, directory);
+            if (dir.isDirectory()) {
+                FileUtils.cleanDirectory(dir);
+            } else {
+                FileUtils.forceMkdir(dir);
+            }
+        }
+    }
+
+    private static String filename(int i) {
+        return String.format("file-%07d.dat", i);
+    }
+}
@@ -0,0 +1,187 @@
+package org.mule.modules.ftpclient.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Results of a {@link LoadBenchmark} run, written as JSON (for tools) and as a
+ * table (for humans).
+ */
+public class LoadReport {
+    private final Map<String, Object> settings = new LinkedHashMap<>();
+    private final List<Result> results = new ArrayList<>();
+
+    public void setting(String name, Object value) {
+        settings.put(name, value);
+    }
+
+    public Result add(String protocol, String scenario, Distribution distribution) {
+        Result result = new Result(protocol, scenario, distribution);
+        results.add(result);
+        return result;
+    }
+
+    public void writeJson(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+        try (Writer w = new OutputStreamWriter(Files.newOutputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+            iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+            w.write("{\n");
+            w.write("  \"timestamp\": " + quote(iso.format(new Date())) + ",\n");
+            w.write("  \"java\": " + quote(System.getProperty("java.version")) + ",\n");
+            w.write("  \"os\": " + quote(System.getProperty("os.name") + " " + System.getProperty("os.version")) + ",\n");
+            w.write("  \"processors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+            w.write("  \"settings\": {");
+            String separator = "\n";
+            for (Map.Entry<String, Object> e : settings.entrySet()) {
+                Object value = e.getValue();
+                w.write(separator + "    " + quote(e.getKey()) + ": "
+                        + (value instanceof Number ? value.toString() : quote(String.valueOf(value))));
+                separator = ",\n";
+            }
+            w.write("\n  },\n");
+            w.write("  \"results\": [");
+            separator = "\n";
+            for (Result r : results) {
+                w.write(separator);
+                r.writeJson(w);
+                separator = ",\n";
+            }
+            w.write("\n  ]\n}\n");
+        }
+    }
+
+    public void printTable(PrintStream out) {
+        out.printf("%-5s %-18s %12s %7s %10s %10s %10s%n", "proto", "scenario", "file size", "files", "seconds", "files/s",
+                "MB/s");
+        for (Result r : results) {
+            Round m = r.median();
+            if (m == null) {
+                out.printf("%-5s %-18s %12d %7d %s%n", r.protocol, r.scenario, r.fileSize, r.fileCount, r.error);
+            } else {
+                out.printf("%-5s %-18s %12d %7d %10.3f %10.1f %10.2f%n", r.protocol, r.scenario, r.fileSize, r.fileCount,
+                        m.seconds, m.filesPerSecond(r), m.megabytesPerSecond(r));
+            }
+        }
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') {
+                sb.append('\\').append(ch);
+            } else if (ch < ' ') {
+                sb.append(String.format("\\u%04x", (int) ch));
+            } else {
+                sb.append(ch);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String number(double value) {
+        return String.format("%.4f", value).replace(',', '.');
+    }
+
+    /**
+     * Measured rounds for one protocol, scenario and distribution.
+     */
+    public static class Result {
+        private final String protocol;
+        private final String scenario;
+        private final long fileSize;
+        private final int fileCount;
+        private final List<Round> rounds = new ArrayList<>();
+        private String error;
+
+        Result(String protocol, String scenario, Distribution distribution) {
+            this.protocol = protocol;
+            this.scenario = scenario;
+            fileSize = distribution.getFileSize();
+            fileCount = distribution.getFileCount();
+        }
+
+        public void addRound(long nanos) {
+            rounds.add(new Round(nanos / 1e9));
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+        Round median() {
+            if (rounds.isEmpty()) {
+                return null;
+            }
+            double[] seconds = new double[rounds.size()];
+            for (int i = 0; i < seconds.length; i++) {
+                seconds[i] = rounds.get(i).seconds;
+            }
+            Arrays.sort(seconds);
+            return new Round(seconds[seconds.length / 2]);
+        }
+
+        void writeJson(Writer w) throws IOException {
+            w.write("    {\n");
+            w.write("      \"protocol\": " + quote(protocol) + ",\n");
+            w.write("      \"scenario\": " + quote(scenario) + ",\n");
+            w.write("      \"fileSize\": " + fileSize + ",\n");
+            w.write("      \"fileCount\": " + fileCount + ",\n");
+            if (error != null) {
+                w.write("      \"error\": " + quote(error) + ",\n");
+            }
+            w.write("      \"rounds\": [");
+            String separator = "";
+            for (Round round : rounds) {
+                w.write(separator);
+                round.writeJson(w, this);
+                separator = ", ";
+            }
+            w.write("]");
+            Round median = median();
+            if (median != null) {
+                w.write(",\n      \"median\": ");
+                median.writeJson(w, this);
+            }
+            w.write("\n    }");
+        }
+    }
+
+    private static class Round {
+        private final double seconds;
+
+        Round(double seconds) {
+            this.seconds = seconds;
+        }
+
+        double filesPerSecond(Result r) {
+            return r.fileCount / seconds;
+        }
+
+        double megabytesPerSecond(Result r) {
+            return r.fileCount * (double) r.fileSize / (1024 * 1024) / seconds;
+        }
+
+        void writeJson(Writer w, Result r) throws IOException {
+            w.write("{\"seconds\": " + number(seconds) + ", \"filesPerSecond\": " + number(filesPerSecond(r))
+                    + ", \"megabytesPerSecond\": " + number(megabytesPerSecond(r)) + "}");
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.mule.modules.ftpclient.sftp;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.mule.modules.ftpclient.RemoteFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.jcraft.jsch.SftpATTRS;
+
+/**
+ * Conversion of the entries of an sftp listing into {@link RemoteFile}s, as
+ * done for every entry JSch passes to the listing callback.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgs = { "-Xmx4g" })
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SftpListingBenchmark {
+    // SftpATTRS.S_IFREG
+    private static final int REGULAR_FILE = 0100000;
+    // The converter is private to the wrapper
+    private static final MethodHandle TO_REMOTE_FILE;
+
+    static {
+        try {
+            Method toRemoteFile = SftpClientWrapper.class.getDeclaredMethod("toRemoteFile", String.class,
+                    SftpATTRS.class);
+            toRemoteFile.setAccessible(true);
+            TO_REMOTE_FILE = MethodHandles.lookup().unreflect(toRemoteFile);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Param({ "10000", "100000", "1000000" })
+    private int entries;
+
+    private String[] names;
+    private SftpATTRS[] attributes;
+
+    @Setup
+    public void setup() throws Exception {
+        // JSch creates attributes only while parsing server responses
+        Constructor<SftpATTRS> constructor = SftpATTRS.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        names = new String[entries];
+        attributes = new SftpATTRS[entries];
+        for (int i = 0; i < entries; i++) {
+            names[i] = String.format("order-%07d.xml", i);
+            SftpATTRS attrs = constructor.newInstance();
+            attrs.setSIZE(1000 + i % 100_000);
+            attrs.setPERMISSIONS(REGULAR_FILE | 0644);
+            attrs.setACMODTIME(1_515_155_640, 1_515_155_640);
+            attributes[i] = attrs;
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) throws Throwable {
+        for (int i = 0; i < entries; i++) {
+            blackhole.consume((RemoteFile) TO_REMOTE_FILE.invokeExact(names[i], attributes[i]));
+        }
+    }
+}
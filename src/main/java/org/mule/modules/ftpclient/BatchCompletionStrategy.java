@@ -0,0 +1,148 @@
+package org.mule.modules.ftpclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.mule.api.MuleMessage;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects the completion actions of another strategy during one poll cycle
+ * and runs them together when the cycle is done: on one connection, with one
+ * directory change per directory. Each action still handles (and logs) the
+ * failure of its own file. Actions which arrive after {@link #run()} (streams
+ * closed later by the flow) run right away, like without batching.
+ */
+public class BatchCompletionStrategy implements CompletionStrategy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchCompletionStrategy.class);
+
+    private final CompletionStrategy strategy;
+    private final AbstractConfig config;
+    private final String directory;
+    private final Map<String, List<Consumer<ClientWrapper>>> actions;
+    private boolean done;
+
+    /**
+     * @param strategy
+     *            Strategy which creates the actions.
+     * @param config
+     *            Configuration with the connection pool.
+     * @param directory
+     *            Directory of the files (and working directory of the actions).
+     */
+    public BatchCompletionStrategy(CompletionStrategy strategy, AbstractConfig config, String directory) {
+        this.strategy = strategy;
+        this.config = config;
+        this.directory = directory;
+        actions = new LinkedHashMap<>();
+    }
+
+    /**
+     * The handler may get <code>null</code> instead of a connection, as it only
+     * queues the action. After {@link #run()} it then takes one from the pool.
+     */
+    @Override
+    public Consumer<ClientWrapper> createCompletionHandler(MuleMessage message, String filename, String translatedName) {
+        final Consumer<ClientWrapper> action = strategy.createCompletionHandler(message, filename, translatedName);
+        return new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper wrapper) {
+                if (add(directory, action)) {
+                    return;
+                }
+                if (wrapper != null) {
+                    action.accept(wrapper);
+                    return;
+                }
+                try {
+                    config.runInDirectory(directory, action);
+                } catch (IOException e) {
+                    LOGGER.warn("No connection for completion action in " + directory, e);
+                }
+            }
+        };
+    }
+
+    private synchronized boolean add(String dir, Consumer<ClientWrapper> action) {
+        if (done) {
+            return false;
+        }
+        List<Consumer<ClientWrapper>> list = actions.get(dir);
+        if (list == null) {
+            list = new ArrayList<>();
+            actions.put(dir, list);
+        }
+        list.add(action);
+        return true;
+    }
+
+    /**
+     * Run the collected actions. Failures are logged, they don't stop the
+     * poll.
+     *
+     * @return Number of actions which could not be started because the
+     *         directory or the connection was not available.
+     */
+    public int run() {
+        final Map<String, List<Consumer<ClientWrapper>>> toRun;
+        synchronized (this) {
+            done = true;
+            toRun = new LinkedHashMap<>(actions);
+            actions.clear();
+        }
+        if (toRun.isEmpty()) {
+            return 0;
+        }
+        final int[] skipped = new int[1];
+        try {
+            config.runWithClient(new Consumer<ClientWrapper>() {
+                @Override
+                public void accept(ClientWrapper wrapper) {
+                    for (Map.Entry<String, List<Consumer<ClientWrapper>>> entry : toRun.entrySet()) {
+                        skipped[0] += runInDirectory(wrapper, entry.getKey(), entry.getValue());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            int count = 0;
+            for (List<Consumer<ClientWrapper>> list : toRun.values()) {
+                count += list.size();
+            }
+            LOGGER.warn("No connection for " + count + " completion actions", e);
+            return count;
+        }
+        return skipped[0];
+    }
+
+    private static int runInDirectory(ClientWrapper wrapper, final String dir, final List<Consumer<ClientWrapper>> list) {
+        final boolean[] started = new boolean[1];
+        try {
+            wrapper.runInDirectory(dir, new Consumer<ClientWrapper>() {
+                @Override
+                public void accept(ClientWrapper client) {
+                    started[0] = true;
+                    for (Consumer<ClientWrapper> action : list) {
+                        try {
+                            action.accept(client);
+                        } catch (RuntimeException e) {
+                            LOGGER.warn("Completion action in " + dir + " failed", e);
+                        }
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            if (!started[0]) {
+                LOGGER.warn("Can't change to " + dir + ", " + list.size() + " completion actions not done", e);
+                return list.size();
+            }
+            LOGGER.warn("Completion actions in " + dir + " failed", e);
+        }
+        return 0;
+    }
+}
@@ -3,6 +3,10 @@ package org.mule.modules.ftpclient;
 import org.apache.commons.pool.PoolableObjectFactory;
 import org.apache.commons.pool.impl.GenericObjectPool;
 
+/**
+ * Factory for the pool of {@link ClientWrapper}s held by a configuration.
+ * Subclasses only have to implement {@link #makeObject()}.
+ */
 public abstract class ClientFactory<T extends ClientWrapper> implements PoolableObjectFactory<T> {
     private GenericObjectPool<T> pool;
 
@@ -29,8 +33,14 @@ public abstract class ClientFactory<T extends ClientWrapper> implements Poolable
         // no op
     }
 
+    /**
+     * Wrappers destroy themselves on fatal errors. Throwing here makes the pool
+     * drop them instead of handing them out again.
+     */
     @Override
-    public void passivateObject(@SuppressWarnings("unused") T client) {
-        // no op
+    public void passivateObject(T client) {
+        if (!client.isConnected()) {
+            throw new IllegalStateException("client is not connected any more");
+        }
     }
 }
@@ -7,15 +7,32 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.lang3.StringUtils;
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.SftpException;
 
 public abstract class ClientWrapper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClientWrapper.class);
+
+    protected static final Predicate<RemoteFile> ACCEPT_ALL = new Predicate<RemoteFile>() {
+        @Override
+        public boolean test(@SuppressWarnings("unused") RemoteFile file) {
+            return true;
+        }
+    };
+
     private boolean currentDirectoryAbsolute;
     private List<String> currentDirectory;
+    private boolean stayInDirectory;
+    private boolean usePaths;
+    private DirectoryCache directoryCache;
+    private ConnectorMetrics metrics;
 
     protected ClientWrapper() {
         currentDirectoryAbsolute = false;
@@ -26,16 +43,302 @@ public abstract class ClientWrapper {
 
     public abstract boolean validate();
 
-    public abstract OutputStream getOutputStream(String directory, String filename) throws IOException, SftpException;
+    /**
+     * @return <code>false</code> when the wrapper has been destroyed (e.g. after
+     *         a fatal error). Must not cause any traffic to the server.
+     */
+    public abstract boolean isConnected();
 
-    public abstract InputStream getInputStream(final String directory, final String filename,
+    public OutputStream getOutputStream(String directory, String filename) throws IOException, SftpException {
+        return getOutputStream(directory, filename, false);
+    }
+
+    /**
+     * @param directory
+     *            Directory of the file, created when missing.
+     * @param filename
+     *            Name of the file.
+     * @param append
+     *            Append to an existing file (APPE for ftp) instead of
+     *            overwriting it.
+     * @return Stream for the content, the transfer is completed on close.
+     * @throws IOException
+     *             When communication with server fails.
+     * @throws SftpException
+     *             When sftp operation fails.
+     */
+    public abstract OutputStream getOutputStream(String directory, String filename, boolean append)
+            throws IOException, SftpException;
+
+    public InputStream getInputStream(final String directory, final String filename,
+            final Consumer<ClientWrapper> onClose) throws IOException, SftpException {
+        return getInputStream(directory, filename, 0L, onClose);
+    }
+
+    /**
+     * @param directory
+     *            Directory of the file.
+     * @param filename
+     *            Name of the file.
+     * @param offset
+     *            Number of bytes to skip on the server (REST for ftp), 0 for
+     *            the complete file.
+     * @param onClose
+     *            Called when the stream is closed or at its end, in
+     *            <code>directory</code>. <code>null</code> for nothing.
+     * @return Content of the file, starting at <code>offset</code>.
+     * @throws IOException
+     *             When communication with server fails.
+     * @throws SftpException
+     *             When sftp operation fails.
+     */
+    public abstract InputStream getInputStream(final String directory, final String filename, long offset,
             final Consumer<ClientWrapper> onClose) throws IOException, SftpException;
 
-    public abstract void delete(String directory, String filename) throws IOException;
+    public void delete(String directory, String filename) throws IOException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            deleteFile(directory, filename);
+            success = true;
+        } finally {
+            record(Operation.DELETE, start, success);
+        }
+    }
+
+    protected abstract void deleteFile(String directory, String filename) throws IOException;
+
+    public void move(String fromFile, String toCompletePath) throws IOException, SftpException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            moveFile(fromFile, toCompletePath);
+            success = true;
+        } finally {
+            record(Operation.RENAME, start, success);
+        }
+    }
+
+    protected abstract void moveFile(String fromFile, String toCompletePath) throws IOException, SftpException;
+
+    public List<RemoteFile> list(String directory) throws IOException {
+        final List<RemoteFile> fileList = new ArrayList<>();
+        list(directory, ACCEPT_ALL, new Consumer<RemoteFile>() {
+            @Override
+            public void accept(RemoteFile file) {
+                fileList.add(file);
+            }
+        });
+        return fileList;
+    }
+
+    /**
+     * List a directory without keeping the complete listing in memory. Entries
+     * are converted and filtered while they arrive, only the accepted ones are
+     * passed to the consumer.
+     *
+     * @param directory
+     *            Directory to list.
+     * @param filter
+     *            Filter applied to every entry (except "." and "..").
+     * @param consumer
+     *            Gets the accepted entries.
+     * @throws IOException
+     *             When communication with server fails.
+     */
+    public abstract void list(String directory, Predicate<RemoteFile> filter, Consumer<RemoteFile> consumer)
+            throws IOException;
+
+    /**
+     * List a directory, the result is converted while iterating (as far as the
+     * protocol allows it). This implementation collects the accepted entries
+     * first.
+     *
+     * @param directory
+     *            Directory to list.
+     * @param filter
+     *            Filter applied to every entry.
+     * @return Iterator over the accepted entries. It does not need the
+     *         connection any more.
+     * @throws IOException
+     *             When communication with server fails.
+     */
+    public Iterator<RemoteFile> listIterator(String directory, Predicate<RemoteFile> filter) throws IOException {
+        final List<RemoteFile> fileList = new ArrayList<>();
+        list(directory, filter, new Consumer<RemoteFile>() {
+            @Override
+            public void accept(RemoteFile file) {
+                fileList.add(file);
+            }
+        });
+        return fileList.iterator();
+    }
+
+    /**
+     * Look up a single file.
+     *
+     * @param directory
+     *            Directory of the file.
+     * @param filename
+     *            Name of the file (without directory).
+     * @return The file, <code>null</code> when it does not exist.
+     * @throws IOException
+     *             When communication with server fails.
+     */
+    public RemoteFile stat(String directory, final String filename) throws IOException {
+        Iterator<RemoteFile> iter = listIterator(directory, new Predicate<RemoteFile>() {
+            @Override
+            public boolean test(RemoteFile file) {
+                return filename.equals(file.getName());
+            }
+        });
+        return iter.hasNext() ? iter.next() : null;
+    }
+
+    public boolean isUsePaths() {
+        return usePaths;
+    }
+
+    /**
+     * @param usePaths
+     *            Pass paths to the file operations instead of changing the
+     *            working directory first.
+     */
+    public void setUsePaths(boolean usePaths) {
+        this.usePaths = usePaths;
+    }
+
+    /**
+     * Build the path of a file for servers which accept paths in file
+     * operations. Relative directories are resolved against the current
+     * working directory, so no directory change is needed.
+     *
+     * @param directory
+     *            Directory of the file, absolute or relative to the login
+     *            directory.
+     * @param filename
+     *            Name of the file, <code>null</code> for the directory itself.
+     * @return The path, <code>null</code> when paths are not used or can't be
+     *         built (relative directory after a change to an absolute one).
+     *         The directory itself may result in an empty path.
+     */
+    protected String path(String directory, String filename) {
+        if (!usePaths) {
+            return null;
+        }
+        List<String> parts;
+        StringBuilder sb = new StringBuilder();
+        if (isAbsolute(directory)) {
+            sb.append('/');
+            parts = split(directory);
+        } else if (currentDirectoryAbsolute) {
+            return null;
+        } else {
+            List<String> target = split(directory);
+            parts = relativeParts(target, target.size());
+        }
+        if (filename != null) {
+            parts.add(filename);
+        }
+        sb.append(StringUtils.join(parts, '/'));
+        return sb.toString();
+    }
+
+    /**
+     * @return Path segments leading from the current directory to the first
+     *         <code>length</code> segments of <code>target</code>.
+     */
+    private List<String> relativeParts(List<String> target, int length) {
+        int commonPrefixLength = commonPrefixLength(target);
+        List<String> parts = new ArrayList<>();
+        for (int i = commonPrefixLength; i < currentDirectory.size(); i++) {
+            parts.add("..");
+        }
+        if (length > commonPrefixLength) {
+            parts.addAll(target.subList(commonPrefixLength, length));
+        }
+        return parts;
+    }
+
+    private int commonPrefixLength(List<String> target) {
+        int commonPrefixLength = 0;
+        while (currentDirectory.size() > commonPrefixLength && target.size() > commonPrefixLength
+                && currentDirectory.get(commonPrefixLength).equals(target.get(commonPrefixLength))) {
+            commonPrefixLength++;
+        }
+        return commonPrefixLength;
+    }
+
+    public DirectoryCache getDirectoryCache() {
+        return directoryCache;
+    }
+
+    /**
+     * @param directoryCache
+     *            Directories known to exist, shared with other connections.
+     *            <code>null</code> switches caching off.
+     */
+    public void setDirectoryCache(DirectoryCache directoryCache) {
+        this.directoryCache = directoryCache;
+    }
 
-    public abstract void move(String fromFile, String toCompletePath) throws IOException, SftpException;
+    public ConnectorMetrics getMetrics() {
+        return metrics;
+    }
 
-    public abstract List<RemoteFile> list(String directory) throws IOException;
+    /**
+     * @param metrics
+     *            Metrics of the configuration, <code>null</code> when not
+     *            recorded.
+     */
+    public void setMetrics(ConnectorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    private void record(Operation operation, long start, boolean success) {
+        if (metrics != null) {
+            metrics.record(operation, start, success);
+        }
+    }
+
+    /**
+     * Forget a directory (and all below it) after an operation in it has
+     * failed.
+     *
+     * @param directory
+     *            Absolute or relative directory.
+     */
+    protected void forgetDirectory(String directory) {
+        List<String> parts = split(directory);
+        if (directoryCache != null && !parts.isEmpty()) {
+            directoryCache.invalidate(directoryKey(isAbsolute(directory), parts, parts.size()));
+        }
+    }
+
+    /**
+     * Remember a directory in which an operation has succeeded.
+     *
+     * @param directory
+     *            Absolute or relative directory.
+     */
+    protected void rememberDirectory(String directory) {
+        List<String> parts = split(directory);
+        rememberDirectory(isAbsolute(directory), parts, parts.size());
+    }
+
+    private void rememberDirectory(boolean absolute, List<String> parts, int length) {
+        if (directoryCache != null && length > 0) {
+            directoryCache.add(directoryKey(absolute, parts, length));
+        }
+    }
+
+    private boolean isKnownDirectory(boolean absolute, List<String> parts, int length) {
+        return directoryCache != null && length > 0 && directoryCache.contains(directoryKey(absolute, parts, length));
+    }
+
+    private static String directoryKey(boolean absolute, List<String> parts, int length) {
+        return (absolute ? "/" : "") + StringUtils.join(parts.subList(0, length), '/');
+    }
 
     public boolean isAbsolute(String directory) {
         return StringUtils.isNotBlank(directory) && directory.trim().charAt(0) == '/';
@@ -56,31 +359,192 @@ public abstract class ClientWrapper {
         return sb.toString();
     }
 
+    /**
+     * Change to <code>directory</code> once and run <code>action</code> there.
+     * While it runs, changing to the absolute directory which is still current
+     * is skipped, so the actions of a batch don't repeat the CWD.
+     */
+    public void runInDirectory(String directory, Consumer<ClientWrapper> action) throws IOException {
+        changeWorkingDirectory(directory, false);
+        stayInDirectory = true;
+        try {
+            action.accept(this);
+        } finally {
+            stayInDirectory = false;
+        }
+    }
+
+    /**
+     * Run the completion action of a download in the directory of the file. A
+     * download by path has not changed into it, but the actions work in the
+     * current directory.
+     *
+     * @param inDirectory
+     *            The download has changed into <code>directory</code>.
+     * @param onClose
+     *            The action, <code>null</code> for none.
+     */
+    protected void runOnClose(String directory, boolean inDirectory, Consumer<ClientWrapper> onClose) {
+        if (onClose == null) {
+            return;
+        }
+        if (!inDirectory) {
+            try {
+                changeWorkingDirectory(directory, false);
+            } catch (IOException e) {
+                LOGGER.warn("Can't change to " + directory + ", completion action not done", e);
+                return;
+            }
+        }
+        onClose.accept(this);
+    }
+
     public void changeWorkingDirectory(String newDirectory, boolean create) throws IOException {
         List<String> normalizedDirectory = split(newDirectory);
 
-        if (isAbsolute(newDirectory)) {
-            currentDirectoryAbsolute = true;
-            currentDirectory = normalizedDirectory;
-            changeToAbsoluteDirectory(newDirectory, create);
-        } else {
-            int commonPrefixLength = 0;
-            while (currentDirectory.size() > commonPrefixLength && normalizedDirectory.size() > commonPrefixLength
-                    && currentDirectory.get(commonPrefixLength).equals(normalizedDirectory.get(commonPrefixLength))) {
-                commonPrefixLength++;
-            }
-            while (currentDirectory.size() > commonPrefixLength) {
-                changeToParentDirectory();
-                currentDirectory.remove(currentDirectory.size() - 1);
+        try {
+            if (isAbsolute(newDirectory)) {
+                if (stayInDirectory && currentDirectoryAbsolute && normalizedDirectory.equals(currentDirectory)) {
+                    return;
+                }
+                if (create) {
+                    createAndChangeToAbsoluteDirectory(newDirectory, normalizedDirectory);
+                    currentDirectoryAbsolute = true;
+                    currentDirectory = normalizedDirectory;
+                } else {
+                    currentDirectoryAbsolute = true;
+                    currentDirectory = normalizedDirectory;
+                    changeToAbsoluteDirectory(newDirectory, false);
+                }
+                rememberDirectory(true, normalizedDirectory, normalizedDirectory.size());
+            } else {
+                int commonPrefixLength = commonPrefixLength(normalizedDirectory);
+                if (!currentDirectoryAbsolute) {
+                    changeToKnownDirectory(normalizedDirectory, commonPrefixLength);
+                    commonPrefixLength = commonPrefixLength(normalizedDirectory);
+                }
+                while (currentDirectory.size() > commonPrefixLength) {
+                    changeToParentDirectory();
+                    currentDirectory.remove(currentDirectory.size() - 1);
+                }
+                boolean created = false;
+                while (currentDirectory.size() < normalizedDirectory.size()) {
+                    String name = normalizedDirectory.get(currentDirectory.size());
+                    if (create) {
+                        created = createAndChangeToChildDirectory(name, created);
+                    } else {
+                        changeToChildDirectory(name, false);
+                    }
+                    currentDirectory.add(name);
+                    rememberDirectory(currentDirectoryAbsolute, currentDirectory, currentDirectory.size());
+                }
             }
-            while (currentDirectory.size() < normalizedDirectory.size()) {
-                String name = normalizedDirectory.get(currentDirectory.size());
-                changeToChildDirectory(name, create);
-                currentDirectory.add(name);
+        } catch (IOException | RuntimeException e) {
+            forgetDirectory(newDirectory);
+            throw e;
+        }
+    }
+
+    /**
+     * Jump to the deepest directory on the way to <code>target</code> which is
+     * known to exist with one directory change instead of one per segment.
+     */
+    private void changeToKnownDirectory(List<String> target, int commonPrefixLength) throws IOException {
+        for (int known = target.size(); known > commonPrefixLength; known--) {
+            if (isKnownDirectory(false, target, known)) {
+                if (known - commonPrefixLength + currentDirectory.size() - commonPrefixLength < 2) {
+                    // A single step anyway
+                    return;
+                }
+                if (tryChangeDirectory(StringUtils.join(relativeParts(target, known), '/'))) {
+                    currentDirectory = new ArrayList<>(target.subList(0, known));
+                    return;
+                }
+                directoryCache.invalidate(directoryKey(false, target, known));
             }
         }
     }
 
+    /**
+     * Change to an absolute directory, create missing parts. When it does not
+     * exist, start from the deepest known parent instead of the root.
+     */
+    private void createAndChangeToAbsoluteDirectory(String directory, List<String> parts) throws IOException {
+        if (tryChangeDirectory(directory)) {
+            return;
+        }
+        int known = parts.size() - 1;
+        while (known > 0 && !isKnownDirectory(true, parts, known)) {
+            known--;
+        }
+        if (known > 0 && !tryChangeDirectory(directoryKey(true, parts, known))) {
+            directoryCache.invalidate(directoryKey(true, parts, known));
+            known = 0;
+        }
+        if (known == 0 && !tryChangeDirectory("/")) {
+            destroyQuietly();
+            throw new IOException("Could not change to directory /");
+        }
+        boolean created = false;
+        for (int i = known; i < parts.size(); i++) {
+            created = createAndChangeToChildDirectory(parts.get(i), created);
+            rememberDirectory(true, parts, i + 1);
+        }
+    }
+
+    /**
+     * Change to a child directory, create it when missing.
+     *
+     * @param name
+     *            Name of the child.
+     * @param parentCreated
+     *            The current directory has just been created, so the child
+     *            can't exist and is created without trying to change to it
+     *            first.
+     * @return <code>true</code> when the child has been created.
+     * @throws IOException
+     *             When creating or changing fails, the connection has been
+     *             destroyed.
+     */
+    private boolean createAndChangeToChildDirectory(String name, boolean parentCreated) throws IOException {
+        if (!parentCreated && tryChangeDirectory(name)) {
+            return false;
+        }
+        try {
+            createDirectory(name);
+        } catch (IOException | RuntimeException e) {
+            destroyQuietly();
+            throw e;
+        }
+        if (!tryChangeDirectory(name)) {
+            destroyQuietly();
+            throw new IOException("Could not change to directory " + name);
+        }
+        return true;
+    }
+
+    private void destroyQuietly() {
+        try {
+            destroy();
+        } catch (Exception e) {
+            LOGGER.debug("ignore exception on cleanup", e);
+        }
+    }
+
+    /**
+     * Change the working directory without destroying the connection when the
+     * directory does not exist.
+     *
+     * @param path
+     *            Absolute path or path relative to the current directory.
+     * @return <code>false</code> when the server refused the change, the
+     *         working directory is unchanged then.
+     * @throws IOException
+     *             When communication with server fails, the connection has
+     *             been destroyed.
+     */
+    protected abstract boolean tryChangeDirectory(String path) throws IOException;
+
     protected abstract void changeToAbsoluteDirectory(String directory, boolean create) throws IOException;
 
     protected abstract void changeToParentDirectory() throws IOException;
@@ -0,0 +1,171 @@
+package org.mule.modules.ftpclient;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.mule.api.MuleMessage;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs completion actions (delete, move, rename) in the background, each one
+ * on a connection of its own from the pool, so the stream which has read the
+ * file can be closed without waiting for the server. When the queue is full
+ * or the executor has been shut down, an action runs right away on the
+ * connection of the stream, like without this executor. Files with a pending
+ * action are reported by {@link #isPending(String, String)}, so a poll does
+ * not read them again.
+ */
+public class CompletionExecutor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompletionExecutor.class);
+    private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+
+    private final AbstractConfig config;
+    private final ThreadPoolExecutor executor;
+    private final long shutdownTimeout;
+    private final Set<String> pending;
+
+    /**
+     * @param config
+     *            Configuration with the connection pool.
+     * @param threads
+     *            Number of actions running at the same time.
+     * @param queueSize
+     *            Number of actions waiting for a thread.
+     * @param shutdownTimeout
+     *            Milliseconds {@link #shutdown()} waits for pending actions.
+     */
+    public CompletionExecutor(AbstractConfig config, int threads, int queueSize, long shutdownTimeout) {
+        this.config = config;
+        this.shutdownTimeout = shutdownTimeout;
+        pending = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+                new DaemonThreadFactory("ftp-client-completion-" + EXECUTOR_COUNT.incrementAndGet() + "-"));
+    }
+
+    /**
+     * @param strategy
+     *            Strategy which creates the actions.
+     * @param directory
+     *            Directory of the files (and working directory of the actions).
+     * @return A strategy whose actions run in this executor.
+     */
+    public CompletionStrategy decorate(final CompletionStrategy strategy, final String directory) {
+        return new CompletionStrategy() {
+            @Override
+            public Consumer<ClientWrapper> createCompletionHandler(MuleMessage message, final String filename,
+                    final String translatedName) {
+                final Consumer<ClientWrapper> action = strategy.createCompletionHandler(message, filename, translatedName);
+                return new Consumer<ClientWrapper>() {
+                    @Override
+                    public void accept(ClientWrapper wrapper) {
+                        submit(directory, action, wrapper, filename, translatedName);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return <code>true</code> when an action for the file has not finished
+     *         yet.
+     */
+    public boolean isPending(String directory, String filename) {
+        return pending.contains(key(directory, filename));
+    }
+
+    /**
+     * @return Number of actions waiting or running.
+     */
+    public int getPendingCount() {
+        return executor.getQueue().size() + executor.getActiveCount();
+    }
+
+    private void submit(final String directory, final Consumer<ClientWrapper> action, ClientWrapper current,
+            String... filenames) {
+        final String[] keys = new String[filenames.length];
+        for (int i = 0; i < filenames.length; i++) {
+            keys[i] = key(directory, filenames[i]);
+            pending.add(keys[i]);
+        }
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        runWithSideConnection(directory, action);
+                    } finally {
+                        release(keys);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.debug("Completion queue full or shut down, run action on current connection");
+            try {
+                action.accept(current);
+            } finally {
+                release(keys);
+            }
+        }
+    }
+
+    private void runWithSideConnection(final String directory, final Consumer<ClientWrapper> action) {
+        try {
+            config.runWithClient(new Consumer<ClientWrapper>() {
+                @Override
+                public void accept(ClientWrapper wrapper) {
+                    try {
+                        wrapper.changeWorkingDirectory(directory, false);
+                    } catch (IOException e) {
+                        LOGGER.warn("Can't change to " + directory + ", completion action not done", e);
+                        return;
+                    }
+                    action.accept(wrapper);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Completion action in " + directory + " failed", e);
+        }
+    }
+
+    private void release(String[] keys) {
+        for (String key : keys) {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Run the queued actions and stop the threads. Waits up to the shutdown
+     * timeout, actions which have not started then are dropped (and logged).
+     *
+     * @return <code>true</code> when all actions have been run.
+     */
+    public boolean shutdown() {
+        executor.shutdown();
+        try {
+            if (executor.awaitTermination(shutdownTimeout, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<Runnable> dropped = executor.shutdownNow();
+        LOGGER.warn("{} completion actions not done on shutdown, files will be read again", dropped.size());
+        return false;
+    }
+
+    private static String key(String directory, String filename) {
+        return directory + '/' + filename;
+    }
+}
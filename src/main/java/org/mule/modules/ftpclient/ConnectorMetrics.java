@@ -0,0 +1,235 @@
+package org.mule.modules.ftpclient;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Operation counts, errors, durations and transferred bytes of one connector
+ * configuration. All counters are {@link LongAdder}s, so recording is cheap
+ * and needs no lock.
+ */
+public class ConnectorMetrics implements ConnectorMetricsMXBean {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConnectorMetrics.class);
+    private static final String DOMAIN = "org.mule.modules.ftpclient";
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    public enum Operation {
+        CONNECT, VALIDATE, LIST, STAT, GET, PUT, DELETE, RENAME;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final int id;
+    private final Map<Operation, OperationMetrics> operations;
+    private final ConcurrentMap<String, PollMetrics> polls;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+    private final LongAdder openStreams;
+    private ObjectName objectName;
+
+    public ConnectorMetrics() {
+        id = SEQUENCE.incrementAndGet();
+        operations = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            operations.put(operation, new OperationMetrics());
+        }
+        polls = new ConcurrentHashMap<>();
+        bytesIn = new LongAdder();
+        bytesOut = new LongAdder();
+        openStreams = new LongAdder();
+    }
+
+    /**
+     * @param operation
+     *            The operation.
+     * @param startNanos
+     *            Start time from {@link System#nanoTime()}.
+     * @param success
+     *            <code>false</code> when the operation failed.
+     */
+    public void record(Operation operation, long startNanos, boolean success) {
+        OperationMetrics m = operations.get(operation);
+        m.histogram.record(System.nanoTime() - startNanos);
+        if (!success) {
+            m.errors.increment();
+        }
+    }
+
+    /**
+     * @param source
+     *            Name of the poll source.
+     * @param startNanos
+     *            Start time from {@link System#nanoTime()}.
+     * @param files
+     *            Number of files handled in the cycle.
+     * @param success
+     *            <code>false</code> when the cycle ended with an exception.
+     */
+    public void recordPoll(String source, long startNanos, int files, boolean success) {
+        PollMetrics m = polls.get(source);
+        if (m == null) {
+            PollMetrics newMetrics = new PollMetrics();
+            m = polls.putIfAbsent(source, newMetrics);
+            if (m == null) {
+                m = newMetrics;
+            }
+        }
+        long nanos = System.nanoTime() - startNanos;
+        m.histogram.record(nanos);
+        m.files.add(files);
+        m.lastFiles = files;
+        m.lastDurationNanos = nanos;
+        if (!success) {
+            m.errors.increment();
+        }
+    }
+
+    public void addBytesIn(long count) {
+        bytesIn.add(count);
+    }
+
+    public void addBytesOut(long count) {
+        bytesOut.add(count);
+    }
+
+    public void streamOpened() {
+        openStreams.increment();
+    }
+
+    public void streamClosed() {
+        openStreams.decrement();
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> result = new LinkedHashMap<>();
+        for (Map.Entry<Operation, OperationMetrics> e : operations.entrySet()) {
+            LatencyHistogram h = e.getValue().histogram;
+            result.put(e.getKey().key(), new OperationStatistics(h.getCount(), e.getValue().errors.sum(), h.getMeanMillis(),
+                    h.getMaxMillis(), h.getBuckets()));
+        }
+        return result;
+    }
+
+    /**
+     * @param operation
+     *            The operation.
+     * @return Snapshot of its metrics.
+     */
+    public OperationStatistics getOperation(Operation operation) {
+        return getOperations().get(operation.key());
+    }
+
+    @Override
+    public Map<String, PollStatistics> getPolls() {
+        Map<String, PollStatistics> result = new LinkedHashMap<>();
+        for (Map.Entry<String, PollMetrics> e : polls.entrySet()) {
+            PollMetrics m = e.getValue();
+            result.put(e.getKey(), new PollStatistics(m.histogram.getCount(), m.errors.sum(), m.files.sum(), m.lastFiles,
+                    m.lastDurationNanos / 1e6, m.histogram.getMeanMillis(), m.histogram.getMaxMillis(),
+                    m.histogram.getBuckets()));
+        }
+        return result;
+    }
+
+    @Override
+    public long[] getHistogramLimitsMillis() {
+        return LatencyHistogram.LIMITS_MILLIS.clone();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getOpenStreams() {
+        return openStreams.sum();
+    }
+
+    @Override
+    public void reset() {
+        for (OperationMetrics m : operations.values()) {
+            m.histogram.reset();
+            m.errors.reset();
+        }
+        polls.clear();
+        bytesIn.reset();
+        bytesOut.reset();
+        // open streams are not a counter, but the current state
+    }
+
+    /**
+     * Register in the platform MBean server. Failures are logged only, metrics
+     * must not stop the connector.
+     *
+     * @param type
+     *            Type of the configuration, e.g. "FtpConfig".
+     * @param name
+     *            Name to identify the configuration, e.g. user@host:port.
+     */
+    public synchronized void register(String type, String name) {
+        unregister();
+        try {
+            ObjectName on = new ObjectName(
+                    DOMAIN + ":type=ConnectorMetrics,config=" + type + ",name=" + ObjectName.quote(name) + ",id=" + id);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, on);
+            objectName = on;
+        } catch (JMException | RuntimeException e) {
+            LOGGER.warn("Could not register metrics MBean for " + name, e);
+        }
+    }
+
+    /**
+     * Remove from the platform MBean server (when registered).
+     */
+    public synchronized void unregister() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException | RuntimeException e) {
+                LOGGER.debug("Could not unregister " + objectName, e);
+            }
+            objectName = null;
+        }
+    }
+
+    public synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    private static final class OperationMetrics {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+    }
+
+    private static final class PollMetrics {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder files = new LongAdder();
+        private volatile int lastFiles;
+        private volatile long lastDurationNanos;
+    }
+}
@@ -0,0 +1,47 @@
+package org.mule.modules.ftpclient;
+
+import java.util.Map;
+
+/**
+ * Metrics of one connector configuration, registered in the platform MBean
+ * server.
+ */
+public interface ConnectorMetricsMXBean {
+
+    /**
+     * @return Statistics per operation (connect, validate, list, stat, get,
+     *         put, delete, rename).
+     */
+    Map<String, OperationStatistics> getOperations();
+
+    /**
+     * @return Statistics per poll source (name of the source method).
+     */
+    Map<String, PollStatistics> getPolls();
+
+    /**
+     * @return Upper limits of the histogram buckets in milliseconds, the last
+     *         bucket counts everything above the last limit.
+     */
+    long[] getHistogramLimitsMillis();
+
+    /**
+     * @return Bytes read from the server.
+     */
+    long getBytesIn();
+
+    /**
+     * @return Bytes written to the server.
+     */
+    long getBytesOut();
+
+    /**
+     * @return Streams to or from the server which have not been closed yet.
+     */
+    long getOpenStreams();
+
+    /**
+     * Set all counters to zero.
+     */
+    void reset();
+}
@@ -0,0 +1,28 @@
+package org.mule.modules.ftpclient;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates numbered daemon threads, so background work of the connector does
+ * not keep the JVM alive.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger threadCount = new AtomicInteger();
+
+    /**
+     * @param prefix
+     *            Start of the thread names, a number is appended.
+     */
+    public DaemonThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+}
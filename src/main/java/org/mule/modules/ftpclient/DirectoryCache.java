@@ -0,0 +1,64 @@
+package org.mule.modules.ftpclient;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Directories known to exist on the server, shared by all connections of a
+ * configuration. Keys are paths as passed to the connector: Absolute ones
+ * start with a slash, relative ones are relative to the login directory. The
+ * least recently used entries are dropped when the cache is full.
+ */
+public class DirectoryCache {
+    private final Map<String, Boolean> directories;
+
+    /**
+     * @param maxSize
+     *            Maximum number of directories.
+     */
+    public DirectoryCache(final int maxSize) {
+        directories = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized boolean contains(String directory) {
+        return directories.get(directory) != null;
+    }
+
+    public synchronized void add(String directory) {
+        directories.put(directory, Boolean.TRUE);
+    }
+
+    /**
+     * Forget a directory and everything below it, e.g. after an operation in
+     * it has failed.
+     *
+     * @param directory
+     *            The directory.
+     */
+    public synchronized void invalidate(String directory) {
+        String prefix = directory.endsWith("/") ? directory : directory + "/";
+        Iterator<String> iter = directories.keySet().iterator();
+        while (iter.hasNext()) {
+            String d = iter.next();
+            if (d.equals(directory) || d.startsWith(prefix)) {
+                iter.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        directories.clear();
+    }
+
+    public synchronized int size() {
+        return directories.size();
+    }
+}
@@ -0,0 +1,180 @@
+package org.mule.modules.ftpclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lists a directory tree with several connections at the same time. A
+ * directory is listed on a connection from the pool, its subdirectories are
+ * forked as soon as the listing has arrived. So the walk takes about depth
+ * times round trip time, not number of directories times round trip time.
+ * A subdirectory which can't be listed is logged and skipped with its
+ * subdirectories, the others are still walked.
+ */
+public class DirectoryWalker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryWalker.class);
+
+    private final AbstractConfig config;
+    private final int maxDepth;
+    private final Pattern include;
+    private final Pattern exclude;
+    private final ForkJoinPool pool;
+    private final AtomicInteger failures = new AtomicInteger();
+
+    /**
+     * @param config
+     *            Configuration with the connection pool.
+     * @param maxDepth
+     *            Number of directory levels below the start directory.
+     * @param include
+     *            Regular expression for the path (relative to the start
+     *            directory, "" for the start directory itself) of the
+     *            directories whose listing is returned.
+     * @param exclude
+     *            Regular expression for the relative path of directories which
+     *            are skipped with all their subdirectories. Empty for none.
+     * @param pool
+     *            Threads for the listings, its parallelism is the number of
+     *            listings at the same time. It is not shut down by the walker.
+     */
+    public DirectoryWalker(AbstractConfig config, int maxDepth, String include, String exclude, ForkJoinPool pool) {
+        this.config = config;
+        this.maxDepth = maxDepth;
+        this.include = Pattern.compile(StringUtils.isEmpty(include) ? ".*" : include);
+        this.exclude = StringUtils.isEmpty(exclude) ? null : Pattern.compile(exclude);
+        this.pool = pool;
+    }
+
+    /**
+     * @param directory
+     *            Start directory.
+     * @return Listings of the included directories (complete path as key),
+     *         parents before their subdirectories.
+     * @throws Exception
+     *             When the start directory can't be listed.
+     */
+    public Map<String, List<RemoteFile>> walk(String directory) throws Exception {
+        Node root;
+        try {
+            root = pool.invoke(new ListTask(directory, "", 0));
+        } catch (RuntimeException e) {
+            // Fork/join may wrap the exception of another thread
+            for (Throwable t = e; t != null; t = t.getCause()) {
+                if (t instanceof WalkException) {
+                    throw (Exception) t.getCause();
+                }
+            }
+            throw e;
+        }
+        Map<String, List<RemoteFile>> result = new LinkedHashMap<>();
+        collect(root, result);
+        return result;
+    }
+
+    /**
+     * @return Number of subdirectories which could not be listed by the last
+     *         walk. Their listings (and the ones below) are missing.
+     */
+    public int getFailures() {
+        return failures.get();
+    }
+
+    private static void collect(Node node, Map<String, List<RemoteFile>> result) {
+        if (node.entries != null) {
+            result.put(node.path, node.entries);
+        }
+        for (Node child : node.children) {
+            collect(child, result);
+        }
+    }
+
+    private static String child(String parent, String name) {
+        if (parent.isEmpty()) {
+            return name;
+        }
+        return parent.endsWith("/") ? parent + name : parent + "/" + name;
+    }
+
+    private static class Node {
+        private final String path;
+        private final List<RemoteFile> entries;
+        private final List<Node> children;
+
+        Node(String path, List<RemoteFile> entries, List<Node> children) {
+            this.path = path;
+            this.entries = entries;
+            this.children = children;
+        }
+    }
+
+    /**
+     * Carries the checked exception of a listing through the fork/join pool.
+     */
+    private static class WalkException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        WalkException(Exception cause) {
+            super(cause);
+        }
+    }
+
+    private class ListTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final String path;
+        private final String relativePath;
+        private final int depth;
+
+        ListTask(String path, String relativePath, int depth) {
+            this.path = path;
+            this.relativePath = relativePath;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Node compute() {
+            List<RemoteFile> entries;
+            try {
+                entries = config.list(path);
+            } catch (Exception e) {
+                if (depth == 0) {
+                    throw new WalkException(e);
+                }
+                LOGGER.warn("Can't list " + path + ", skipped", e);
+                failures.incrementAndGet();
+                return new Node(path, null, Collections.<Node> emptyList());
+            }
+            List<ListTask> subtasks = new ArrayList<>();
+            if (depth < maxDepth) {
+                for (RemoteFile entry : entries) {
+                    String name = entry.getName();
+                    if (!FtpFileType.DIRECTORY.equals(entry.getType()) || ".".equals(name) || "..".equals(name)) {
+                        continue;
+                    }
+                    String relative = child(relativePath, name);
+                    if (exclude == null || !exclude.matcher(relative).matches()) {
+                        subtasks.add(new ListTask(child(path, name), relative, depth + 1));
+                    }
+                }
+            }
+            List<Node> children = subtasks.isEmpty() ? Collections.<Node> emptyList() : new ArrayList<Node>();
+            for (ListTask subtask : invokeAll(subtasks)) {
+                children.add(subtask.join());
+            }
+            boolean included = include.matcher(relativePath).matches();
+            return new Node(path, included ? entries : null, children);
+        }
+    }
+}
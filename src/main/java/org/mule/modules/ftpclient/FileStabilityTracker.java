@@ -0,0 +1,89 @@
+package org.mule.modules.ftpclient;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers size and timestamp of the files in one directory from poll to
+ * poll. A file is stable when both have not changed for a number of polls
+ * and/or a quiet period. Only the listing is used, so no extra round trips
+ * to the server are needed.
+ */
+public class FileStabilityTracker {
+    private final int stablePolls;
+    private final long quietPeriod;
+    private final Map<String, Observation> observations;
+
+    /**
+     * @param stablePolls
+     *            Number of polls (after the first one which has seen the
+     *            file) in which size and timestamp must be unchanged.
+     * @param quietPeriod
+     *            Milliseconds in which size and timestamp must be unchanged.
+     */
+    public FileStabilityTracker(int stablePolls, long quietPeriod) {
+        this.stablePolls = stablePolls;
+        this.quietPeriod = quietPeriod;
+        observations = new HashMap<>();
+    }
+
+    /**
+     * Record the file as seen in the current poll.
+     *
+     * @param file
+     *            A file from a listing.
+     * @param now
+     *            Time of the poll (milliseconds).
+     * @return <code>true</code> when the file is stable.
+     */
+    public synchronized boolean isStable(RemoteFile file, long now) {
+        long timestamp = timestamp(file);
+        Observation o = observations.get(file.getName());
+        if (o == null || o.size != file.getSize() || o.timestamp != timestamp) {
+            observations.put(file.getName(), new Observation(file.getSize(), timestamp, now));
+            return stablePolls <= 0 && quietPeriod <= 0;
+        }
+        o.unchangedPolls++;
+        return o.unchangedPolls >= stablePolls && now - o.since >= quietPeriod;
+    }
+
+    /**
+     * Forget files which have not been seen in the current poll.
+     *
+     * @param existingNames
+     *            Names of all files in the directory.
+     */
+    public synchronized void retainAll(Set<String> existingNames) {
+        Iterator<String> iter = observations.keySet().iterator();
+        while (iter.hasNext()) {
+            if (!existingNames.contains(iter.next())) {
+                iter.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return observations.size();
+    }
+
+    private static long timestamp(RemoteFile file) {
+        Date date = file.getTimestamp();
+        return date == null ? Long.MIN_VALUE : date.getTime();
+    }
+
+    private static final class Observation {
+        private final long size;
+        private final long timestamp;
+        private final long since;
+        private int unchangedPolls;
+
+        Observation(long size, long timestamp, long since) {
+            this.size = size;
+            this.timestamp = timestamp;
+            this.since = since;
+        }
+    }
+}
@@ -1,14 +1,31 @@
 package org.mule.modules.ftpclient;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
@@ -28,12 +45,15 @@ import org.mule.api.annotations.ReconnectOn;
 import org.mule.api.annotations.Source;
 import org.mule.api.annotations.SourceStrategy;
 import org.mule.api.annotations.display.FriendlyName;
+import org.mule.api.annotations.lifecycle.Stop;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Literal;
+import org.mule.api.annotations.param.Optional;
 import org.mule.api.callback.SourceCallback;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.transport.OutputHandler;
 import org.mule.api.transport.PropertyScope;
+import org.mule.modules.ftpclient.AutoCloseOnEOFInputStream.ConsumerWithIOException;
 import org.mule.modules.ftpclient.config.AbstractConfig;
 import org.mule.transport.NullPayload;
 import org.slf4j.Logger;
@@ -45,6 +65,10 @@ import com.jcraft.jsch.SftpException;
 @Connector(name = "ftp-client", friendlyName = "FTP/SFTP")
 public class FtpClientConnector {
 	private static Logger logger = LoggerFactory.getLogger(FtpClientConnector.class);
+	private static final int MAX_WALK_PARALLELISM = 16;
+	private static final int MAX_BURST_POLLS = 100;
+	// Settings at the end of a stability tracker key
+	private static final Pattern TRACKER_SETTINGS = Pattern.compile("-?\\d+ -?\\d+");
 
 	@Inject
 	private MuleContext muleContext;
@@ -52,6 +76,20 @@ public class FtpClientConnector {
 	@Config
 	private AbstractConfig config;
 
+	private final Map<String, FileStabilityTracker> stabilityTrackers = new HashMap<>();
+
+	private final Map<String, PollScheduler> pollSchedulers = new HashMap<>();
+
+	private final Map<String, PollCursor> pollCursors = new HashMap<>();
+
+	private final Map<String, String> directoryCursors = new HashMap<>();
+
+	private final Map<String, Set<String>> walkedDirectories = new HashMap<>();
+
+	private ExecutorService workerExecutor;
+
+	private ForkJoinPool walkPool;
+
 	/**
 	 * Poll a remote directory. The following inboundProperties will be set:
 	 * <ul>
@@ -77,7 +115,16 @@ public class FtpClientConnector {
 	 *            Delete the file after it has been read (done when InputStream
 	 *            has been closed).
 	 * @param streaming
-	 *            Return an InputStream instead of an byte[]
+	 *            Return an InputStream instead of an byte[] (or a
+	 *            {@link MappedContent} above the in-memory threshold)
+	 * @param registry
+	 *            Remember processed files (name, size and timestamp) in an
+	 *            in memory or persistent object store and skip them in later
+	 *            polls unless they have changed. Useful when files are not
+	 *            deleted.
+	 * @param options
+	 *            Tuning of the poll, see {@link PollOptions}. Not set for the
+	 *            defaults.
 	 * @param callback
 	 *            Interface for message generation (set by Mule)
 	 * @throws Exception
@@ -90,10 +137,12 @@ public class FtpClientConnector {
 			@FriendlyName("File to read instead of matched") @Default("") @Literal String translatedNameExpression, //
 			@FriendlyName("Delete after get") @Default("false") boolean deleteAfterGet, //
 			@FriendlyName("Streaming") @Default("true") boolean streaming, //
+			@FriendlyName("Processed File Registry") @Default("None") RegistryMode registry, //
+			@FriendlyName("Poll Options") @Optional PollOptions options, //
 			SourceCallback callback) throws Exception { // throws needed, otherwise DevKit generates illegal code
 
 		CompletionStrategy cs = new DeleteOrNothingStrategy(deleteAfterGet);
-		handlePoll(cs, directory, filename, translatedNameExpression, streaming, callback);
+		handlePoll("poll", cs, directory, filename, translatedNameExpression, streaming, registry, options, callback);
 	}
 
 	/**
@@ -125,7 +174,11 @@ public class FtpClientConnector {
 	 *            Move the original file and the translated file to this
 	 *            directory after processing.
 	 * @param streaming
-	 *            Return an InputStream instead of an byte[]
+	 *            Return an InputStream instead of an byte[] (or a
+	 *            {@link MappedContent} above the in-memory threshold)
+	 * @param options
+	 *            Tuning of the poll, see {@link PollOptions}. Not set for the
+	 *            defaults.
 	 * @param callback
 	 *            Interface for message generation (set by Mule)
 	 * @throws Exception
@@ -139,6 +192,7 @@ public class FtpClientConnector {
 			@FriendlyName("Delete original file after get") @Default("false") boolean deleteAfterGet, //
 			@FriendlyName("Move to Directory (relative)") String moveToDirectory, //
 			@FriendlyName("Streaming") @Default("true") boolean streaming, //
+			@FriendlyName("Poll Options") @Optional PollOptions options, //
 			SourceCallback callback) throws Exception { // throws needed, otherwise DevKit generates illegal code
 
 		String dir = moveToDirectory.trim();
@@ -146,7 +200,8 @@ public class FtpClientConnector {
 			dir = dir.substring(0, dir.length() - 1);
 		}
 		CompletionStrategy cs = new ArchiveDirectoryStrategy(deleteAfterGet, dir);
-		handlePoll(cs, directory, filename, translatedNameExpression, streaming, callback);
+		handlePoll("pollWithArchivingByMovingToDirectory", cs, directory, filename, translatedNameExpression, streaming,
+				RegistryMode.None, options, callback);
 	}
 
 	/**
@@ -179,7 +234,11 @@ public class FtpClientConnector {
 	 *            Expression for renaming tho original file name (e.g. with
 	 *            ".ok" at the end)
 	 * @param streaming
-	 *            Return an InputStream instead of an byte[]
+	 *            Return an InputStream instead of an byte[] (or a
+	 *            {@link MappedContent} above the in-memory threshold)
+	 * @param options
+	 *            Tuning of the poll, see {@link PollOptions}. Not set for the
+	 *            defaults.
 	 * @param callback
 	 *            Interface for message generation (set by Mule)
 	 * @throws Exception
@@ -193,48 +252,611 @@ public class FtpClientConnector {
 			@FriendlyName("Expression for renaming filename") @Literal String filenameExpression, //
 			@FriendlyName("Expression for renaming originalFilename") @Default("") @Literal String originalFilenameExpression, //
 			@FriendlyName("Streaming") @Default("true") boolean streaming, //
+			@FriendlyName("Poll Options") @Optional PollOptions options, //
 			SourceCallback callback) throws Exception { // throws needed, otherwise DevKit generates illegal code
 
 		CompletionStrategy cs = new RenameStrategy(muleContext, filenameExpression, originalFilenameExpression);
-		handlePoll(cs, directory, filename, translatedNameExpression, streaming, callback);
+		handlePoll("pollWithArchivingByRenaming", cs, directory, filename, translatedNameExpression, streaming,
+				RegistryMode.None, options, callback);
+	}
+
+	/**
+	 * @param key
+	 *            Source and directory. Sources polling the same directory
+	 *            count their polls separately.
+	 * @return The tracker for the source, directory and stability settings,
+	 *         <code>null</code> when stability detection is switched off.
+	 */
+	private FileStabilityTracker stabilityTracker(String key, PollOptions options) {
+		int stablePolls = options.getStablePolls();
+		long quietPeriod = options.getQuietPeriod();
+		if (stablePolls <= 0 && quietPeriod <= 0) {
+			return null;
+		}
+		String trackerKey = key + " " + stablePolls + " " + quietPeriod;
+		synchronized (stabilityTrackers) {
+			FileStabilityTracker tracker = stabilityTrackers.get(trackerKey);
+			if (tracker == null) {
+				tracker = new FileStabilityTracker(stablePolls, quietPeriod);
+				stabilityTrackers.put(trackerKey, tracker);
+			}
+			return tracker;
+		}
+	}
+
+	/**
+	 * @return The scheduler for the source and directory, <code>null</code>
+	 *         when backoff is switched off.
+	 */
+	private PollScheduler pollScheduler(String source, String directory, PollOptions options) {
+		if (options.getBackoffMaxInterval() <= 0) {
+			return null;
+		}
+		String key = source + " " + directory;
+		synchronized (pollSchedulers) {
+			PollScheduler scheduler = pollSchedulers.get(key);
+			if (scheduler == null) {
+				scheduler = new PollScheduler(options.getBackoffMinInterval(), options.getBackoffMaxInterval(),
+						options.getBackoffJitter());
+				pollSchedulers.put(key, scheduler);
+			}
+			return scheduler;
+		}
+	}
+
+	/**
+	 * Poll when the scheduler (if any) says so. A poll which has stopped at
+	 * <code>maxFilesPerPoll</code> is followed by the next one right away (up
+	 * to {@value #MAX_BURST_POLLS} polls per trigger), so a backlog is not
+	 * slowed down by the polling period.
+	 *
+	 * @param options
+	 *            <code>null</code> for the defaults.
+	 */
+	private void handlePoll(String source, CompletionStrategy cs, String directory, String filename,
+			String translatedNameExpression, boolean streaming, RegistryMode registry, PollOptions options,
+			SourceCallback callback) throws Exception {
+		PollOptions o = options == null ? new PollOptions() : options;
+		PollScheduler scheduler = pollScheduler(source, directory, o);
+		if (scheduler != null && !scheduler.isDue(System.currentTimeMillis())) {
+			logger.debug("Skip poll of {}, backoff interval {} ms", directory, scheduler.getInterval());
+			return;
+		}
+		int polls = 0;
+		boolean capped;
+		do {
+			int files = pollOnce(source, scheduler, cs, directory, filename, translatedNameExpression, streaming, registry, o,
+					callback);
+			capped = o.getMaxFilesPerPoll() > 0 && files >= o.getMaxFilesPerPoll();
+			polls++;
+		} while (capped && polls < MAX_BURST_POLLS);
+	}
+
+	/**
+	 * Run one poll cycle and record it in the metrics of the configuration.
+	 * With <code>maxDepth</code>, the tree is listed first and each included
+	 * directory is handled with its own registry and stability tracker. A
+	 * failing directory does not stop the others, the first exception is
+	 * thrown at the end. When <code>maxFilesPerPoll</code> is reached, the next
+	 * poll starts in the directory where this one has stopped.
+	 *
+	 * @return Number of files handed to the flow.
+	 */
+	private int pollOnce(String source, PollScheduler scheduler, CompletionStrategy cs, String directory, String filename,
+			String translatedNameExpression, boolean streaming, RegistryMode registry, PollOptions options,
+			SourceCallback callback) throws Exception {
+		String key = source + " " + directory;
+		int maxFilesPerPoll = options.getMaxFilesPerPoll();
+		long start = System.nanoTime();
+		int files = 0;
+		boolean success = false;
+		try {
+			if (options.getMaxDepth() > 0) {
+				DirectoryWalker walker = new DirectoryWalker(config, options.getMaxDepth(), options.getIncludeDirectories(),
+						options.getExcludeDirectories(), walkPool());
+				Map<String, List<RemoteFile>> tree = walker.walk(directory);
+				if (walker.getFailures() == 0) {
+					evictDirectories(source, key, tree.keySet());
+				}
+				List<String> dirs = startAt(new ArrayList<>(tree.keySet()), directoryCursor(key, null));
+				Exception firstException = null;
+				String stoppedAt = null;
+				for (String dir : dirs) {
+					int remaining = maxFilesPerPoll - files;
+					if (maxFilesPerPoll > 0 && remaining <= 0) {
+						stoppedAt = dir;
+						break;
+					}
+					String dirKey = source + " " + dir;
+					try {
+						files += handlePollCycle(cs, dir, tree.get(dir), filename, translatedNameExpression, streaming,
+								ProcessedFileRegistry.create(muleContext, registry, config, dir), stabilityTracker(dirKey, options),
+								pollCursor(dirKey, options.getSortOrder()), remaining, options, callback);
+					} catch (Exception e) {
+						logger.error("polling " + dir + " failed", e);
+						if (firstException == null) {
+							firstException = e;
+						}
+					}
+				}
+				directoryCursor(key, stoppedAt == null ? "" : stoppedAt);
+				if (firstException != null) {
+					throw firstException;
+				}
+			} else {
+				files = handlePollCycle(cs, directory, null, filename, translatedNameExpression, streaming,
+						ProcessedFileRegistry.create(muleContext, registry, config, directory), stabilityTracker(key, options),
+						pollCursor(key, options.getSortOrder()), maxFilesPerPoll, options, callback);
+			}
+			success = true;
+		} finally {
+			config.getMetrics().recordPoll(key, start, files, success);
+			if (scheduler != null) {
+				scheduler.recordPoll(success ? files : 0, System.currentTimeMillis());
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return The cursor for the files of a source in a directory.
+	 */
+	private PollCursor pollCursor(String key, PollOrder sortOrder) {
+		synchronized (pollCursors) {
+			PollCursor cursor = pollCursors.get(key);
+			if (cursor == null) {
+				cursor = new PollCursor(sortOrder);
+				pollCursors.put(key, cursor);
+			}
+			return cursor;
+		}
+	}
+
+	/**
+	 * Get or set the directory where the last recursive poll of a source has
+	 * stopped.
+	 *
+	 * @param next
+	 *            New value ("" for none), <code>null</code> to get the
+	 *            current value only.
+	 * @return The value before.
+	 */
+	private String directoryCursor(String key, String next) {
+		synchronized (directoryCursors) {
+			String current = directoryCursors.get(key);
+			if (next != null) {
+				directoryCursors.put(key, next);
+			}
+			return current;
+		}
+	}
+
+	/**
+	 * Forget the stability trackers and cursors of directories which are gone
+	 * since the last complete walk of a source, so a deep tree with changing
+	 * subdirectories does not fill the maps.
+	 *
+	 * @param dirs
+	 *            All directories found by the walk.
+	 */
+	private void evictDirectories(String source, String key, Set<String> dirs) {
+		Set<String> gone;
+		synchronized (walkedDirectories) {
+			Set<String> before = walkedDirectories.put(key, new HashSet<>(dirs));
+			if (before == null) {
+				return;
+			}
+			gone = before;
+			gone.removeAll(dirs);
+		}
+		for (String dir : gone) {
+			String dirKey = source + " " + dir;
+			synchronized (pollCursors) {
+				pollCursors.remove(dirKey);
+			}
+			synchronized (stabilityTrackers) {
+				Iterator<String> iter = stabilityTrackers.keySet().iterator();
+				while (iter.hasNext()) {
+					String trackerKey = iter.next();
+					if (trackerKey.startsWith(dirKey + " ")
+							&& TRACKER_SETTINGS.matcher(trackerKey.substring(dirKey.length() + 1)).matches()) {
+						iter.remove();
+					}
+				}
+			}
+			logger.debug("Forgot state of {} as it is gone", dir);
+		}
+	}
+
+	/**
+	 * @return The directories, starting with <code>first</code> when it is
+	 *         one of them, the ones before at the end.
+	 */
+	private static List<String> startAt(List<String> dirs, String first) {
+		int index = first == null ? -1 : dirs.indexOf(first);
+		if (index <= 0) {
+			return dirs;
+		}
+		List<String> result = new ArrayList<>(dirs.subList(index, dirs.size()));
+		result.addAll(dirs.subList(0, index));
+		return result;
+	}
+
+	/**
+	 * @return Number of directories listed at the same time in a recursive
+	 *         poll, limited by the connection pool.
+	 */
+	private int walkParallelism() {
+		int maxActive = config.getPoolMaxActive();
+		return maxActive > 0 ? Math.min(maxActive, MAX_WALK_PARALLELISM) : MAX_WALK_PARALLELISM;
 	}
 
-	private void handlePoll(CompletionStrategy cs, //
-			String directory, //
-			String filename, //
+	/**
+	 * @return Threads for the poll sources, shared by all of them. Each poll
+	 *         limits how many it uses at the same time.
+	 */
+	private synchronized ExecutorService workerExecutor() {
+		if (workerExecutor == null) {
+			workerExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("ftp-client-worker-"));
+		}
+		return workerExecutor;
+	}
+
+	/**
+	 * @return Threads for the listings of recursive polls, shared by all
+	 *         sources.
+	 */
+	private synchronized ForkJoinPool walkPool() {
+		if (walkPool == null) {
+			walkPool = new ForkJoinPool(walkParallelism(), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+				private final AtomicInteger threadCount = new AtomicInteger();
+
+				@Override
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					thread.setName("ftp-client-walk-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			}, null, false);
+		}
+		return walkPool;
+	}
+
+	/**
+	 * Stop the threads of the poll sources and forget their state. Both are
+	 * created again by the next poll after a restart.
+	 */
+	@Stop
+	public synchronized void stop() {
+		if (workerExecutor != null) {
+			workerExecutor.shutdownNow();
+			workerExecutor = null;
+		}
+		if (walkPool != null) {
+			walkPool.shutdownNow();
+			walkPool = null;
+		}
+		synchronized (stabilityTrackers) {
+			stabilityTrackers.clear();
+		}
+		synchronized (pollSchedulers) {
+			pollSchedulers.clear();
+		}
+		synchronized (pollCursors) {
+			pollCursors.clear();
+		}
+		synchronized (directoryCursors) {
+			directoryCursors.clear();
+		}
+		synchronized (walkedDirectories) {
+			walkedDirectories.clear();
+		}
+	}
+
+	/**
+	 * @param listing
+	 *            Entries of the directory, <code>null</code> to list it now.
+	 * @param cursor
+	 *            Sorts the files and limits them to <code>maxFiles</code>.
+	 * @param maxFiles
+	 *            Maximum number of files, 0 for all.
+	 * @return Number of files handed to the flow.
+	 */
+	private int handlePollCycle(CompletionStrategy cs, //
+			final String directory, //
+			List<RemoteFile> listing, //
+			final String filename, //
 			String translatedNameExpression, //
 			boolean streaming, //
+			final ProcessedFileRegistry processedFiles, //
+			final FileStabilityTracker stabilityTracker, //
+			PollCursor cursor, //
+			int maxFiles, //
+			PollOptions options, //
 			SourceCallback callback) throws Exception {
-		Pattern pattern = Pattern.compile(filename);
-
-		Map<String, Long> sizeMap = new HashMap<>();
-		List<RemoteFile> filesToHandle = new ArrayList<>();
-		List<RemoteFile> allFiles;
-		allFiles = config.list(directory);
+		int parallelism = options.getParallelism();
+		int prefetch = options.getPrefetch();
+		final Pattern pattern = Pattern.compile(filename);
+		// Sizes of all files are only needed to look up translated names
+		final boolean collectSizes = StringUtils.isNotBlank(translatedNameExpression);
+		final Map<String, Long> sizeMap = new HashMap<>();
+		final Set<String> existingNames = new HashSet<>();
+		final List<RemoteFile> candidates = new ArrayList<>();
+		final CompletionExecutor completionExecutor = config.getCompletionExecutor();
+		Predicate<RemoteFile> filter = new Predicate<RemoteFile>() {
+			@Override
+			public boolean test(RemoteFile file) {
+				if (!FtpFileType.FILE.equals(file.getType())) {
+					logger.debug("Skip {} as not filetype {}", file, FtpFileType.FILE);
+					return false;
+				}
+				if (collectSizes) {
+					sizeMap.put(file.getName(), Long.valueOf(file.getSize()));
+				}
+				if (processedFiles != null || stabilityTracker != null) {
+					existingNames.add(file.getName());
+				}
+				if (!pattern.matcher(file.getName()).matches()) {
+					logger.debug("Skip {} as not matching pattern {}", file, filename);
+					return false;
+				}
+				if (completionExecutor != null && completionExecutor.isPending(directory, file.getName())) {
+					logger.debug("Skip {} as completion action is pending", file);
+					return false;
+				}
+				return true;
+			}
+		};
+		Consumer<RemoteFile> consumer = new Consumer<RemoteFile>() {
+			@Override
+			public void accept(RemoteFile file) {
+				candidates.add(file);
+			}
+		};
+		if (listing == null) {
+			config.list(directory, filter, consumer);
+		} else {
+			for (RemoteFile file : listing) {
+				if (filter.test(file)) {
+					consumer.accept(file);
+				}
+			}
+		}
 		if (logger.isDebugEnabled()) {
-			logger.debug("Found " + allFiles.size() + " files");
+			logger.debug("Found " + candidates.size() + " matching files");
 		}
-		for (RemoteFile file : allFiles) {
-			if (FtpFileType.FILE.equals(file.getType())) {
-				sizeMap.put(file.getName(), Long.valueOf(file.getSize()));
-				if (pattern.matcher(file.getName()).matches()) {
-					filesToHandle.add(file);
-				} else {
-					logger.debug("Skip {} as not matching pattern {}", file, filename);
+		if (stabilityTracker != null) {
+			stabilityTracker.retainAll(existingNames);
+			long now = System.currentTimeMillis();
+			Iterator<RemoteFile> iter = candidates.iterator();
+			while (iter.hasNext()) {
+				RemoteFile file = iter.next();
+				if (!stabilityTracker.isStable(file, now)) {
+					logger.debug("Skip {} as not stable yet", file);
+					iter.remove();
+				}
+			}
+		}
+		if (processedFiles != null) {
+			processedFiles.removeMissing(existingNames);
+			Iterator<RemoteFile> iter = candidates.iterator();
+			while (iter.hasNext()) {
+				RemoteFile file = iter.next();
+				if (!processedFiles.isNewOrChanged(file)) {
+					logger.debug("Skip {} as already processed", file);
+					iter.remove();
 				}
+			}
+		}
+		List<RemoteFile> filesToHandle = cursor == null ? candidates : cursor.select(candidates, maxFiles);
+		BatchCompletionStrategy batch = null;
+		if (options.isBatchCompletion() && !filesToHandle.isEmpty()) {
+			batch = new BatchCompletionStrategy(cs, config, directory);
+			cs = batch;
+		} else if (completionExecutor != null) {
+			cs = completionExecutor.decorate(cs, directory);
+		}
+		try {
+			if (parallelism > 1 && filesToHandle.size() > 1) {
+				handleFilesInParallel(sizeMap, directory, filesToHandle, translatedNameExpression, cs, streaming, parallelism,
+						processedFiles, callback);
+			} else if (prefetch > 0 && filesToHandle.size() > 1) {
+				handleFilesWithPrefetch(sizeMap, directory, filesToHandle, translatedNameExpression, cs, streaming, prefetch,
+						processedFiles, callback);
 			} else {
-				logger.debug("Skip {} as not filetype {}", file, FtpFileType.FILE);
+				for (RemoteFile file : filesToHandle) {
+					logger.debug("start handling {}", file.getName());
+					handleFile(sizeMap, directory, file, translatedNameExpression, cs, streaming, processedFiles, callback);
+					logger.debug("finished handling {}", file.getName());
+				}
+			}
+		} finally {
+			if (batch != null) {
+				batch.run();
+			}
+		}
+		return filesToHandle.size();
+	}
+
+	/**
+	 * Handle the files with up to <code>parallelism</code> worker threads. Each
+	 * file gets its own connection from the pool, so the completion handlers
+	 * run on the connection which has read the file. A failing file does not
+	 * stop the others, the first exception is thrown after all files have been
+	 * handled.
+	 */
+	private void handleFilesInParallel(final Map<String, Long> sizeMap, final String directory, List<RemoteFile> filesToHandle,
+			final String translatedNameExpression, final CompletionStrategy cs, final boolean streaming, int parallelism,
+			final ProcessedFileRegistry processedFiles, final SourceCallback callback) throws Exception {
+		ExecutorService executor = workerExecutor();
+		// The threads are shared, the permits limit this poll
+		final Semaphore workers = new Semaphore(parallelism);
+		Map<RemoteFile, Future<Void>> futures = new LinkedHashMap<>();
+		try {
+			for (final RemoteFile file : filesToHandle) {
+				workers.acquire();
+				futures.put(file, executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						try {
+							logger.debug("start handling {}", file.getName());
+							handleFile(sizeMap, directory, file, translatedNameExpression, cs, streaming, processedFiles, callback);
+							logger.debug("finished handling {}", file.getName());
+							return null;
+						} finally {
+							workers.release();
+						}
+					}
+				}));
 			}
+			Exception firstException = null;
+			for (Map.Entry<RemoteFile, Future<Void>> entry : futures.entrySet()) {
+				try {
+					entry.getValue().get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					logger.error("handling of " + entry.getKey().getName() + " failed", cause);
+					if (firstException == null) {
+						firstException = cause instanceof Exception ? (Exception) cause : e;
+					}
+				}
+			}
+			if (firstException != null) {
+				throw firstException;
+			}
+		} finally {
+			// Only left early on interrupt
+			for (Future<Void> future : futures.values()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Handle the files one after the other, while up to <code>depth</code> of
+	 * the following files are downloaded, each one on a connection of its own.
+	 * The content is buffered like a non-streaming payload (in a temporary file
+	 * above the in-memory threshold). The completion action of a file runs when
+	 * it is handed to the flow, so prefetched files which are not processed
+	 * after an error are read again in the next poll. The downloads run on the
+	 * shared worker threads.
+	 */
+	private void handleFilesWithPrefetch(Map<String, Long> sizeMap, final String directory, List<RemoteFile> filesToHandle,
+			String translatedNameExpression, CompletionStrategy cs, boolean streaming, int depth,
+			ProcessedFileRegistry processedFiles, SourceCallback callback) throws Exception {
+		ExecutorService executor = workerExecutor();
+		boolean batched = cs instanceof BatchCompletionStrategy;
+		// The threads are shared, the permits limit the downloads of this poll
+		final Semaphore downloads = new Semaphore(depth);
+		Deque<PolledFile> window = new ArrayDeque<>();
+		try {
+			Iterator<RemoteFile> iter = filesToHandle.iterator();
+			while (true) {
+				while (iter.hasNext() && window.size() <= depth) {
+					final PolledFile polled = prepareFile(sizeMap, iter.next(), translatedNameExpression, cs);
+					if (polled != null) {
+						polled.content = executor.submit(new Callable<Object>() {
+							@Override
+							public Object call() throws Exception {
+								downloads.acquire();
+								try (InputStream is = config.getInputStream(directory, polled.translatedName, polled.fileSize,
+										null)) {
+									return readPayload(is, polled.fileSize);
+								} finally {
+									downloads.release();
+								}
+							}
+						});
+						window.add(polled);
+					}
+				}
+				PolledFile polled = window.poll();
+				if (polled == null) {
+					return;
+				}
+				Object content;
+				try {
+					content = polled.content.get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					throw cause instanceof Exception ? (Exception) cause : e;
+				}
+				logger.debug("start handling {}", polled.file.getName());
+				handlePrefetchedFile(directory, polled, content, batched, streaming, processedFiles, callback);
+				logger.debug("finished handling {}", polled.file.getName());
+			}
+		} finally {
+			// Only left early on errors, the files are read again next time
+			for (PolledFile polled : window) {
+				polled.content.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * @param batched
+	 *            The completion handler only queues the action, it does not
+	 *            need a connection.
+	 */
+	private void handlePrefetchedFile(final String directory, PolledFile polled, Object content, final boolean batched,
+			boolean streaming, ProcessedFileRegistry processedFiles, SourceCallback callback) throws Exception {
+		final Consumer<ClientWrapper> onClose = polled.onClose;
+		InputStream is = null;
+		if (streaming) {
+			InputStream contentStream = content instanceof MappedContent ? ((MappedContent) content).openStream()
+					: new ByteArrayInputStream((byte[]) content);
+			is = new AutoCloseOnEOFInputStream(contentStream, new ConsumerWithIOException() {
+				@Override
+				public void apply() throws IOException {
+					runCompletionHandler(directory, onClose, batched);
+				}
+			});
+			polled.message.setPayload(is);
+		} else {
+			runCompletionHandler(directory, onClose, batched);
+			polled.message.setPayload(content);
 		}
-		for (RemoteFile file : filesToHandle) {
-			logger.debug("start handling {}", file.getName());
-			handleFile(sizeMap, directory, file, translatedNameExpression, cs, streaming, callback);
-			logger.debug("finished handling {}", file.getName());
+		processFile(polled, streaming, is, processedFiles, callback);
+	}
+
+	/**
+	 * Run a completion handler on a connection from the pool, in the directory
+	 * of the file. A batched handler is called without a connection, it only
+	 * queues the action.
+	 */
+	private void runCompletionHandler(String directory, Consumer<ClientWrapper> onClose, boolean batched) throws IOException {
+		if (batched) {
+			onClose.accept(null);
+		} else {
+			config.runInDirectory(directory, onClose);
 		}
 	}
 
 	private void handleFile(Map<String, Long> sizeMap, final String directory, RemoteFile file, String translatedNameExpression, CompletionStrategy cs,
-			boolean streaming, SourceCallback callback) throws Exception {
+			boolean streaming, ProcessedFileRegistry processedFiles, SourceCallback callback) throws Exception {
+		PolledFile polled = prepareFile(sizeMap, file, translatedNameExpression, cs);
+		if (polled == null) {
+			return;
+		}
+		InputStream is = config.getInputStream(directory, polled.translatedName, polled.fileSize, polled.onClose);
+		if (streaming) {
+			polled.message.setPayload(is);
+		} else {
+			polled.message.setPayload(readPayload(is, polled.fileSize));
+			is.close();
+		}
+		processFile(polled, streaming, is, processedFiles, callback);
+	}
+
+	/**
+	 * Build the message (without payload) and the completion handler for a
+	 * file.
+	 *
+	 * @return <code>null</code> when the translated file does not exist.
+	 */
+	private PolledFile prepareFile(Map<String, Long> sizeMap, RemoteFile file, String translatedNameExpression,
+			CompletionStrategy cs) {
 		final String filename = file.getName();
 		final String translatedName;
 
@@ -254,7 +876,7 @@ public class FtpClientConnector {
 				Long size = sizeMap.get(translatedName);
 				if (size == null) {
 					logger.warn("for file {} the translated file {} does not exist.", filename, translatedName);
-					return;
+					return null;
 				}
 				muleMessage.setProperty("fileSize", size, PropertyScope.INBOUND);
 				inbound.put("fileSize", size);
@@ -267,17 +889,20 @@ public class FtpClientConnector {
 		muleMessage.setProperty("filename", translatedName, PropertyScope.INBOUND);
 		inbound.put("filename", translatedName);
 
-		Consumer<ClientWrapper> onClose = cs.createCompletionHandler(muleMessage, filename, translatedName);
+		PolledFile polled = new PolledFile();
+		polled.file = file;
+		polled.translatedName = translatedName;
+		polled.fileSize = ((Long) inbound.get("fileSize")).longValue();
+		polled.message = muleMessage;
+		polled.inbound = inbound;
+		polled.onClose = cs.createCompletionHandler(muleMessage, filename, translatedName);
+		return polled;
+	}
 
-		InputStream is = config.getInputStream(directory, translatedName, onClose);
-		if (streaming) {
-			muleMessage.setPayload(is);
-		} else {
-			muleMessage.setPayload(IOUtils.toByteArray(is));
-			is.close();
-		}
+	private void processFile(PolledFile polled, boolean streaming, InputStream is, ProcessedFileRegistry processedFiles,
+			SourceCallback callback) throws Exception {
 		try {
-			callback.process(muleMessage, inbound);
+			callback.process(polled.message, polled.inbound);
 		} catch (MessagingException e) {
 			// Ensure stream is closed when exception happens
 			close(streaming, is);
@@ -287,6 +912,9 @@ public class FtpClientConnector {
 			close(streaming, is);
 			throw new MessagingException(getEvent(), e);
 		}
+		if (processedFiles != null) {
+			processedFiles.markProcessed(polled.file);
+		}
 	}
 
 	private void close(boolean streaming, InputStream is) {
@@ -335,7 +963,7 @@ public class FtpClientConnector {
 		try (OutputStream out = config.getOutputStream(directory, filename)) {
 			if (content instanceof InputStream) {
 				InputStream is = ((InputStream) content);
-				IOUtils.copy(is, out);
+				IOUtils.copyLarge(is, out, new byte[config.getCopyBufferSize()]);
 				is.close();
 			} else if (content instanceof OutputHandler) {
 				((OutputHandler) content).write(event, out);
@@ -355,7 +983,9 @@ public class FtpClientConnector {
 	}
 
 	/**
-	 * Read a file from FTP server.
+	 * Read a file from FTP server. When a segment size is configured, large
+	 * files are read in segments, the size of the file is looked up first
+	 * unless it is given.
 	 *
 	 * @param directory
 	 *            The name of the directory on the remote system.
@@ -365,9 +995,15 @@ public class FtpClientConnector {
 	 *
 	 * @param streaming
 	 *            Return an {@link InputStream} instead of an
-	 *            <code>byte[]</code>
+	 *            <code>byte[]</code> (or a {@link MappedContent} above the
+	 *            in-memory threshold)
+	 *
+	 * @param fileSize
+	 *            Size of the file when the caller knows it already (e.g. from
+	 *            a poll), -1 when unknown.
 	 *
-	 * @return The file content as {@link byte[]} or {@link InputStream}
+	 * @return The file content as {@link byte[]}, {@link MappedContent} or
+	 *         {@link InputStream}
 	 *
 	 * @throws Exception
 	 *         Anything wrong in low level ftp/sftp libraries.
@@ -376,18 +1012,29 @@ public class FtpClientConnector {
 	@ReconnectOn(exceptions = { ConnectionException.class })
 	public Object getFile(@FriendlyName("Directory") @Default("") final String directory, //
 			@FriendlyName("File name") final String filename, //
-			@FriendlyName("Streaming") @Default("true") boolean streaming) throws Exception {
+			@FriendlyName("Streaming") @Default("true") boolean streaming, //
+			@FriendlyName("File size") @Default("-1") long fileSize) throws Exception {
 
-		InputStream is = config.getInputStream(directory, filename, null);
+		long size = fileSize;
+		if (size < 0 && config.isSegmentedDownloadEnabled()) {
+			// Size is needed to decide about a segmented download
+			RemoteFile file = config.stat(directory, filename);
+			size = file == null ? -1L : file.getSize();
+		}
+		InputStream is = config.getInputStream(directory, filename, size, null);
 		if (streaming) {
 			return is;
 		} else {
-			byte[] result = IOUtils.toByteArray(is);
+			Object result = readPayload(is, size);
 			is.close();
 			return result;
 		}
 	}
 
+	private Object readPayload(InputStream is, long fileSize) throws IOException {
+		return PayloadBuffer.read(is, fileSize, config.getInMemoryThreshold());
+	}
+
 	/**
 	 * @param directory
 	 *            Directory of file to delete
@@ -416,6 +1063,33 @@ public class FtpClientConnector {
 		return config.list(directory);
 	}
 
+	/**
+	 * List a directory lazily. Only files matching the regular expression are
+	 * kept, the entries are filtered while the listing arrives. For ftp, the
+	 * entries are converted while iterating. Use this instead of
+	 * <code>list</code> for huge directories.
+	 *
+	 * @param directory
+	 *            Directory
+	 * @param filename
+	 *            Regular expression to match against the names of the entries.
+	 * @return Iterator over the matching entries in this directory.
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	@Processor
+	@ReconnectOn(exceptions = { ConnectionException.class })
+	public Iterator<RemoteFile> listIterator(@FriendlyName("Directory") @Default("") String directory, //
+			@FriendlyName("Regex for filename") @Default(".*") String filename) throws Exception {
+		final Pattern pattern = Pattern.compile(filename);
+		return config.listIterator(directory, new Predicate<RemoteFile>() {
+			@Override
+			public boolean test(RemoteFile file) {
+				return pattern.matcher(file.getName()).matches();
+			}
+		});
+	}
+
 	/**
 	 * Rename/move a file.
 	 *
@@ -448,4 +1122,17 @@ public class FtpClientConnector {
 	public void setMuleContext(MuleContext muleContext) {
 		this.muleContext = muleContext;
 	}
+
+	/**
+	 * A file of a poll with its message, ready to be read.
+	 */
+	private static class PolledFile {
+		private RemoteFile file;
+		private String translatedName;
+		private long fileSize;
+		private MuleMessage message;
+		private Map<String, Object> inbound;
+		private Consumer<ClientWrapper> onClose;
+		private Future<Object> content;
+	}
 }
@@ -0,0 +1,93 @@
+package org.mule.modules.ftpclient;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Counts durations in buckets with fixed limits. Recording needs no lock, so
+ * it can be done on the transfer path.
+ */
+public class LatencyHistogram {
+    /**
+     * Upper limits (inclusive, milliseconds) of the buckets. A last bucket
+     * counts everything above.
+     */
+    public static final long[] LIMITS_MILLIS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000,
+            60_000 };
+
+    private static final long[] LIMITS_NANOS = new long[LIMITS_MILLIS.length];
+
+    static {
+        for (int i = 0; i < LIMITS_MILLIS.length; i++) {
+            LIMITS_NANOS[i] = TimeUnit.MILLISECONDS.toNanos(LIMITS_MILLIS[i]);
+        }
+    }
+
+    private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+        @Override
+        public long applyAsLong(long left, long right) {
+            return Math.max(left, right);
+        }
+    };
+
+    private final LongAdder[] buckets;
+    private final LongAdder count;
+    private final LongAdder totalNanos;
+    private final LongAccumulator maxNanos;
+
+    public LatencyHistogram() {
+        buckets = new LongAdder[LIMITS_MILLIS.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        count = new LongAdder();
+        totalNanos = new LongAdder();
+        maxNanos = new LongAccumulator(MAX, 0);
+    }
+
+    public void record(long nanos) {
+        int index = 0;
+        while (index < LIMITS_NANOS.length && nanos > LIMITS_NANOS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long c = count.sum();
+        return c == 0 ? 0 : totalNanos.sum() / 1e6 / c;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @return Counts per bucket, see {@link #LIMITS_MILLIS}.
+     */
+    public long[] getBuckets() {
+        long[] result = new long[buckets.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = buckets[i].sum();
+        }
+        return result;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
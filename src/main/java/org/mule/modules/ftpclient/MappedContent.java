@@ -0,0 +1,143 @@
+package org.mule.modules.ftpclient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Content of a file, mapped into memory. Used as payload for files which are
+ * too large for a <code>byte[]</code>. It can be read as often as needed, each
+ * call to {@link #openStream()} starts at the beginning. The pages are held
+ * by the operating system, not on the heap.
+ */
+public class MappedContent {
+    private final ByteBuffer[] buffers;
+    private final long size;
+
+    private MappedContent(ByteBuffer[] buffers, long size) {
+        this.buffers = buffers;
+        this.size = size;
+    }
+
+    /**
+     * Map a file and delete it. The mapping stays valid until the content is
+     * garbage collected. When the file can't be deleted while it is mapped
+     * (Windows), it is deleted when the JVM exits.
+     *
+     * @param file
+     *            A temporary file.
+     * @return The mapped content.
+     * @throws IOException
+     *             When the file can't be mapped.
+     */
+    public static MappedContent mapAndDelete(File file) throws IOException {
+        MappedContent content;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            int count = (int) ((size + Integer.MAX_VALUE - 1) / Integer.MAX_VALUE);
+            ByteBuffer[] buffers = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = (long) i * Integer.MAX_VALUE;
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(Integer.MAX_VALUE, size - position));
+            }
+            content = new MappedContent(buffers, size);
+        }
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+        return content;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return A new stream with the complete content.
+     */
+    public InputStream openStream() {
+        return new MappedInputStream(buffers);
+    }
+
+    /**
+     * @return The content as array.
+     * @throws IllegalStateException
+     *             When the content is too large for an array.
+     */
+    public byte[] toByteArray() {
+        if (buffers.length > 1) {
+            throw new IllegalStateException(size + " bytes don't fit into an array");
+        }
+        byte[] result = new byte[(int) size];
+        if (buffers.length == 1) {
+            buffers[0].duplicate().get(result);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "MappedContent [size=" + size + "]";
+    }
+
+    private static final class MappedInputStream extends InputStream {
+        private final ByteBuffer[] buffers;
+        private int index;
+
+        MappedInputStream(ByteBuffer[] buffers) {
+            this.buffers = new ByteBuffer[buffers.length];
+            for (int i = 0; i < buffers.length; i++) {
+                this.buffers[i] = buffers[i].duplicate();
+            }
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer buffer = current();
+            return buffer == null ? -1 : buffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = current();
+            if (buffer == null) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = 0;
+            ByteBuffer buffer;
+            while (skipped < n && (buffer = current()) != null) {
+                int count = (int) Math.min(n - skipped, buffer.remaining());
+                buffer.position(buffer.position() + count);
+                skipped += count;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer buffer = current();
+            return buffer == null ? 0 : buffer.remaining();
+        }
+
+        private ByteBuffer current() {
+            while (index < buffers.length && !buffers[index].hasRemaining()) {
+                index++;
+            }
+            return index < buffers.length ? buffers[index] : null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.mule.modules.ftpclient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+
+/**
+ * Counts the bytes read from the server. The operation is recorded when the
+ * stream is closed, as failed when a read has thrown an exception.
+ */
+public class MeteredInputStream extends FilterInputStream {
+    private final ConnectorMetrics metrics;
+    private final Operation operation;
+    private final long startNanos;
+    private boolean failed;
+    private boolean closed;
+
+    public MeteredInputStream(InputStream in, ConnectorMetrics metrics, Operation operation, long startNanos) {
+        super(in);
+        this.metrics = metrics;
+        this.operation = operation;
+        this.startNanos = startNanos;
+        metrics.streamOpened();
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            int b = super.read();
+            if (b >= 0) {
+                metrics.addBytesIn(1);
+            }
+            return b;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        try {
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                metrics.addBytesIn(count);
+            }
+            return count;
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            metrics.streamClosed();
+            metrics.record(operation, startNanos, !failed);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.mule.modules.ftpclient;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+
+/**
+ * Counts the bytes written to the server. The operation is recorded when the
+ * stream is closed, as failed when a write or the close has thrown an
+ * exception.
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+    private final ConnectorMetrics metrics;
+    private final Operation operation;
+    private final long startNanos;
+    private boolean failed;
+    private boolean closed;
+
+    public MeteredOutputStream(OutputStream out, ConnectorMetrics metrics, Operation operation, long startNanos) {
+        super(out);
+        this.metrics = metrics;
+        this.operation = operation;
+        this.startNanos = startNanos;
+        metrics.streamOpened();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        try {
+            out.write(b);
+            metrics.addBytesOut(1);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        // FilterOutputStream would write byte by byte
+        try {
+            out.write(b, off, len);
+            metrics.addBytesOut(len);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            out.flush();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            out.close();
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        } finally {
+            metrics.streamClosed();
+            metrics.record(operation, startNanos, !failed);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.mule.modules.ftpclient;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the metrics of one kind of operation, see
+ * {@link ConnectorMetricsMXBean#getOperations()}.
+ */
+public class OperationStatistics {
+    private final long count;
+    private final long errors;
+    private final double meanMillis;
+    private final double maxMillis;
+    private final long[] histogram;
+
+    @ConstructorProperties({ "count", "errors", "meanMillis", "maxMillis", "histogram" })
+    public OperationStatistics(long count, long errors, double meanMillis, double maxMillis, long[] histogram) {
+        this.count = count;
+        this.errors = errors;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return Number of operations, including the failed ones.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    /**
+     * @return Number of operations per duration bucket, see
+     *         {@link ConnectorMetricsMXBean#getHistogramLimitsMillis()}.
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+}
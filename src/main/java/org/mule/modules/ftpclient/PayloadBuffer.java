@@ -0,0 +1,95 @@
+package org.mule.modules.ftpclient;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads the content of a file completely for non streaming mode. Known sizes
+ * are used to allocate the array once. Files larger than a threshold are
+ * spooled to a temporary file and returned as {@link MappedContent}.
+ */
+public final class PayloadBuffer {
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private PayloadBuffer() {
+    }
+
+    /**
+     * @param is
+     *            Stream with the content, not closed.
+     * @param size
+     *            Expected size, -1 when unknown.
+     * @param inMemoryThreshold
+     *            Maximum size of a <code>byte[]</code>, 0 for no limit.
+     * @return The content as <code>byte[]</code> or {@link MappedContent}.
+     * @throws IOException
+     *             When reading fails.
+     */
+    public static Object read(InputStream is, long size, long inMemoryThreshold) throws IOException {
+        long limit = inMemoryThreshold > 0 ? Math.min(inMemoryThreshold, MAX_ARRAY_SIZE) : MAX_ARRAY_SIZE;
+        if (size > limit) {
+            return spool(new byte[0], 0, is);
+        }
+        byte[] data;
+        int count;
+        if (size >= 0) {
+            data = new byte[(int) size];
+            count = IOUtils.read(is, data);
+            if (count < data.length) {
+                // File is shorter than listed
+                return Arrays.copyOf(data, count);
+            }
+            int next = is.read();
+            if (next < 0) {
+                return data;
+            }
+            // File is longer than listed, continue like an unknown size
+            if (count >= limit) {
+                return spool(data, count, new SequenceInputStream(new ByteArrayInputStream(new byte[] { (byte) next }), is));
+            }
+            data = Arrays.copyOf(data, (int) Math.min(limit, Math.max(BUFFER_SIZE, 2L * count)));
+            data[count++] = (byte) next;
+        } else if (inMemoryThreshold <= 0) {
+            return IOUtils.toByteArray(is);
+        } else {
+            data = new byte[BUFFER_SIZE];
+            count = 0;
+        }
+        while (true) {
+            if (count == data.length) {
+                if (count >= limit) {
+                    return spool(data, count, is);
+                }
+                data = Arrays.copyOf(data, (int) Math.min(limit, 2L * data.length));
+            }
+            int n = is.read(data, count, data.length - count);
+            if (n < 0) {
+                return count == data.length ? data : Arrays.copyOf(data, count);
+            }
+            count += n;
+        }
+    }
+
+    private static MappedContent spool(byte[] head, int length, InputStream is) throws IOException {
+        File file = File.createTempFile("ftp-client-", ".payload");
+        try {
+            try (OutputStream out = new FileOutputStream(file)) {
+                out.write(head, 0, length);
+                IOUtils.copyLarge(is, out, new byte[BUFFER_SIZE]);
+            }
+            return MappedContent.mapAndDelete(file);
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.mule.modules.ftpclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Selects the files of one directory for a poll: sorted, at most a maximum
+ * number, starting after the last file of the previous poll when that one
+ * has stopped at the maximum. After the end of the list, the selection
+ * continues at its start, so files which sort before the cursor (e.g. new
+ * files with small names) are not left out until the backlog is done.
+ */
+public class PollCursor {
+    private final PollOrder order;
+    private RemoteFile last;
+
+    /**
+     * @param order
+     *            Order of the files.
+     */
+    public PollCursor(PollOrder order) {
+        this.order = order == null ? PollOrder.None : order;
+    }
+
+    /**
+     * @param files
+     *            Candidates of the current poll in the order of the listing.
+     * @param maxFiles
+     *            Maximum number of files, 0 or less for all.
+     * @return The files to handle, in this order.
+     */
+    public synchronized List<RemoteFile> select(List<RemoteFile> files, int maxFiles) {
+        List<RemoteFile> sorted = new ArrayList<>(files);
+        Comparator<RemoteFile> comparator = order.comparator();
+        if (comparator != null) {
+            Collections.sort(sorted, comparator);
+        }
+        if (maxFiles <= 0 || sorted.size() <= maxFiles) {
+            last = null;
+            return sorted;
+        }
+        int start = last == null ? 0 : startIndex(sorted, comparator);
+        List<RemoteFile> selected = new ArrayList<>(maxFiles);
+        for (int i = 0; i < maxFiles; i++) {
+            selected.add(sorted.get((start + i) % sorted.size()));
+        }
+        last = selected.get(maxFiles - 1);
+        return selected;
+    }
+
+    /**
+     * @return Index of the first file after the cursor, 0 when there is none.
+     */
+    private int startIndex(List<RemoteFile> sorted, Comparator<RemoteFile> comparator) {
+        for (int i = 0; i < sorted.size(); i++) {
+            RemoteFile file = sorted.get(i);
+            if (comparator == null) {
+                if (file.getName().equals(last.getName())) {
+                    return (i + 1) % sorted.size();
+                }
+            } else if (comparator.compare(file, last) > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,190 @@
+package org.mule.modules.ftpclient;
+
+/**
+ * Tuning of the poll sources, shared by all of them. The defaults poll like
+ * the sources without options: one file after another, all files of the
+ * directory at every trigger.
+ */
+public class PollOptions {
+    /**
+     * Number of files processed at the same time, each one with its own
+     * connection. 1 means sequential processing.
+     */
+    private int parallelism = 1;
+
+    /**
+     * Only read a file when its size and timestamp have not changed in this
+     * number of polls after it has been seen first. 0 switches the check off.
+     */
+    private int stablePolls = 0;
+
+    /**
+     * Only read a file when its size and timestamp have not changed for this
+     * number of milliseconds. 0 switches the check off.
+     */
+    private long quietPeriod = 0;
+
+    /**
+     * Collect the completion actions (delete, move, rename) of a poll and run
+     * them together on one connection at the end of the poll instead of one by
+     * one when a file has been processed.
+     */
+    private boolean batchCompletion = false;
+
+    /**
+     * Number of files downloaded ahead, each one on its own connection, while
+     * the flow processes the current file. 0 switches prefetch off. Used with
+     * one parallel worker only.
+     */
+    private int prefetch = 0;
+
+    /**
+     * Number of subdirectory levels polled as well. 0 polls the directory only.
+     */
+    private int maxDepth = 0;
+
+    /**
+     * Regular expression for the path of the directories polled, relative to
+     * the polled directory ("" for the directory itself).
+     */
+    private String includeDirectories = ".*";
+
+    /**
+     * Regular expression for the relative path of subdirectories which are
+     * skipped with all their subdirectories. Empty for none.
+     */
+    private String excludeDirectories = "";
+
+    /**
+     * Milliseconds to wait after the first poll without files when
+     * <code>backoffMaxInterval</code> is set.
+     */
+    private long backoffMinInterval = 6000;
+
+    /**
+     * Double the time between polls after each poll without files, up to this
+     * number of milliseconds. After a poll with files, the source polls with
+     * its polling period again. 0 switches backoff off.
+     */
+    private long backoffMaxInterval = 0;
+
+    /**
+     * Random variation of the backoff interval in percent.
+     */
+    private int backoffJitter = 10;
+
+    /**
+     * Maximum number of files handed to the flow in one poll, 0 for all. The
+     * next poll continues after the last file.
+     */
+    private int maxFilesPerPoll = 0;
+
+    /**
+     * Order of the files within a directory.
+     */
+    private PollOrder sortOrder = PollOrder.None;
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public int getStablePolls() {
+        return stablePolls;
+    }
+
+    public void setStablePolls(int stablePolls) {
+        this.stablePolls = stablePolls;
+    }
+
+    public long getQuietPeriod() {
+        return quietPeriod;
+    }
+
+    public void setQuietPeriod(long quietPeriod) {
+        this.quietPeriod = quietPeriod;
+    }
+
+    public boolean isBatchCompletion() {
+        return batchCompletion;
+    }
+
+    public void setBatchCompletion(boolean batchCompletion) {
+        this.batchCompletion = batchCompletion;
+    }
+
+    public int getPrefetch() {
+        return prefetch;
+    }
+
+    public void setPrefetch(int prefetch) {
+        this.prefetch = prefetch;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public String getIncludeDirectories() {
+        return includeDirectories;
+    }
+
+    public void setIncludeDirectories(String includeDirectories) {
+        this.includeDirectories = includeDirectories;
+    }
+
+    public String getExcludeDirectories() {
+        return excludeDirectories;
+    }
+
+    public void setExcludeDirectories(String excludeDirectories) {
+        this.excludeDirectories = excludeDirectories;
+    }
+
+    public long getBackoffMinInterval() {
+        return backoffMinInterval;
+    }
+
+    public void setBackoffMinInterval(long backoffMinInterval) {
+        this.backoffMinInterval = backoffMinInterval;
+    }
+
+    public long getBackoffMaxInterval() {
+        return backoffMaxInterval;
+    }
+
+    public void setBackoffMaxInterval(long backoffMaxInterval) {
+        this.backoffMaxInterval = backoffMaxInterval;
+    }
+
+    public int getBackoffJitter() {
+        return backoffJitter;
+    }
+
+    public void setBackoffJitter(int backoffJitter) {
+        this.backoffJitter = backoffJitter;
+    }
+
+    public int getMaxFilesPerPoll() {
+        return maxFilesPerPoll;
+    }
+
+    public void setMaxFilesPerPoll(int maxFilesPerPoll) {
+        this.maxFilesPerPoll = maxFilesPerPoll;
+    }
+
+    public PollOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public void setSortOrder(PollOrder sortOrder) {
+        this.sortOrder = sortOrder;
+    }
+}
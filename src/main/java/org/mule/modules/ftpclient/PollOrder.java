@@ -0,0 +1,61 @@
+package org.mule.modules.ftpclient;
+
+import java.util.Comparator;
+
+/**
+ * Order in which the files of a poll are handed to the flow.
+ */
+public enum PollOrder {
+    /** As listed by the server. */
+    None,
+    /** Oldest first. */
+    Timestamp,
+    /** Alphabetically by name. */
+    Name,
+    /** Smallest first. */
+    Size;
+
+    private static final Comparator<RemoteFile> BY_NAME = new Comparator<RemoteFile>() {
+        @Override
+        public int compare(RemoteFile a, RemoteFile b) {
+            return a.getName().compareTo(b.getName());
+        }
+    };
+
+    private static final Comparator<RemoteFile> BY_TIMESTAMP = new Comparator<RemoteFile>() {
+        @Override
+        public int compare(RemoteFile a, RemoteFile b) {
+            int result = Long.compare(time(a), time(b));
+            return result != 0 ? result : BY_NAME.compare(a, b);
+        }
+
+        private long time(RemoteFile file) {
+            return file.getTimestamp() == null ? Long.MIN_VALUE : file.getTimestamp().getTime();
+        }
+    };
+
+    private static final Comparator<RemoteFile> BY_SIZE = new Comparator<RemoteFile>() {
+        @Override
+        public int compare(RemoteFile a, RemoteFile b) {
+            int result = Long.compare(a.getSize(), b.getSize());
+            return result != 0 ? result : BY_NAME.compare(a, b);
+        }
+    };
+
+    /**
+     * @return Comparator for this order, <code>null</code> for the order of
+     *         the listing.
+     */
+    public Comparator<RemoteFile> comparator() {
+        switch (this) {
+        case Timestamp:
+            return BY_TIMESTAMP;
+        case Name:
+            return BY_NAME;
+        case Size:
+            return BY_SIZE;
+        default:
+            return null;
+        }
+    }
+}
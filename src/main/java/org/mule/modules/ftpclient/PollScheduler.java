@@ -0,0 +1,81 @@
+package org.mule.modules.ftpclient;
+
+import java.util.Random;
+
+/**
+ * Decides whether a poll source really polls when Mule triggers it. After a
+ * poll without files, the interval doubles from a minimum up to a maximum, so
+ * an idle directory costs fewer logins and listings. After a poll with files,
+ * every trigger polls again. A random jitter keeps many sources from polling
+ * the same server at the same time.
+ */
+public class PollScheduler {
+    private final long minInterval;
+    private final long maxInterval;
+    private final int jitterPercent;
+    private final Random random;
+    private long interval;
+    private long nextPoll;
+
+    /**
+     * @param minInterval
+     *            Milliseconds to wait after the first poll without files.
+     * @param maxInterval
+     *            Maximum milliseconds between polls without files.
+     * @param jitterPercent
+     *            Random variation of the interval in percent (plus or minus).
+     */
+    public PollScheduler(long minInterval, long maxInterval, int jitterPercent) {
+        this(minInterval, maxInterval, jitterPercent, new Random());
+    }
+
+    PollScheduler(long minInterval, long maxInterval, int jitterPercent, Random random) {
+        this.minInterval = Math.max(1, Math.min(minInterval, maxInterval));
+        this.maxInterval = maxInterval;
+        this.jitterPercent = Math.max(0, Math.min(jitterPercent, 100));
+        this.random = random;
+    }
+
+    /**
+     * @param now
+     *            Current time (milliseconds).
+     * @return <code>true</code> when the source should poll now.
+     */
+    public synchronized boolean isDue(long now) {
+        return now >= nextPoll;
+    }
+
+    /**
+     * Record the result of a poll.
+     *
+     * @param files
+     *            Number of files handed to the flow, 0 for a failed poll.
+     * @param now
+     *            Current time (milliseconds).
+     */
+    public synchronized void recordPoll(int files, long now) {
+        if (files > 0) {
+            interval = 0;
+            nextPoll = now;
+        } else {
+            interval = interval == 0 ? minInterval : Math.min(maxInterval, interval * 2);
+            nextPoll = now + jitter(interval);
+        }
+    }
+
+    /**
+     * @return Current interval without jitter (milliseconds), 0 when files have
+     *         been found in the last poll.
+     */
+    public synchronized long getInterval() {
+        return interval;
+    }
+
+    private long jitter(long value) {
+        long range = value * jitterPercent / 100;
+        if (range <= 0) {
+            return value;
+        }
+        return value - range + (long) (random.nextDouble() * 2 * range);
+    }
+}
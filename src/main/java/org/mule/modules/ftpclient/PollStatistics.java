@@ -0,0 +1,77 @@
+package org.mule.modules.ftpclient;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the metrics of one poll source, see
+ * {@link ConnectorMetricsMXBean#getPolls()}.
+ */
+public class PollStatistics {
+    private final long cycles;
+    private final long errors;
+    private final long files;
+    private final int lastFiles;
+    private final double lastDurationMillis;
+    private final double meanDurationMillis;
+    private final double maxDurationMillis;
+    private final long[] histogram;
+
+    @ConstructorProperties({ "cycles", "errors", "files", "lastFiles", "lastDurationMillis", "meanDurationMillis",
+            "maxDurationMillis", "histogram" })
+    public PollStatistics(long cycles, long errors, long files, int lastFiles, double lastDurationMillis,
+            double meanDurationMillis, double maxDurationMillis, long[] histogram) {
+        this.cycles = cycles;
+        this.errors = errors;
+        this.files = files;
+        this.lastFiles = lastFiles;
+        this.lastDurationMillis = lastDurationMillis;
+        this.meanDurationMillis = meanDurationMillis;
+        this.maxDurationMillis = maxDurationMillis;
+        this.histogram = histogram;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return Number of cycles which ended with an exception.
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return Number of files handled in all cycles.
+     */
+    public long getFiles() {
+        return files;
+    }
+
+    /**
+     * @return Number of files handled in the last cycle.
+     */
+    public int getLastFiles() {
+        return lastFiles;
+    }
+
+    public double getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    public double getMeanDurationMillis() {
+        return meanDurationMillis;
+    }
+
+    public double getMaxDurationMillis() {
+        return maxDurationMillis;
+    }
+
+    /**
+     * @return Number of cycles per duration bucket, see
+     *         {@link ConnectorMetricsMXBean#getHistogramLimitsMillis()}.
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+}
@@ -0,0 +1,149 @@
+package org.mule.modules.ftpclient;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.Set;
+
+import org.mule.api.MuleContext;
+import org.mule.api.config.MuleProperties;
+import org.mule.api.store.ListableObjectStore;
+import org.mule.api.store.ObjectStore;
+import org.mule.api.store.ObjectStoreException;
+import org.mule.api.store.ObjectStoreManager;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers processed files of one directory in a Mule {@link ObjectStore} of
+ * its own. The key is the name, the value size and timestamp, so a file is
+ * processed again when it has been changed.
+ */
+public class ProcessedFileRegistry {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessedFileRegistry.class);
+
+    private final ObjectStore<String> store;
+
+    /**
+     * @param store
+     *            Store for the files of one directory.
+     */
+    public ProcessedFileRegistry(ObjectStore<String> store) {
+        this.store = store;
+    }
+
+    /**
+     * @param muleContext
+     *            Context with the object store manager.
+     * @param mode
+     *            In memory or persistent.
+     * @param config
+     *            Configuration, each server/user combination gets its own
+     *            store.
+     * @param directory
+     *            Polled directory.
+     * @return A registry, <code>null</code> for {@link RegistryMode#None}.
+     */
+    public static ProcessedFileRegistry create(MuleContext muleContext, RegistryMode mode, AbstractConfig config, String directory) {
+        if (mode == null || mode == RegistryMode.None) {
+            return null;
+        }
+        ObjectStoreManager manager = muleContext.getRegistry().lookupObject(MuleProperties.OBJECT_STORE_MANAGER);
+        ObjectStore<String> store = manager.getObjectStore(storeName(config, directory), mode == RegistryMode.Persistent);
+        return new ProcessedFileRegistry(store);
+    }
+
+    /**
+     * @param config
+     *            Configuration.
+     * @param directory
+     *            Polled directory, "/in" and "in" are different ones.
+     * @return Name of the object store for this configuration and directory.
+     */
+    public static String storeName(AbstractConfig config, String directory) {
+        String name = "ftp-client-processed-" + config.getHost() + "-" + config.getPort() + "-" + config.getUser();
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + escape(directoryKey(directory));
+    }
+
+    private static String directoryKey(String directory) {
+        String d = directory == null ? "" : directory.trim();
+        if (d.length() > 1 && d.endsWith("/")) {
+            d = d.substring(0, d.length() - 1);
+        }
+        return d;
+    }
+
+    /**
+     * Other characters than letters, digits, '.' and '-' are written as
+     * "_hex_", so different directories never get the same name.
+     */
+    private static String escape(String directory) {
+        StringBuilder sb = new StringBuilder(directory.length());
+        for (char ch : directory.toCharArray()) {
+            if (ch < 128 && (Character.isLetterOrDigit(ch) || ch == '.' || ch == '-')) {
+                sb.append(ch);
+            } else {
+                sb.append('_').append(Integer.toHexString(ch)).append('_');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param file
+     *            A file from a listing.
+     * @return <code>true</code> when the file is not known or size or
+     *         timestamp have changed since it has been processed.
+     * @throws ObjectStoreException
+     *             When the store fails.
+     */
+    public boolean isNewOrChanged(RemoteFile file) throws ObjectStoreException {
+        String key = file.getName();
+        if (!store.contains(key)) {
+            return true;
+        }
+        return !value(file).equals(store.retrieve(key));
+    }
+
+    /**
+     * @param file
+     *            A file which has been processed successfully.
+     * @throws ObjectStoreException
+     *             When the store fails.
+     */
+    public void markProcessed(RemoteFile file) throws ObjectStoreException {
+        String key = file.getName();
+        if (store.contains(key)) {
+            store.remove(key);
+        }
+        store.store(key, value(file));
+    }
+
+    /**
+     * Forget files which don't exist any more. Only possible for listable
+     * stores, otherwise nothing happens. The store holds the files of this
+     * directory only, so the work depends on its size, not on the number of
+     * polled directories.
+     *
+     * @param existingNames
+     *            Names of all files in the directory.
+     * @throws ObjectStoreException
+     *             When the store fails.
+     */
+    public void removeMissing(Set<String> existingNames) throws ObjectStoreException {
+        if (!(store instanceof ListableObjectStore)) {
+            return;
+        }
+        for (Serializable key : ((ListableObjectStore<String>) store).allKeys()) {
+            if (!existingNames.contains(key.toString())) {
+                LOGGER.debug("forget {}", key);
+                store.remove(key);
+            }
+        }
+    }
+
+    private String value(RemoteFile file) {
+        Date timestamp = file.getTimestamp();
+        return file.getSize() + ":" + (timestamp == null ? "" : Long.toString(timestamp.getTime()));
+    }
+}
@@ -0,0 +1,8 @@
+package org.mule.modules.ftpclient;
+
+/**
+ * Where to remember files which have already been processed by a poll.
+ */
+public enum RegistryMode {
+    None, InMemory, Persistent;
+}
@@ -0,0 +1,15 @@
+package org.mule.modules.ftpclient;
+
+import java.io.IOException;
+
+/**
+ * The remote file does not match the bytes transferred before an interruption,
+ * so the transfer can't be resumed.
+ */
+public class ResumeVerificationException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ResumeVerificationException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,164 @@
+package org.mule.modules.ftpclient;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.IOUtils;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a remote file and continues at the current position with a new
+ * connection when the transfer fails. The last bytes delivered are read again
+ * and compared to detect a file which has been changed in the meantime. Like
+ * {@link AutoCloseOnEOFInputStream}, the stream closes itself at the end.
+ */
+public class ResumingInputStream extends InputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumingInputStream.class);
+    private static final int VERIFY_SIZE = 4096;
+
+    private final AbstractConfig config;
+    private final String directory;
+    private final String filename;
+    private final long size;
+    private final Consumer<ClientWrapper> onClose;
+    private final TailBuffer tail;
+    private int attemptsLeft;
+    private InputStream delegate;
+    private long position;
+    private boolean closed;
+    private boolean endReached;
+
+    /**
+     * @param config
+     *            Configuration with the connection pool.
+     * @param directory
+     *            Directory of the remote file.
+     * @param filename
+     *            Name of the remote file.
+     * @param size
+     *            Size of the file, -1 when unknown. When known, an early end
+     *            of the stream is handled like a failure.
+     * @param attempts
+     *            Maximum number of resumes.
+     * @param onClose
+     *            Completion action, runs on a connection from the pool in
+     *            <code>directory</code> when the stream is closed, may be
+     *            <code>null</code>.
+     * @throws IOException
+     *             When the file can't be opened.
+     */
+    public ResumingInputStream(AbstractConfig config, String directory, String filename, long size, int attempts,
+            Consumer<ClientWrapper> onClose) throws IOException {
+        this.config = config;
+        this.directory = directory;
+        this.filename = filename;
+        this.size = size;
+        this.onClose = onClose;
+        tail = new TailBuffer(VERIFY_SIZE);
+        attemptsLeft = attempts;
+        position = 0;
+        delegate = open(0);
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int count = read(b, 0, 1);
+        return count < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (endReached) {
+            return -1;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (true) {
+            int count;
+            try {
+                count = delegate.read(b, off, len);
+                if (count < 0 && size >= 0 && position < size) {
+                    throw new EOFException(filename + " ended at " + position + " of " + size + " bytes");
+                }
+            } catch (IOException e) {
+                resume(e);
+                continue;
+            }
+            if (count < 0) {
+                endReached = true;
+                close();
+            } else if (count > 0) {
+                tail.write(b, off, count);
+                position += count;
+            }
+            return count;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                delegate.close();
+            } finally {
+                if (onClose != null) {
+                    config.runInDirectory(directory, onClose);
+                }
+            }
+        }
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    private void resume(IOException cause) throws IOException {
+        IOException lastException = cause;
+        while (attemptsLeft > 0) {
+            attemptsLeft--;
+            LOGGER.warn("Reading {}/{} failed at {}, resume: {}", directory, filename, position, lastException.toString());
+            IOUtils.closeQuietly(delegate);
+            long verifyLength = Math.min(position, VERIFY_SIZE);
+            try {
+                delegate = open(position - verifyLength);
+                verify(verifyLength);
+                return;
+            } catch (ResumeVerificationException e) {
+                IOUtils.closeQuietly(delegate);
+                throw e;
+            } catch (IOException e) {
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    private void verify(long verifyLength) throws IOException {
+        byte[] expected = new byte[(int) verifyLength];
+        byte[] actual = new byte[(int) verifyLength];
+        tail.read(position - verifyLength, expected, 0, expected.length);
+        IOUtils.readFully(delegate, actual);
+        if (!Arrays.equals(expected, actual)) {
+            throw new ResumeVerificationException(
+                    filename + " has been changed, bytes before " + position + " differ after resume");
+        }
+    }
+
+    private InputStream open(long offset) throws IOException {
+        try {
+            return config.getInputStream(directory, filename, offset);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Can't open " + directory + "/" + filename, e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.mule.modules.ftpclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes a remote file and continues with a new connection when the transfer
+ * fails. The size of the remote file tells how much has arrived, the missing
+ * bytes are taken from a buffer with the last bytes written and appended. The
+ * last bytes on the server are compared with the buffer before. When the
+ * transfer has been resumed, the remote size is checked after close, a short
+ * file is completed the same way.
+ */
+public class ResumingOutputStream extends OutputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResumingOutputStream.class);
+    private static final int VERIFY_SIZE = 4096;
+    private static final int COPY_SIZE = 64 * 1024;
+
+    private final AbstractConfig config;
+    private final String directory;
+    private final String filename;
+    private final TailBuffer buffer;
+    private int attemptsLeft;
+    private OutputStream delegate;
+    private boolean closed;
+    private boolean resumed;
+
+    /**
+     * @param config
+     *            Configuration with the connection pool.
+     * @param directory
+     *            Directory of the remote file, created when missing.
+     * @param filename
+     *            Name of the remote file.
+     * @param attempts
+     *            Maximum number of resumes.
+     * @param bufferSize
+     *            Number of bytes kept for a resume. Must be larger than the
+     *            amount of data on its way to the server (socket buffers).
+     * @throws IOException
+     *             When the file can't be opened.
+     */
+    public ResumingOutputStream(AbstractConfig config, String directory, String filename, int attempts, int bufferSize)
+            throws IOException {
+        this.config = config;
+        this.directory = directory;
+        this.filename = filename;
+        buffer = new TailBuffer(bufferSize);
+        attemptsLeft = attempts;
+        delegate = open(false);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        buffer.write(b, off, len);
+        try {
+            delegate.write(b, off, len);
+        } catch (IOException e) {
+            resume(e);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        try {
+            delegate.flush();
+        } catch (IOException e) {
+            resume(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException failure = null;
+        while (true) {
+            try {
+                delegate.close();
+                if (!resumed) {
+                    // Failures of a single transfer are reported by close
+                    return;
+                }
+                long remoteSize = remoteSize();
+                if (remoteSize == buffer.getEnd()) {
+                    return;
+                }
+                failure = new IOException(
+                        filename + " has " + remoteSize + " bytes on server, " + buffer.getEnd() + " bytes written");
+            } catch (ResumeVerificationException e) {
+                throw e;
+            } catch (IOException e) {
+                failure = e;
+            }
+            resume(failure);
+        }
+    }
+
+    /**
+     * @return Number of bytes written to the stream.
+     */
+    public long getPosition() {
+        return buffer.getEnd();
+    }
+
+    private void resume(IOException cause) throws IOException {
+        IOException lastException = cause;
+        while (attemptsLeft > 0) {
+            attemptsLeft--;
+            LOGGER.warn("Writing {}/{} failed at {}, resume: {}", directory, filename, buffer.getEnd(),
+                    lastException.toString());
+            IOUtils.closeQuietly(delegate);
+            try {
+                long remoteSize = remoteSize();
+                if (remoteSize < buffer.getStart() || remoteSize > buffer.getEnd()) {
+                    throw new ResumeVerificationException("Can't resume " + filename + " at " + remoteSize
+                            + ", only bytes " + buffer.getStart() + " to " + buffer.getEnd() + " are buffered");
+                }
+                verify(remoteSize);
+                delegate = open(true);
+                resumed = true;
+                copyFromBuffer(remoteSize);
+                return;
+            } catch (ResumeVerificationException e) {
+                throw e;
+            } catch (IOException e) {
+                lastException = e;
+            }
+        }
+        throw lastException;
+    }
+
+    /**
+     * Compare the last bytes on the server with the buffer, as far as they are
+     * still buffered.
+     */
+    private void verify(long remoteSize) throws IOException {
+        int verifyLength = (int) Math.min(VERIFY_SIZE, remoteSize - buffer.getStart());
+        if (verifyLength <= 0) {
+            return;
+        }
+        byte[] expected = new byte[verifyLength];
+        byte[] actual = new byte[verifyLength];
+        buffer.read(remoteSize - verifyLength, expected, 0, verifyLength);
+        try (InputStream is = config.getInputStream(directory, filename, remoteSize - verifyLength)) {
+            IOUtils.readFully(is, actual);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Can't read " + directory + "/" + filename, e);
+        }
+        if (!Arrays.equals(expected, actual)) {
+            throw new ResumeVerificationException(filename + " on server differs from written content before " + remoteSize);
+        }
+    }
+
+    private void copyFromBuffer(long from) throws IOException {
+        byte[] chunk = new byte[COPY_SIZE];
+        long position = from;
+        while (position < buffer.getEnd()) {
+            int count = (int) Math.min(chunk.length, buffer.getEnd() - position);
+            buffer.read(position, chunk, 0, count);
+            delegate.write(chunk, 0, count);
+            position += count;
+        }
+    }
+
+    private long remoteSize() throws IOException {
+        try {
+            RemoteFile file = config.stat(directory, filename);
+            return file == null ? 0 : file.getSize();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Can't stat " + directory + "/" + filename, e);
+        }
+    }
+
+    private OutputStream open(boolean append) throws IOException {
+        try {
+            return config.openOutputStream(directory, filename, append);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Can't open " + directory + "/" + filename, e);
+        }
+    }
+}
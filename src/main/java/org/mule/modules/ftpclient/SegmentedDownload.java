@@ -0,0 +1,130 @@
+package org.mule.modules.ftpclient;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.mule.modules.ftpclient.config.AbstractConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Download a file in segments, each one over its own pooled connection. The
+ * segments are written to their position in a local temporary file. The
+ * executor limits how many segments are read at the same time.
+ */
+public class SegmentedDownload {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SegmentedDownload.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AbstractConfig config;
+    private final long segmentSize;
+    private final ExecutorService executor;
+
+    /**
+     * @param config
+     *            Configuration with the connection pool.
+     * @param segmentSize
+     *            Size of a segment in bytes.
+     * @param executor
+     *            Reads the segments, shared by all downloads of the
+     *            configuration.
+     */
+    public SegmentedDownload(AbstractConfig config, long segmentSize, ExecutorService executor) {
+        this.config = config;
+        this.segmentSize = segmentSize;
+        this.executor = executor;
+    }
+
+    /**
+     * @param directory
+     *            Directory of the remote file.
+     * @param filename
+     *            Name of the remote file.
+     * @param size
+     *            Size of the remote file.
+     * @return A temporary file with the content, has to be deleted by the
+     *         caller.
+     * @throws Exception
+     *             When a segment can't be read, the temporary file has been
+     *             deleted then.
+     */
+    public File download(final String directory, final String filename, long size) throws Exception {
+        File file = File.createTempFile("ftp-client-", ".segmented");
+        boolean complete = false;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            final FileChannel channel = raf.getChannel();
+            int segments = (int) ((size + segmentSize - 1) / segmentSize);
+            LOGGER.debug("download {}/{} ({} bytes) in {} segments", directory, filename, size, segments);
+            List<Future<Void>> futures = new ArrayList<>(segments);
+            try {
+                for (int i = 0; i < segments; i++) {
+                    final long offset = i * segmentSize;
+                    final long length = Math.min(segmentSize, size - offset);
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws Exception {
+                            downloadSegment(directory, filename, offset, length, channel);
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        Throwable cause = e.getCause();
+                        throw cause instanceof Exception ? (Exception) cause : e;
+                    }
+                }
+            } finally {
+                // Segments still waiting are not needed anymore
+                for (Future<Void> future : futures) {
+                    future.cancel(false);
+                }
+            }
+            complete = true;
+        } finally {
+            if (!complete && !file.delete()) {
+                LOGGER.warn("Could not delete {}", file);
+            }
+        }
+        return file;
+    }
+
+    private void downloadSegment(String directory, String filename, long offset, long length, FileChannel channel)
+            throws Exception {
+        try (InputStream is = config.getInputStream(directory, filename, offset)) {
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, length)];
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                int count = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) {
+                    throw new EOFException(filename + " ended at " + position + ", expected " + (offset + length) + " bytes");
+                }
+                write(channel, ByteBuffer.wrap(buffer, 0, count), position);
+                position += count;
+                remaining -= count;
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+    }
+}
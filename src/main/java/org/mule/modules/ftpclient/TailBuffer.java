@@ -0,0 +1,82 @@
+package org.mule.modules.ftpclient;
+
+/**
+ * Keeps the last bytes of a stream, e.g. to repeat or verify them after a
+ * transfer has been interrupted. Positions are counted from the start of the
+ * stream.
+ */
+public class TailBuffer {
+    private final byte[] data;
+    private long end;
+
+    /**
+     * @param capacity
+     *            Number of bytes kept.
+     */
+    public TailBuffer(int capacity) {
+        data = new byte[capacity];
+        end = 0;
+    }
+
+    public void write(byte[] b, int off, int len) {
+        int offset = off;
+        int length = len;
+        if (length > data.length) {
+            // Only the last bytes fit
+            offset += length - data.length;
+            end += length - data.length;
+            length = data.length;
+        }
+        while (length > 0) {
+            int index = (int) (end % data.length);
+            int count = Math.min(length, data.length - index);
+            System.arraycopy(b, offset, data, index, count);
+            offset += count;
+            length -= count;
+            end += count;
+        }
+    }
+
+    /**
+     * @return Position of the oldest byte still kept.
+     */
+    public long getStart() {
+        return Math.max(0, end - data.length);
+    }
+
+    /**
+     * @return Position after the last byte written.
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @param position
+     *            Position of the first byte, must be between
+     *            {@link #getStart()} and {@link #getEnd()}.
+     * @param b
+     *            Destination.
+     * @param off
+     *            Offset in destination.
+     * @param len
+     *            Number of bytes, must not exceed {@link #getEnd()}.
+     */
+    public void read(long position, byte[] b, int off, int len) {
+        if (position < getStart() || position + len > end) {
+            throw new IndexOutOfBoundsException(
+                    "Range " + position + "+" + len + " not in buffer (" + getStart() + " to " + end + ")");
+        }
+        long p = position;
+        int offset = off;
+        int length = len;
+        while (length > 0) {
+            int index = (int) (p % data.length);
+            int count = Math.min(length, data.length - index);
+            System.arraycopy(data, index, b, offset, count);
+            offset += count;
+            length -= count;
+            p += count;
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package org.mule.modules.ftpclient.config;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.apache.commons.pool.impl.GenericObjectPool;
+import org.mule.api.ConnectionException;
+import org.mule.api.ConnectionExceptionCode;
 import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.ConnectionIdentifier;
 import org.mule.api.annotations.Disconnect;
@@ -14,8 +23,22 @@ import org.mule.api.annotations.display.FriendlyName;
 import org.mule.api.annotations.display.Placement;
 import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.model.streaming.CallbackOutputStream;
+import org.mule.modules.ftpclient.AutoCloseOnEOFInputStream;
+import org.mule.modules.ftpclient.AutoCloseOnEOFInputStream.ConsumerWithIOException;
+import org.mule.modules.ftpclient.ClientFactory;
 import org.mule.modules.ftpclient.ClientWrapper;
+import org.mule.modules.ftpclient.CompletionExecutor;
+import org.mule.modules.ftpclient.ConnectorMetrics;
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+import org.mule.modules.ftpclient.DaemonThreadFactory;
+import org.mule.modules.ftpclient.DirectoryCache;
+import org.mule.modules.ftpclient.MeteredInputStream;
+import org.mule.modules.ftpclient.MeteredOutputStream;
 import org.mule.modules.ftpclient.RemoteFile;
+import org.mule.modules.ftpclient.ResumingInputStream;
+import org.mule.modules.ftpclient.ResumingOutputStream;
+import org.mule.modules.ftpclient.SegmentedDownload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -40,16 +63,148 @@ public abstract class AbstractConfig {
 	@FriendlyName("Connection Timeout")
 	protected int timeout;
 
+	@Configurable
+	@Placement(order = 4, group = "Server")
+	@Optional
+	@Default("false")
+	@FriendlyName("Use Full Paths")
+	private boolean useFullPaths = false;
+
+	@Configurable
+	@Placement(order = 5, group = "Server")
+	@Optional
+	@Default("0")
+	@FriendlyName("Known Directories Cache Size")
+	private int directoryCacheSize = 0;
+
+	@Configurable
+	@Placement(order = 1, group = "Connection Pool")
+	@Optional
+	@Default("8")
+	@FriendlyName("Max Active Connections")
+	private int poolMaxActive = 8;
+
+	@Configurable
+	@Placement(order = 2, group = "Connection Pool")
+	@Optional
+	@Default("8")
+	@FriendlyName("Max Idle Connections")
+	private int poolMaxIdle = 8;
+
+	@Configurable
+	@Placement(order = 3, group = "Connection Pool")
+	@Optional
+	@Default("0")
+	@FriendlyName("Min Idle Connections")
+	private int poolMinIdle = 0;
+
+	@Configurable
+	@Placement(order = 4, group = "Connection Pool")
+	@Optional
+	@Default("30000")
+	@FriendlyName("Borrow Timeout (ms)")
+	private long poolMaxWait = 30_000;
+
+	@Configurable
+	@Placement(order = 5, group = "Connection Pool")
+	@Optional
+	@Default("false")
+	@FriendlyName("Validate on Borrow")
+	private boolean poolTestOnBorrow = false;
+
+	@Configurable
+	@Placement(order = 6, group = "Connection Pool")
+	@Optional
+	@Default("60000")
+	@FriendlyName("Time between Eviction Runs (ms)")
+	private long poolTimeBetweenEvictionRuns = 60_000;
+
+	@Configurable
+	@Placement(order = 7, group = "Connection Pool")
+	@Optional
+	@Default("300000")
+	@FriendlyName("Min Evictable Idle Time (ms)")
+	private long poolMinEvictableIdleTime = 300_000;
+
+	@Configurable
+	@Placement(order = 1, group = "Segmented Download")
+	@Optional
+	@Default("0")
+	@FriendlyName("Segment Size (bytes)")
+	private long segmentSize = 0;
+
+	@Configurable
+	@Placement(order = 2, group = "Segmented Download")
+	@Optional
+	@Default("4")
+	@FriendlyName("Parallel Segments")
+	private int segmentParallelism = 4;
+
+	@Configurable
+	@Placement(order = 1, group = "Resume")
+	@Optional
+	@Default("0")
+	@FriendlyName("Resume Attempts")
+	private int resumeAttempts = 0;
+
+	@Configurable
+	@Placement(order = 2, group = "Resume")
+	@Optional
+	@Default("1048576")
+	@FriendlyName("Resume Buffer Size (bytes)")
+	private int resumeBufferSize = 1_048_576;
+
+	@Configurable
+	@Placement(order = 1, group = "Non-Streaming Payload")
+	@Optional
+	@Default("0")
+	@FriendlyName("In-Memory Threshold (bytes)")
+	private long inMemoryThreshold = 0;
+
+	@Configurable
+	@Placement(order = 1, group = "Network Tuning")
+	@Optional
+	@Default("65536")
+	@FriendlyName("Copy Buffer Size (bytes)")
+	private int copyBufferSize = 65_536;
+
+	@Configurable
+	@Placement(order = 1, group = "Monitoring")
+	@Optional
+	@Default("true")
+	@FriendlyName("Register Metrics MBean")
+	private boolean registerMetrics = true;
+
+	@Configurable
+	@Placement(order = 1, group = "Completion Actions")
+	@Optional
+	@Default("0")
+	@FriendlyName("Background Threads")
+	private int completionThreads = 0;
+
+	@Configurable
+	@Placement(order = 2, group = "Completion Actions")
+	@Optional
+	@Default("1000")
+	@FriendlyName("Queue Size")
+	private int completionQueueSize = 1000;
+
+	@Configurable
+	@Placement(order = 3, group = "Completion Actions")
+	@Optional
+	@Default("60000")
+	@FriendlyName("Shutdown Timeout (ms)")
+	private long completionShutdownTimeout = 60_000;
+
 	protected String user;
 
-	protected ClientWrapper clientWrapper;
+	private GenericObjectPool<ClientWrapper> pool;
 
-	private static final Consumer<ClientWrapper> DO_NOTHING_CONSUMER = new Consumer<ClientWrapper>() {
-		@Override
-		public void accept(@SuppressWarnings("unused") ClientWrapper cw) {
-			// do nothing
-		}
-	};
+	private final ConnectorMetrics metrics = new ConnectorMetrics();
+
+	private CompletionExecutor completionExecutor;
+
+	private ExecutorService segmentExecutor;
 
 	@ConnectionIdentifier
 	public String connectionId() {
@@ -59,24 +214,187 @@ public abstract class AbstractConfig {
 	@Disconnect
 	public void disconnect() {
 		LOGGER.debug("disconnect, host={}, port={}, user={}", host, port, user);
-		if (clientWrapper != null) {
+		if (completionExecutor != null) {
+			// Pending actions need the pool
+			completionExecutor.shutdown();
+			completionExecutor = null;
+		}
+		synchronized (this) {
+			if (segmentExecutor != null) {
+				segmentExecutor.shutdownNow();
+				segmentExecutor = null;
+			}
+		}
+		if (pool != null) {
 			try {
-				clientWrapper.destroy();
+				pool.close();
 			} catch (Exception e) {
 				LOGGER.debug("ignore exception on cleanup", e);
 			}
 		}
-		clientWrapper = null;
+		pool = null;
+		releaseResources();
 		user = null;
+		metrics.unregister();
+	}
+
+	/**
+	 * Called on disconnect after the pool has been closed, for resources of
+	 * the protocol which are shared by the connections.
+	 */
+	protected void releaseResources() {
+		// nothing shared
 	}
 
 	@ValidateConnection
 	public boolean isConnected() {
-		boolean result = clientWrapper != null && clientWrapper.validate();
+		GenericObjectPool<ClientWrapper> p = pool;
+		boolean result = false;
+		if (p != null) {
+			if (p.getNumIdle() == 0 && p.getNumActive() > 0) {
+				// All connections are busy, don't block waiting for one.
+				result = true;
+			} else {
+				try {
+					ClientWrapper wrapper = p.borrowObject();
+					long start = System.nanoTime();
+					result = wrapper.validate();
+					metrics.record(Operation.VALIDATE, start, result);
+					if (result) {
+						p.returnObject(wrapper);
+					} else {
+						p.invalidateObject(wrapper);
+					}
+				} catch (Exception e) {
+					LOGGER.debug("validation failed", e);
+				}
+			}
+		}
 		LOGGER.debug("isConnected(host={}, port={}, user={}) -> {}", host, port, user, result);
 		return result;
 	}
 
+	/**
+	 * Create a new connection to the server.
+	 *
+	 * @return A connected and logged in client.
+	 * @throws ConnectionException
+	 *             When the connection can't be established.
+	 */
+	protected abstract ClientWrapper createClientWrapper() throws ConnectionException;
+
+	/**
+	 * Create the pool of connections. One connection is created immediately, so
+	 * bad host names or credentials are detected on connect.
+	 *
+	 * @throws ConnectionException
+	 *             When the first connection can't be established.
+	 */
+	protected void createPool() throws ConnectionException {
+		final DirectoryCache directoryCache = directoryCacheSize > 0 ? new DirectoryCache(directoryCacheSize) : null;
+		ClientFactory<ClientWrapper> factory = new ClientFactory<ClientWrapper>() {
+			@Override
+			public ClientWrapper makeObject() throws Exception {
+				long start = System.nanoTime();
+				ClientWrapper wrapper;
+				try {
+					wrapper = createClientWrapper();
+				} catch (Exception e) {
+					metrics.record(Operation.CONNECT, start, false);
+					throw e;
+				}
+				metrics.record(Operation.CONNECT, start, true);
+				wrapper.setUsePaths(useFullPaths);
+				wrapper.setDirectoryCache(directoryCache);
+				wrapper.setMetrics(metrics);
+				return wrapper;
+			}
+
+			@Override
+			public boolean validateObject(ClientWrapper client) {
+				long start = System.nanoTime();
+				boolean valid = super.validateObject(client);
+				metrics.record(Operation.VALIDATE, start, valid);
+				return valid;
+			}
+		};
+		GenericObjectPool<ClientWrapper> newPool = new GenericObjectPool<>(factory);
+		newPool.setMaxActive(poolMaxActive);
+		newPool.setMaxIdle(poolMaxIdle);
+		newPool.setMinIdle(poolMinIdle);
+		newPool.setMaxWait(poolMaxWait);
+		newPool.setWhenExhaustedAction(GenericObjectPool.WHEN_EXHAUSTED_BLOCK);
+		newPool.setTestOnBorrow(poolTestOnBorrow);
+		newPool.setTimeBetweenEvictionRunsMillis(poolTimeBetweenEvictionRuns);
+		newPool.setMinEvictableIdleTimeMillis(poolMinEvictableIdleTime);
+		factory.setPool(newPool);
+		try {
+			newPool.returnObject(newPool.borrowObject());
+		} catch (ConnectionException e) {
+			closeQuietly(newPool);
+			throw e;
+		} catch (Exception e) {
+			closeQuietly(newPool);
+			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), "Could not create connection", e);
+		}
+		pool = newPool;
+		if (completionThreads > 0) {
+			completionExecutor = new CompletionExecutor(this, completionThreads, completionQueueSize, completionShutdownTimeout);
+		}
+		if (registerMetrics) {
+			metrics.register(getClass().getSimpleName(), user + "@" + host + ":" + port);
+		}
+	}
+
+	/**
+	 * @return The executor for completion actions, <code>null</code> when they
+	 *         run on the connection which has read the file.
+	 */
+	public CompletionExecutor getCompletionExecutor() {
+		return completionExecutor;
+	}
+
+	/**
+	 * Borrow a connection from the pool. It must be given back with
+	 * {@link #releaseClient(GenericObjectPool, ClientWrapper)}.
+	 *
+	 * @return The pool, needed to give back the connection.
+	 * @throws ConnectionException
+	 *             When not connected.
+	 */
+	protected GenericObjectPool<ClientWrapper> getPool() throws ConnectionException {
+		GenericObjectPool<ClientWrapper> p = pool;
+		if (p == null) {
+			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Not connected to " + port + "@" + host);
+		}
+		return p;
+	}
+
+	/**
+	 * Give back a connection to the pool it has been borrowed from. Connections
+	 * which have been destroyed after an error are dropped by the pool.
+	 *
+	 * @param p
+	 *            Pool from which the wrapper has been borrowed.
+	 * @param wrapper
+	 *            The wrapper.
+	 */
+	protected void releaseClient(GenericObjectPool<ClientWrapper> p, ClientWrapper wrapper) {
+		try {
+			p.returnObject(wrapper);
+		} catch (Exception e) {
+			LOGGER.debug("ignore exception on cleanup", e);
+		}
+	}
+
+	private void closeQuietly(GenericObjectPool<ClientWrapper> p) {
+		try {
+			p.close();
+		} catch (Exception e) {
+			LOGGER.debug("ignore exception on cleanup", e);
+		}
+	}
+
 	/**
 	 * @param directory
 	 *            Directory on remote system, will be created when does not
@@ -90,7 +408,50 @@ public abstract class AbstractConfig {
 	 *             Anything wrong in low level ftp/sftp libraries.
 	 */
 	public OutputStream getOutputStream(String directory, String filename) throws Exception {
-		return clientWrapper.getOutputStream(directory, filename);
+		if (isResuming()) {
+			return new ResumingOutputStream(this, directory, filename, resumeAttempts, resumeBufferSize);
+		}
+		return openOutputStream(directory, filename, false);
+	}
+
+	/**
+	 * Like {@link #getOutputStream(String, String)}, without resume.
+	 *
+	 * @param directory
+	 *            Directory on remote system, will be created when does not
+	 *            exist.
+	 * @param filename
+	 *            File name on remote system.
+	 * @param append
+	 *            Append to an existing file instead of replacing it.
+	 * @return Stream to which content for the remote file has to be written.
+	 *
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public OutputStream openOutputStream(String directory, String filename, boolean append) throws Exception {
+		final GenericObjectPool<ClientWrapper> p = getPool();
+		final ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		try {
+			OutputStream out = new MeteredOutputStream(wrapper.getOutputStream(directory, filename, append), metrics,
+					Operation.PUT, start);
+			return new CallbackOutputStream(out, new CallbackOutputStream.Callback() {
+				boolean closed = false;
+
+				@Override
+				public void onClose() {
+					if (!closed) {
+						closed = true;
+						releaseClient(p, wrapper);
+					}
+				}
+			});
+		} catch (Exception e) {
+			metrics.record(Operation.PUT, start, false);
+			releaseClient(p, wrapper);
+			throw e;
+		}
 	}
 
 	/**
@@ -106,31 +467,326 @@ public abstract class AbstractConfig {
 	 *             Anything wrong in low level ftp/sftp libraries.
 	 */
 	public InputStream getInputStream(String directory, String filename, Consumer<ClientWrapper> onClose) throws Exception {
-		return clientWrapper.getInputStream(directory, filename, onClose == null ? DO_NOTHING_CONSUMER : onClose);
+		final GenericObjectPool<ClientWrapper> p = getPool();
+		final ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		try {
+			InputStream is = new MeteredInputStream(
+					wrapper.getInputStream(directory, filename, onClose), metrics,
+					Operation.GET, start);
+			// The inner stream runs onClose first, so the connection is given
+			// back after the completion actions are done.
+			return new AutoCloseOnEOFInputStream(is, new ConsumerWithIOException() {
+				@Override
+				public void apply() {
+					releaseClient(p, wrapper);
+				}
+			});
+		} catch (Exception e) {
+			metrics.record(Operation.GET, start, false);
+			releaseClient(p, wrapper);
+			throw e;
+		}
 	}
 
 	/**
-	 * Delete a remote file.
+	 * Read a file in segments over several connections when it is larger than
+	 * the configured segment size, otherwise like
+	 * {@link #getInputStream(String, String, Consumer)}. Segments are collected
+	 * in a temporary file, which is deleted when the stream is closed. When
+	 * resume is configured, a broken transfer continues on a new connection.
 	 *
 	 * @param directory
 	 *            Directory on remote system.
 	 * @param filename
 	 *            File name on remote system.
+	 * @param size
+	 *            Size of the file, -1 when unknown.
+	 * @param onClose
+	 *            Callback with close action, runs on a connection from the
+	 *            pool.
+	 * @return Stream with content of file.
+	 *
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public InputStream getInputStream(String directory, String filename, long size, final Consumer<ClientWrapper> onClose) throws Exception {
+		if (!isSegmentedDownload(size)) {
+			if (isResuming()) {
+				return new ResumingInputStream(this, directory, filename, size, resumeAttempts, onClose);
+			}
+			return getInputStream(directory, filename, onClose);
+		}
+		final File file = new SegmentedDownload(this, segmentSize, getSegmentExecutor()).download(directory, filename, size);
+		try {
+			return new AutoCloseOnEOFInputStream(new FileInputStream(file), new ConsumerWithIOException() {
+				@Override
+				public void apply() throws IOException {
+					try {
+						if (onClose != null) {
+							runInDirectory(directory, onClose);
+						}
+					} finally {
+						if (!file.delete()) {
+							LOGGER.warn("Could not delete {}", file);
+						}
+					}
+				}
+			});
+		} catch (IOException e) {
+			file.delete();
+			throw e;
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            Directory on remote system.
+	 * @param filename
+	 *            File name on remote system.
+	 * @param offset
+	 *            Position to start reading.
+	 * @return Stream with content of file from <code>offset</code> on. The
+	 *         connection is given back when the stream is closed.
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public InputStream getInputStream(String directory, String filename, long offset) throws Exception {
+		final GenericObjectPool<ClientWrapper> p = getPool();
+		final ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		try {
+			InputStream is = new MeteredInputStream(wrapper.getInputStream(directory, filename, offset, null),
+					metrics, Operation.GET, start);
+			return new AutoCloseOnEOFInputStream(is, new ConsumerWithIOException() {
+				@Override
+				public void apply() {
+					releaseClient(p, wrapper);
+				}
+			});
+		} catch (Exception e) {
+			metrics.record(Operation.GET, start, false);
+			releaseClient(p, wrapper);
+			throw e;
+		}
+	}
+
+	/**
+	 * Segments of all downloads share these threads, so no more than
+	 * <code>segmentParallelism</code> connections are busy with segments.
+	 */
+	private synchronized ExecutorService getSegmentExecutor() throws ConnectionException {
+		getPool();
+		if (segmentExecutor == null) {
+			segmentExecutor = Executors.newFixedThreadPool(segmentParallelism,
+					new DaemonThreadFactory("ftp-client-segment-" + port + "@" + host + "-"));
+		}
+		return segmentExecutor;
+	}
+
+	/**
+	 * @return <code>true</code> when large files are read in segments.
+	 */
+	public boolean isSegmentedDownloadEnabled() {
+		return segmentSize > 0 && segmentParallelism > 1 && supportsSegments();
+	}
+
+	/**
+	 * @param size
+	 *            Size of a file, -1 when unknown.
+	 * @return <code>true</code> when a file of this size is read in segments.
+	 */
+	public boolean isSegmentedDownload(long size) {
+		return isSegmentedDownloadEnabled() && size > segmentSize;
+	}
+
+	/**
+	 * @return <code>true</code> when broken transfers are resumed.
+	 */
+	public boolean isResuming() {
+		return resumeAttempts > 0 && supportsSegments();
+	}
+
+	/**
+	 * @return <code>true</code> when reading from an offset results in the
+	 *         same bytes as the complete file at that position.
+	 */
+	protected boolean supportsSegments() {
+		return true;
+	}
+
+	/**
+	 * Run an action on a connection from the pool.
+	 *
+	 * @param action
+	 *            Gets the connection.
+	 * @throws IOException
+	 *             When no connection is available.
+	 */
+	public void runWithClient(Consumer<ClientWrapper> action) throws IOException {
+		GenericObjectPool<ClientWrapper> p;
+		ClientWrapper wrapper;
+		try {
+			p = getPool();
+			wrapper = p.borrowObject();
+		} catch (Exception e) {
+			throw new IOException("No connection for " + port + "@" + host, e);
+		}
+		try {
+			action.accept(wrapper);
+		} finally {
+			releaseClient(p, wrapper);
+		}
+	}
+
+	/**
+	 * Run an action on a connection from the pool, in a directory. Completion
+	 * actions work in the current directory, so they need this when they don't
+	 * run on the connection of the download.
+	 *
+	 * @param directory
+	 *            Directory on remote system. When it can't be changed into,
+	 *            the action is skipped.
+	 * @param action
+	 *            Gets the connection.
 	 * @throws IOException
+	 *             When no connection is available.
+	 */
+	public void runInDirectory(final String directory, final Consumer<ClientWrapper> action) throws IOException {
+		runWithClient(new Consumer<ClientWrapper>() {
+			@Override
+			public void accept(ClientWrapper wrapper) {
+				try {
+					wrapper.changeWorkingDirectory(directory, false);
+				} catch (IOException e) {
+					LOGGER.warn("Can't change to " + directory + ", action not done", e);
+					return;
+				}
+				action.accept(wrapper);
+			}
+		});
+	}
+
+	/**
+	 * Delete a remote file.
+	 *
+	 * @param directory
+	 *            Directory on remote system.
+	 * @param filename
+	 *            File name on remote system.
+	 * @throws Exception
 	 *            When communication with server fails.
 	 */
-	public void delete(String directory, String filename) throws IOException {
-		clientWrapper.delete(directory, filename);
+	public void delete(String directory, String filename) throws Exception {
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		try {
+			wrapper.delete(directory, filename);
+		} finally {
+			releaseClient(p, wrapper);
+		}
 	}
 
 	public List<RemoteFile> list(String directory) throws Exception {
-		return clientWrapper.list(directory);
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			List<RemoteFile> result = wrapper.list(directory);
+			success = true;
+			return result;
+		} finally {
+			metrics.record(Operation.LIST, start, success);
+			releaseClient(p, wrapper);
+		}
+	}
+
+	/**
+	 * List a directory, only the entries accepted by <code>filter</code> are
+	 * kept in memory.
+	 *
+	 * @param directory
+	 *            Directory on remote system.
+	 * @param filter
+	 *            Filter applied while the listing arrives.
+	 * @param consumer
+	 *            Gets the accepted entries.
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public void list(String directory, Predicate<RemoteFile> filter, Consumer<RemoteFile> consumer) throws Exception {
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			wrapper.list(directory, filter, consumer);
+			success = true;
+		} finally {
+			metrics.record(Operation.LIST, start, success);
+			releaseClient(p, wrapper);
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            Directory on remote system.
+	 * @param filter
+	 *            Filter applied while iterating.
+	 * @return Iterator over the accepted entries.
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public Iterator<RemoteFile> listIterator(String directory, Predicate<RemoteFile> filter) throws Exception {
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Iterator<RemoteFile> result = wrapper.listIterator(directory, filter);
+			success = true;
+			return result;
+		} finally {
+			metrics.record(Operation.LIST, start, success);
+			releaseClient(p, wrapper);
+		}
+	}
+
+	/**
+	 * @param directory
+	 *            Directory on remote system.
+	 * @param filename
+	 *            File name on remote system.
+	 * @return The file, <code>null</code> when it does not exist.
+	 * @throws Exception
+	 *             Anything wrong in low level ftp/sftp libraries.
+	 */
+	public RemoteFile stat(String directory, String filename) throws Exception {
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			RemoteFile result = wrapper.stat(directory, filename);
+			success = true;
+			return result;
+		} finally {
+			metrics.record(Operation.STAT, start, success);
+			releaseClient(p, wrapper);
+		}
 	}
 
 	public void rename(String originalDirectory, String originalFilename, String newFilename) throws Exception {
-		clientWrapper.changeWorkingDirectory(originalDirectory, false);
-		String toCompletePath = ClientWrapper.normalize(newFilename);
-		clientWrapper.move(originalFilename, toCompletePath);
+		GenericObjectPool<ClientWrapper> p = getPool();
+		ClientWrapper wrapper = p.borrowObject();
+		try {
+			wrapper.changeWorkingDirectory(originalDirectory, false);
+			String toCompletePath = ClientWrapper.normalize(newFilename);
+			wrapper.move(originalFilename, toCompletePath);
+		} finally {
+			releaseClient(p, wrapper);
+		}
 	}
 
 	public static String createCompletePath(String directory, String filename) {
@@ -180,4 +836,163 @@ public abstract class AbstractConfig {
 	public void setTimeout(int timeout) {
 		this.timeout = timeout;
 	}
+
+	public boolean isUseFullPaths() {
+		return useFullPaths;
+	}
+
+	public void setUseFullPaths(boolean useFullPaths) {
+		this.useFullPaths = useFullPaths;
+	}
+
+	public long getSegmentSize() {
+		return segmentSize;
+	}
+
+	public void setSegmentSize(long segmentSize) {
+		this.segmentSize = segmentSize;
+	}
+
+	public int getSegmentParallelism() {
+		return segmentParallelism;
+	}
+
+	public void setSegmentParallelism(int segmentParallelism) {
+		this.segmentParallelism = segmentParallelism;
+	}
+
+	public int getResumeAttempts() {
+		return resumeAttempts;
+	}
+
+	public void setResumeAttempts(int resumeAttempts) {
+		this.resumeAttempts = resumeAttempts;
+	}
+
+	public int getResumeBufferSize() {
+		return resumeBufferSize;
+	}
+
+	public void setResumeBufferSize(int resumeBufferSize) {
+		this.resumeBufferSize = resumeBufferSize;
+	}
+
+	public long getInMemoryThreshold() {
+		return inMemoryThreshold;
+	}
+
+	public void setInMemoryThreshold(long inMemoryThreshold) {
+		this.inMemoryThreshold = inMemoryThreshold;
+	}
+
+	/**
+	 * @return Metrics of this configuration, also available as MBean.
+	 */
+	public ConnectorMetrics getMetrics() {
+		return metrics;
+	}
+
+	public int getCopyBufferSize() {
+		return copyBufferSize;
+	}
+
+	public void setCopyBufferSize(int copyBufferSize) {
+		this.copyBufferSize = copyBufferSize;
+	}
+
+	public boolean isRegisterMetrics() {
+		return registerMetrics;
+	}
+
+	public void setRegisterMetrics(boolean registerMetrics) {
+		this.registerMetrics = registerMetrics;
+	}
+
+	public int getCompletionThreads() {
+		return completionThreads;
+	}
+
+	public void setCompletionThreads(int completionThreads) {
+		this.completionThreads = completionThreads;
+	}
+
+	public int getCompletionQueueSize() {
+		return completionQueueSize;
+	}
+
+	public void setCompletionQueueSize(int completionQueueSize) {
+		this.completionQueueSize = completionQueueSize;
+	}
+
+	public long getCompletionShutdownTimeout() {
+		return completionShutdownTimeout;
+	}
+
+	public void setCompletionShutdownTimeout(long completionShutdownTimeout) {
+		this.completionShutdownTimeout = completionShutdownTimeout;
+	}
+
+	public int getDirectoryCacheSize() {
+		return directoryCacheSize;
+	}
+
+	public void setDirectoryCacheSize(int directoryCacheSize) {
+		this.directoryCacheSize = directoryCacheSize;
+	}
+
+	public int getPoolMaxActive() {
+		return poolMaxActive;
+	}
+
+	public void setPoolMaxActive(int poolMaxActive) {
+		this.poolMaxActive = poolMaxActive;
+	}
+
+	public int getPoolMaxIdle() {
+		return poolMaxIdle;
+	}
+
+	public void setPoolMaxIdle(int poolMaxIdle) {
+		this.poolMaxIdle = poolMaxIdle;
+	}
+
+	public int getPoolMinIdle() {
+		return poolMinIdle;
+	}
+
+	public void setPoolMinIdle(int poolMinIdle) {
+		this.poolMinIdle = poolMinIdle;
+	}
+
+	public long getPoolMaxWait() {
+		return poolMaxWait;
+	}
+
+	public void setPoolMaxWait(long poolMaxWait) {
+		this.poolMaxWait = poolMaxWait;
+	}
+
+	public boolean isPoolTestOnBorrow() {
+		return poolTestOnBorrow;
+	}
+
+	public void setPoolTestOnBorrow(boolean poolTestOnBorrow) {
+		this.poolTestOnBorrow = poolTestOnBorrow;
+	}
+
+	public long getPoolTimeBetweenEvictionRuns() {
+		return poolTimeBetweenEvictionRuns;
+	}
+
+	public void setPoolTimeBetweenEvictionRuns(long poolTimeBetweenEvictionRuns) {
+		this.poolTimeBetweenEvictionRuns = poolTimeBetweenEvictionRuns;
+	}
+
+	public long getPoolMinEvictableIdleTime() {
+		return poolMinEvictableIdleTime;
+	}
+
+	public void setPoolMinEvictableIdleTime(long poolMinEvictableIdleTime) {
+		this.poolMinEvictableIdleTime = poolMinEvictableIdleTime;
+	}
 }
@@ -2,6 +2,7 @@ package org.mule.modules.ftpclient.config;
 
 import java.io.IOException;
 import java.net.UnknownHostException;
+import java.util.zip.Deflater;
 
 import org.apache.commons.net.ftp.FTP;
 import org.apache.commons.net.ftp.FTPClient;
@@ -12,10 +13,13 @@ import org.mule.api.annotations.Configurable;
 import org.mule.api.annotations.Connect;
 import org.mule.api.annotations.TestConnectivity;
 import org.mule.api.annotations.components.ConnectionManagement;
+import org.mule.api.annotations.display.FriendlyName;
 import org.mule.api.annotations.display.Password;
 import org.mule.api.annotations.display.Placement;
 import org.mule.api.annotations.param.ConnectionKey;
 import org.mule.api.annotations.param.Default;
+import org.mule.api.annotations.param.Optional;
+import org.mule.modules.ftpclient.ClientWrapper;
 import org.mule.modules.ftpclient.ftp.FtpClientWrapper;
 
 @ConnectionManagement(configElementName = "ftp-config", friendlyName = "Ftp Configuration")
@@ -35,14 +39,92 @@ public class FtpConfig extends AbstractConfig {
 	@Default("true")
 	private boolean passiveMode = true;
 
+	@Configurable
+	@Placement(order = 3, group = "Parameters")
+	@Default("Auto")
+	@FriendlyName("Listing Mode")
+	private ListingMode listingMode = ListingMode.Auto;
+
+	@Configurable
+	@Placement(order = 2, group = "Network Tuning")
+	@Optional
+	@Default("Manual")
+	@FriendlyName("Tuning Profile")
+	private TuningProfile tuningProfile = TuningProfile.Manual;
+
+	@Configurable
+	@Placement(order = 3, group = "Network Tuning")
+	@Optional
+	@Default("100")
+	@FriendlyName("Link Speed for RoundTrip Profile (Mbit/s)")
+	private int linkSpeed = 100;
+
+	@Configurable
+	@Placement(order = 4, group = "Network Tuning")
+	@Optional
+	@Default("0")
+	@FriendlyName("Stream Buffer Size (bytes)")
+	private int bufferSize = 0;
+
+	@Configurable
+	@Placement(order = 5, group = "Network Tuning")
+	@Optional
+	@Default("0")
+	@FriendlyName("Data Socket Send Buffer (bytes)")
+	private int sendBufferSize = 0;
+
+	@Configurable
+	@Placement(order = 6, group = "Network Tuning")
+	@Optional
+	@Default("0")
+	@FriendlyName("Data Socket Receive Buffer (bytes)")
+	private int receiveBufferSize = 0;
+
+	@Configurable
+	@Placement(order = 7, group = "Network Tuning")
+	@Optional
+	@Default("false")
+	@FriendlyName("TCP_NODELAY on Control Connection")
+	private boolean tcpNoDelay = false;
+
+	@Configurable
+	@Placement(order = 1, group = "Compression")
+	@Optional
+	@Default("Never")
+	@FriendlyName("Deflate Transfers (MODE Z)")
+	private ModeZ modeZ = ModeZ.Never;
+
+	@Configurable
+	@Placement(order = 2, group = "Compression")
+	@Optional
+	@Default("6")
+	@FriendlyName("Compression Level (0-9)")
+	private int modeZLevel = 6;
+
+	private static final int MIN_TUNED_BUFFER = 64 * 1024;
+	private static final int MAX_TUNED_BUFFER = 16 * 1024 * 1024;
+	private static final int MAX_TUNED_STREAM_BUFFER = 1024 * 1024;
+	private static final int RTT_SAMPLES = 3;
+
 	@Connect
 	public void connect(@SuppressWarnings("hiding") @Placement(order = 1, group = "Connection") @ConnectionKey String user) throws ConnectionException {
 		LOGGER.debug("connect, host={}, port={}, user={}", host, port, user);
+		if (modeZLevel < Deflater.NO_COMPRESSION || modeZLevel > Deflater.BEST_COMPRESSION) {
+			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Compression Level must be 0 to 9, not " + modeZLevel);
+		}
 		this.user = user;
+		createPool();
+	}
+
+	@Override
+	protected ClientWrapper createClientWrapper() throws ConnectionException {
 		FTPClient client = null;
+		boolean useMlsd = false;
+		int deflateLevel = -1;
 		boolean ready = false;
 		try {
 			client = createConnectedClient();
+			tune(client);
 			switch (transferMode) {
 			case Ascii:
 				client.setFileType(FTP.ASCII_FILE_TYPE);
@@ -57,6 +139,8 @@ public class FtpConfig extends AbstractConfig {
 			} else {
 				client.enterLocalActiveMode();
 			}
+			useMlsd = useMlsd(client);
+			deflateLevel = deflateLevel(client);
 			ready = true;
 		} catch (IOException e) {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), "Could not login to ftp server", e);
@@ -70,7 +154,116 @@ public class FtpConfig extends AbstractConfig {
 			}
 		}
 
-		clientWrapper = new FtpClientWrapper(client);
+		FtpClientWrapper wrapper = new FtpClientWrapper(client, useMlsd);
+		wrapper.setDeflateLevel(deflateLevel);
+		return wrapper;
+	}
+
+	/**
+	 * Offsets are counted in bytes on the server, ascii mode may change the
+	 * length of lines.
+	 */
+	@Override
+	protected boolean supportsSegments() {
+		return transferMode == TransferMode.Binary;
+	}
+
+	/**
+	 * Apply the buffer sizes to the client, the data sockets get them when
+	 * they are created. Explicit values win over the RoundTrip profile.
+	 */
+	void tune(FTPClient client) throws IOException {
+		int socketBuffer = 0;
+		int streamBuffer = bufferSize;
+		if (tuningProfile == TuningProfile.RoundTrip) {
+			long rtt = measureRoundTrip(client);
+			socketBuffer = roundTripBufferSize(rtt, linkSpeed);
+			LOGGER.debug("Round trip to {}: {} us, socket buffers {} bytes", host, rtt / 1000, socketBuffer);
+			if (streamBuffer <= 0) {
+				streamBuffer = Math.min(socketBuffer, MAX_TUNED_STREAM_BUFFER);
+			}
+		}
+		int send = sendBufferSize > 0 ? sendBufferSize : socketBuffer;
+		int receive = receiveBufferSize > 0 ? receiveBufferSize : socketBuffer;
+		if (send > 0) {
+			client.setSendDataSocketBufferSize(send);
+		}
+		if (receive > 0) {
+			client.setReceieveDataSocketBufferSize(receive);
+		}
+		if (streamBuffer > 0) {
+			client.setBufferSize(streamBuffer);
+		}
+	}
+
+	/**
+	 * @return Shortest time for a NOOP on the control connection in
+	 *         nanoseconds.
+	 */
+	private static long measureRoundTrip(FTPClient client) throws IOException {
+		long min = Long.MAX_VALUE;
+		for (int i = 0; i < RTT_SAMPLES; i++) {
+			long start = System.nanoTime();
+			client.noop();
+			min = Math.min(min, System.nanoTime() - start);
+		}
+		return min;
+	}
+
+	/**
+	 * @param rttNanos
+	 *            Round trip time in nanoseconds.
+	 * @param linkSpeedMbit
+	 *            Configured speed of the link in Mbit/s.
+	 * @return Bandwidth-delay product in bytes, limited to 64 KB to 16 MB.
+	 */
+	static int roundTripBufferSize(long rttNanos, int linkSpeedMbit) {
+		double bytes = linkSpeedMbit * 1_000_000.0 / 8 * rttNanos / 1e9;
+		return (int) Math.max(MIN_TUNED_BUFFER, Math.min(MAX_TUNED_BUFFER, bytes));
+	}
+
+	private boolean useMlsd(FTPClient client) throws IOException {
+		switch (listingMode) {
+		case Mlsd:
+			return true;
+		case List:
+			return false;
+		case Auto:
+		default:
+			// MLST in FEAT reply implies support for MLSD (RFC 3659)
+			boolean mlst = client.hasFeature("MLST");
+			LOGGER.debug("MLST/MLSD supported by {}: {}", host, mlst);
+			return mlst;
+		}
+	}
+
+	/**
+	 * @return Compression level for MODE Z, -1 when not used.
+	 */
+	private int deflateLevel(FTPClient client) throws IOException {
+		switch (modeZ) {
+		case Never:
+			return -1;
+		case Auto:
+			if (!client.hasFeature("MODE", "Z")) {
+				LOGGER.debug("MODE Z not supported by {}", host);
+				return -1;
+			}
+			break;
+		case Always:
+		default:
+			break;
+		}
+		if (transferMode != TransferMode.Binary) {
+			// commons-net would convert line ends of the compressed data
+			LOGGER.warn("MODE Z needs transfer mode Binary, {} stays uncompressed", host);
+			return -1;
+		}
+		// Level of the server for downloads, optional
+		if (!FTPReply.isPositiveCompletion(client.sendCommand("OPTS", "MODE Z LEVEL " + modeZLevel))) {
+			LOGGER.debug("OPTS MODE Z LEVEL rejected by {}: {}", host, client.getReplyString());
+		}
+		return modeZLevel;
 	}
 
 	@TestConnectivity
@@ -99,6 +292,9 @@ public class FtpConfig extends AbstractConfig {
 		try {
 			client.connect(host, port);
 			client.setDataTimeout(timeout);
+			if (tcpNoDelay) {
+				client.setTcpNoDelay(true);
+			}
 		} catch (UnknownHostException e) {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN_HOST, "", "Unknown host: " + host);
 		} catch (IOException e) {
@@ -143,4 +339,76 @@ public class FtpConfig extends AbstractConfig {
 	public void setPassiveMode(boolean passiveMode) {
 		this.passiveMode = passiveMode;
 	}
+
+	public ListingMode getListingMode() {
+		return listingMode;
+	}
+
+	public void setListingMode(ListingMode listingMode) {
+		this.listingMode = listingMode;
+	}
+
+	public ModeZ getModeZ() {
+		return modeZ;
+	}
+
+	public void setModeZ(ModeZ modeZ) {
+		this.modeZ = modeZ;
+	}
+
+	public int getModeZLevel() {
+		return modeZLevel;
+	}
+
+	public void setModeZLevel(int modeZLevel) {
+		this.modeZLevel = modeZLevel;
+	}
+
+	public TuningProfile getTuningProfile() {
+		return tuningProfile;
+	}
+
+	public void setTuningProfile(TuningProfile tuningProfile) {
+		this.tuningProfile = tuningProfile;
+	}
+
+	public int getLinkSpeed() {
+		return linkSpeed;
+	}
+
+	public void setLinkSpeed(int linkSpeed) {
+		this.linkSpeed = linkSpeed;
+	}
+
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	public void setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+	}
+
+	public int getSendBufferSize() {
+		return sendBufferSize;
+	}
+
+	public void setSendBufferSize(int sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+	}
+
+	public int getReceiveBufferSize() {
+		return receiveBufferSize;
+	}
+
+	public void setReceiveBufferSize(int receiveBufferSize) {
+		this.receiveBufferSize = receiveBufferSize;
+	}
+
+	public boolean isTcpNoDelay() {
+		return tcpNoDelay;
+	}
+
+	public void setTcpNoDelay(boolean tcpNoDelay) {
+		this.tcpNoDelay = tcpNoDelay;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package org.mule.modules.ftpclient.config;
+
+/**
+ * Ftp command used for directory listings: Auto uses MLSD when the server
+ * announces MLST in its FEAT reply, LIST otherwise.
+ */
+public enum ListingMode {
+    Auto, List, Mlsd;
+}
@@ -0,0 +1,9 @@
+package org.mule.modules.ftpclient.config;
+
+/**
+ * Deflate compression of ftp transfers (MODE Z): Auto uses it when the server
+ * announces MODE Z in its FEAT reply, Always skips the FEAT check.
+ */
+public enum ModeZ {
+    Never, Auto, Always;
+}
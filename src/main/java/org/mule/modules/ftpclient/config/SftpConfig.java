@@ -1,5 +1,11 @@
 package org.mule.modules.ftpclient.config;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
 import org.apache.commons.lang3.StringUtils;
 import org.mule.api.ConnectionException;
 import org.mule.api.ConnectionExceptionCode;
@@ -11,14 +17,20 @@ import org.mule.api.annotations.display.FriendlyName;
 import org.mule.api.annotations.display.Password;
 import org.mule.api.annotations.display.Placement;
 import org.mule.api.annotations.param.ConnectionKey;
+import org.mule.api.annotations.param.Default;
 import org.mule.api.annotations.param.Optional;
+import org.mule.modules.ftpclient.ClientWrapper;
+import org.mule.modules.ftpclient.sftp.AdaptiveBulkRequests;
+import org.mule.modules.ftpclient.sftp.ChannelTuning;
 import org.mule.modules.ftpclient.sftp.SftpClientWrapper;
+import org.mule.modules.ftpclient.sftp.SharedSession;
 import org.mule.modules.ftpclient.sftp.UnrestrictedCryptographyEnabler;
 
 import com.jcraft.jsch.Channel;
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
 
 @ConnectionManagement(configElementName = "sftp-config", friendlyName = "Sftp Configuration")
 public class SftpConfig extends AbstractConfig {
@@ -54,8 +66,83 @@ public class SftpConfig extends AbstractConfig {
 	@FriendlyName("Passphrase")
 	private String passphrase;
 
+	@Configurable
+	@Optional
+	@Default("false")
+	@Placement(order = 1, group = "Session Sharing")
+	@FriendlyName("Share Session")
+	private boolean shareSession = false;
+
+	@Configurable
+	@Optional
+	@Default("10")
+	@Placement(order = 2, group = "Session Sharing")
+	@FriendlyName("Max Channels per Session")
+	private int maxChannelsPerSession = 10;
+
+	@Configurable
+	@Optional
+	@Default("0")
+	@Placement(order = 2, group = "Network Tuning")
+	@FriendlyName("Requests in Flight")
+	private int bulkRequests = 0;
+
+	@Configurable
+	@Optional
+	@Default("false")
+	@Placement(order = 3, group = "Network Tuning")
+	@FriendlyName("Adaptive Requests in Flight")
+	private boolean adaptiveBulkRequests = false;
+
+	@Configurable
+	@Optional
+	@Default("0")
+	@Placement(order = 4, group = "Network Tuning")
+	@FriendlyName("Window Size (bytes)")
+	private int windowSize = 0;
+
+	@Configurable
+	@Optional
+	@Default("0")
+	@Placement(order = 5, group = "Network Tuning")
+	@FriendlyName("Max Packet Size (bytes)")
+	private int packetSize = 0;
+
+	@Configurable
+	@Optional
+	@Default("None")
+	@Placement(order = 1, group = "Compression")
+	@FriendlyName("Compression")
+	private SshCompression compression = SshCompression.None;
+
+	@Configurable
+	@Optional
+	@Default("6")
+	@Placement(order = 2, group = "Compression")
+	@FriendlyName("Compression Level (1-9)")
+	private int compressionLevel = 6;
+
+	@Configurable
+	@Optional
+	@Default("true")
+	@Placement(order = 3, group = "Compression")
+	@FriendlyName("Send Compressed Files Uncompressed")
+	private boolean compressionBypass = true;
+
+	/** Default of JSch */
+	private static final int DEFAULT_BULK_REQUESTS = 16;
+	private static final int MAX_ADAPTIVE_BULK_REQUESTS = 128;
+	/** Room for the maximum of requests in flight with 32 KB each */
+	private static final int ADAPTIVE_WINDOW_SIZE = MAX_ADAPTIVE_BULK_REQUESTS * 32 * 1024;
+
 	private JSch jsch = new JSch();
 
+	private final List<SharedSession> sessions = new ArrayList<>();
+	// uncompressed sessions for the compression bypass
+	private final List<SharedSession> bypassSessions = new ArrayList<>();
+
+	private AdaptiveBulkRequests adaptive;
+
 	public SftpConfig() {
 		UnrestrictedCryptographyEnabler.enable();
 	}
@@ -67,18 +154,167 @@ public class SftpConfig extends AbstractConfig {
 		if (StringUtils.isNotEmpty(identityFile) && StringUtils.isNotEmpty(identityResource)) {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Don't specifiy Identity File and Identity Classpath Resource");
 		}
-		ChannelSftp channel;
-		if (StringUtils.isNotBlank(identityFile) || StringUtils.isNotBlank(identityResource)) {
-			channel = SftpClientWrapper.createChannel(jsch, host, port, timeout, knownHostsFile, user, identityFile, identityResource, passphrase);
-		} else {
-			channel = SftpClientWrapper.createChannel(jsch, host, port, timeout, knownHostsFile, user, password);
+		if (hasIdentity()) {
+			SftpClientWrapper.addIdentity(jsch, identityFile, identityResource, passphrase);
 		}
 		try {
-			channel.connect();
+			createPool();
+		} catch (ConnectionException e) {
+			releaseResources();
+			throw e;
+		}
+	}
+
+	/**
+	 * The identity has been added once on connect, it is kept in memory by
+	 * JSch until here. Shared sessions are forgotten, so a new connect starts
+	 * with new ones.
+	 */
+	@Override
+	protected void releaseResources() {
+		// Each session is disconnected when its last channel is released
+		synchronized (sessions) {
+			sessions.clear();
+		}
+		synchronized (bypassSessions) {
+			bypassSessions.clear();
+		}
+		try {
+			jsch.removeAllIdentity();
+		} catch (JSchException e) {
+			LOGGER.debug("ignore exception on cleanup", e);
+		}
+	}
+
+	@Override
+	protected ClientWrapper createClientWrapper() throws ConnectionException {
+		if (shareSession) {
+			return tune(createWrapperOnSharedSession(sessions, isCompressed()));
+		}
+		ChannelSftp channel = newChannel(isCompressed());
+		try {
+			connect(channel);
 		} catch (JSchException e) {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), e.getMessage(), e);
 		}
-		clientWrapper = new SftpClientWrapper(channel);
+		return tune(new SftpClientWrapper(channel));
+	}
+
+	private SftpClientWrapper createWrapperOnSharedSession(List<SharedSession> list, boolean compressed)
+			throws ConnectionException {
+		SharedSession session = reserveSharedSession(list, compressed);
+		try {
+			ChannelSftp channel = session.openChannel();
+			connect(channel);
+			return new SftpClientWrapper(channel, session);
+		} catch (JSchException e) {
+			session.release();
+			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Window and packet size are sent when the channel is opened, the number
+	 * of requests in flight can be changed later.
+	 */
+	private void connect(ChannelSftp channel) throws JSchException {
+		int window = windowSize;
+		if (window <= 0 && adaptiveBulkRequests) {
+			window = ADAPTIVE_WINDOW_SIZE;
+		}
+		ChannelTuning.apply(channel, window, packetSize);
+		channel.connect();
+		if (bulkRequests > 0) {
+			channel.setBulkRequests(bulkRequests);
+		}
+	}
+
+	private boolean hasIdentity() {
+		return StringUtils.isNotBlank(identityFile) || StringUtils.isNotBlank(identityResource);
+	}
+
+	private boolean isCompressed() {
+		return compression != SshCompression.None;
+	}
+
+	/**
+	 * @return A channel on a new session, not connected yet.
+	 */
+	private ChannelSftp newChannel(boolean compressed) throws ConnectionException {
+		return SftpClientWrapper.createChannel(jsch, host, port, timeout, knownHostsFile, user, sessionPassword(), sessionConfig(compressed));
+	}
+
+	/**
+	 * @return <code>null</code> when the identity is used.
+	 */
+	private String sessionPassword() {
+		return hasIdentity() ? null : password;
+	}
+
+	/**
+	 * Uncompressed is always offered, too, so servers without compression
+	 * still work.
+	 */
+	private Properties sessionConfig(boolean compressed) {
+		Properties props = new Properties();
+		if (compressed) {
+			String algorithms = compression == SshCompression.Zlib ? "zlib,none" : "zlib@openssh.com,none";
+			props.put("compression.s2c", algorithms);
+			props.put("compression.c2s", algorithms);
+			props.put("compression_level", Integer.toString(compressionLevel));
+		}
+		return props;
+	}
+
+	private SftpClientWrapper tune(SftpClientWrapper wrapper) {
+		if (adaptiveBulkRequests) {
+			synchronized (this) {
+				if (adaptive == null) {
+					adaptive = new AdaptiveBulkRequests(bulkRequests > 0 ? bulkRequests : DEFAULT_BULK_REQUESTS,
+							MAX_ADAPTIVE_BULK_REQUESTS);
+				}
+			}
+			wrapper.setAdaptiveBulkRequests(adaptive);
+		}
+		if (isCompressed() && compressionBypass) {
+			wrapper.setBypassFactory(new Callable<SftpClientWrapper>() {
+				@Override
+				public SftpClientWrapper call() throws ConnectionException {
+					return createWrapperOnSharedSession(bypassSessions, false);
+				}
+			});
+		}
+		return wrapper;
+	}
+
+	/**
+	 * A new session is connected outside of the lock, so other connections
+	 * don't wait for the handshake. Two sessions may be created at the same
+	 * time then, both are used.
+	 */
+	private SharedSession reserveSharedSession(List<SharedSession> list, boolean compressed) throws ConnectionException {
+		synchronized (list) {
+			Iterator<SharedSession> iter = list.iterator();
+			while (iter.hasNext()) {
+				SharedSession session = iter.next();
+				if (session.tryReserve(maxChannelsPerSession)) {
+					return session;
+				}
+				if (!session.isConnected()) {
+					iter.remove();
+				}
+			}
+		}
+		Session jschSession = SftpClientWrapper.createSession(jsch, host, port, timeout, knownHostsFile, user, sessionPassword(),
+				sessionConfig(compressed));
+		SharedSession session = new SharedSession(jschSession);
+		session.tryReserve(maxChannelsPerSession);
+		synchronized (list) {
+			list.add(session);
+			LOGGER.debug("new shared session, host={}, port={}, user={}, compressed={}, sessions={}", host, port, user,
+					compressed, list.size());
+		}
+		return session;
 	}
 
 	@TestConnectivity
@@ -87,17 +323,17 @@ public class SftpConfig extends AbstractConfig {
 		if (StringUtils.isNotEmpty(identityFile) && StringUtils.isNotEmpty(identityResource)) {
 			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Don't specifiy Identity File and Identity Classpath Resource");
 		}
+		if (hasIdentity()) {
+			SftpClientWrapper.addIdentity(jsch, identityFile, identityResource, passphrase);
+		}
 		try {
-			Channel channel;
-			if (StringUtils.isNotBlank(identityFile) || StringUtils.isNotBlank(identityResource)) {
-				channel = SftpClientWrapper.createChannel(jsch, host, port, timeout, knownHostsFile, user, identityFile, identityResource, passphrase);
-			} else {
-				channel = SftpClientWrapper.createChannel(jsch, host, port, timeout, knownHostsFile, user, password);
-			}
+			Channel channel = newChannel(isCompressed());
 			channel.connect();
 			channel.disconnect();
 		} catch (JSchException e) {
 			SftpClientWrapper.translateException(e, host, port, user);
+		} finally {
+			releaseResources();
 		}
 	}
 
@@ -140,4 +376,86 @@ public class SftpConfig extends AbstractConfig {
 	public void setPassphrase(String passphrase) {
 		this.passphrase = passphrase;
 	}
+
+	public boolean isShareSession() {
+		return shareSession;
+	}
+
+	public void setShareSession(boolean shareSession) {
+		this.shareSession = shareSession;
+	}
+
+	public int getMaxChannelsPerSession() {
+		return maxChannelsPerSession;
+	}
+
+	public void setMaxChannelsPerSession(int maxChannelsPerSession) {
+		this.maxChannelsPerSession = maxChannelsPerSession;
+	}
+
+	/**
+	 * @return Number of shared sessions currently known (including ones which
+	 *         have been disconnected but not yet removed).
+	 */
+	public int getSharedSessionCount() {
+		synchronized (sessions) {
+			return sessions.size();
+		}
+	}
+
+	public int getBulkRequests() {
+		return bulkRequests;
+	}
+
+	public void setBulkRequests(int bulkRequests) {
+		this.bulkRequests = bulkRequests;
+	}
+
+	public boolean isAdaptiveBulkRequests() {
+		return adaptiveBulkRequests;
+	}
+
+	public void setAdaptiveBulkRequests(boolean adaptiveBulkRequests) {
+		this.adaptiveBulkRequests = adaptiveBulkRequests;
+	}
+
+	public int getWindowSize() {
+		return windowSize;
+	}
+
+	public void setWindowSize(int windowSize) {
+		this.windowSize = windowSize;
+	}
+
+	public int getPacketSize() {
+		return packetSize;
+	}
+
+	public void setPacketSize(int packetSize) {
+		this.packetSize = packetSize;
+	}
+
+	public SshCompression getCompression() {
+		return compression;
+	}
+
+	public void setCompression(SshCompression compression) {
+		this.compression = compression;
+	}
+
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	public void setCompressionLevel(int compressionLevel) {
+		this.compressionLevel = compressionLevel;
+	}
+
+	public boolean isCompressionBypass() {
+		return compressionBypass;
+	}
+
+	public void setCompressionBypass(boolean compressionBypass) {
+		this.compressionBypass = compressionBypass;
+	}
 }
@@ -0,0 +1,10 @@
+package org.mule.modules.ftpclient.config;
+
+/**
+ * Compression of the ssh connection: Zlib compresses from the start, ZlibOpenssh
+ * (zlib@openssh.com) after authentication, which is the only one enabled by
+ * default in OpenSSH servers.
+ */
+public enum SshCompression {
+    None, Zlib, ZlibOpenssh;
+}
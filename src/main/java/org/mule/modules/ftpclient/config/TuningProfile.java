@@ -0,0 +1,11 @@
+package org.mule.modules.ftpclient.config;
+
+/**
+ * Socket buffer sizes: Manual uses the configured values (0 for the system
+ * default), RoundTrip measures the round trip time when connecting and sizes
+ * the buffers for the configured link speed, which is not measured.
+ * Configured values win over RoundTrip.
+ */
+public enum TuningProfile {
+    Manual, RoundTrip;
+}
@@ -1,16 +1,23 @@
 package org.mule.modules.ftpclient.ftp;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 import org.apache.commons.net.ftp.FTPClient;
 import org.apache.commons.net.ftp.FTPFile;
+import org.apache.commons.net.ftp.FTPListParseEngine;
 import org.apache.commons.net.ftp.FTPReply;
 import org.apache.log4j.Logger;
 import org.mule.model.streaming.CallbackOutputStream;
@@ -23,10 +30,27 @@ import org.mule.modules.ftpclient.RemoteFile;
 public class FtpClientWrapper extends ClientWrapper {
     private static Logger logger = Logger.getLogger(FtpClientWrapper.class);
 
+    private static final int INFLATER_BUFFER_SIZE = 64 * 1024;
+
     private FTPClient client;
+    private boolean useMlsd;
+    private int deflateLevel = -1;
+    private boolean deflateMode;
 
     public FtpClientWrapper(FTPClient client) {
+        this(client, false);
+    }
+
+    /**
+     * @param client
+     *            Connected client.
+     * @param useMlsd
+     *            Use MLSD for listings and MLST for single files instead of
+     *            LIST (server must support it).
+     */
+    public FtpClientWrapper(FTPClient client, boolean useMlsd) {
         this.client = client;
+        this.useMlsd = useMlsd;
     }
 
     @Override
@@ -51,11 +75,53 @@ public class FtpClientWrapper extends ClientWrapper {
     }
 
     @Override
-    public OutputStream getOutputStream(String directory, String filename) throws IOException {
-        changeWorkingDirectory(directory, true);
+    public boolean isConnected() {
+        return client.isConnected();
+    }
+
+    /**
+     * @param deflateLevel
+     *            Compression level (0-9) of uploads with MODE Z, -1 for
+     *            uncompressed transfers. The server must support MODE Z.
+     */
+    public void setDeflateLevel(int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    @Override
+    public OutputStream getOutputStream(String directory, String filename, boolean append) throws IOException {
+        OutputStream out = null;
+        boolean deflate = deflateLevel >= 0;
+        try {
+            switchMode(deflate);
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
+        String path = path(directory, filename);
+        if (path != null) {
+            try {
+                out = append ? client.appendFileStream(path) : client.storeFileStream(path);
+            } catch (IOException | RuntimeException e) {
+                throw invalidate(e);
+            }
+            if (out == null) {
+                // Directory may be missing, don't give up paths
+                logger.debug("STOR " + path + " failed: " + client.getReplyString());
+                forgetDirectory(directory);
+            } else {
+                rememberDirectory(directory);
+            }
+        }
+        if (out == null) {
+            changeWorkingDirectory(directory, true);
+        }
         try {
-            OutputStream out;
-            out = openUnwrappedOutputStream(filename);
+            if (out == null) {
+                out = openUnwrappedOutputStream(filename, append);
+            }
+            if (deflate) {
+                out = deflating(out, deflateLevel);
+            }
 
             return new CallbackOutputStream(out, new CallbackOutputStream.Callback() {
                 boolean closed = false;
@@ -73,8 +139,8 @@ public class FtpClientWrapper extends ClientWrapper {
         }
     }
 
-    private OutputStream openUnwrappedOutputStream(String filename) throws IOException {
-        OutputStream out = client.storeFileStream(filename);
+    private OutputStream openUnwrappedOutputStream(String filename, boolean append) throws IOException {
+        OutputStream out = append ? client.appendFileStream(filename) : client.storeFileStream(filename);
         if (out == null) {
             throw new IOException("FTP operation failed: " + client.getReplyString());
         }
@@ -82,21 +148,49 @@ public class FtpClientWrapper extends ClientWrapper {
     }
 
     @Override
-    public InputStream getInputStream(String directory, String filename, final Consumer<ClientWrapper> onClose)
-            throws IOException {
-        changeWorkingDirectory(directory, false);
+    public InputStream getInputStream(final String directory, String filename, long offset,
+            final Consumer<ClientWrapper> onClose) throws IOException {
+        InputStream in = null;
+        // The offset of REST is undefined for compressed transfers
+        boolean deflate = deflateLevel >= 0 && offset == 0;
         try {
-            final InputStream is = openUnwrappedInputStream(filename);
+            switchMode(deflate);
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
+        String path = path(directory, filename);
+        if (path != null) {
+            try {
+                client.setRestartOffset(offset);
+                in = client.retrieveFileStream(path);
+            } catch (IOException | RuntimeException e) {
+                throw invalidate(e);
+            }
+        }
+        final boolean inDirectory = in == null;
+        if (inDirectory) {
+            changeWorkingDirectory(directory, false);
+        }
+        try {
+            if (in == null) {
+                client.setRestartOffset(offset);
+                in = openUnwrappedInputStream(filename);
+                if (path != null) {
+                    pathsRejected("RETR " + path);
+                }
+            }
+            final TransferInputStream is = new TransferInputStream(deflate ? inflating(in) : in);
 
             return new AutoCloseOnEOFInputStream(is, new ConsumerWithIOException() {
                 @Override
                 public void apply() throws IOException {
-                    if (!client.completePendingCommand()) {
+                    boolean completed = is.isEndReached() ? client.completePendingCommand() : abortTransfer();
+                    if (!completed) {
                         logger.info("Could not complete command after get");
-                        onClose.accept(FtpClientWrapper.this);
+                        runOnClose(directory, inDirectory, onClose);
                         invalidate();
                     } else {
-                        onClose.accept(FtpClientWrapper.this);
+                        runOnClose(directory, inDirectory, onClose);
                     }
                 }
             });
@@ -105,6 +199,60 @@ public class FtpClientWrapper extends ClientWrapper {
         }
     }
 
+    /**
+     * The data connection has been closed before the end of the file, e.g. for
+     * a segment. The server answers both the transfer (226 or 426) and ABOR,
+     * both replies are read to keep the connection in sync.
+     *
+     * @return <code>true</code> when the connection can be used again.
+     */
+    private boolean abortTransfer() throws IOException {
+        client.sendCommand("ABOR");
+        return FTPReply.isPositiveCompletion(client.getReply());
+    }
+
+    /**
+     * Send MODE Z or MODE S when the server is in the other mode. Listings are
+     * always read in MODE S, as commons-net parses them from the raw data
+     * connection.
+     */
+    private void switchMode(boolean deflate) throws IOException {
+        if (deflate == deflateMode) {
+            return;
+        }
+        int reply = client.sendCommand("MODE", deflate ? "Z" : "S");
+        if (!FTPReply.isPositiveCompletion(reply)) {
+            throw new IOException("MODE " + (deflate ? "Z" : "S") + " failed: " + client.getReplyString());
+        }
+        deflateMode = deflate;
+    }
+
+    private static OutputStream deflating(OutputStream out, int level) {
+        return new DeflaterOutputStream(out, new Deflater(level)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    private static InputStream inflating(InputStream in) {
+        return new InflaterInputStream(in, new Inflater(), INFLATER_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
     private InputStream openUnwrappedInputStream(String filename) throws IOException {
         InputStream is = client.retrieveFileStream(filename);
         if (is == null) {
@@ -114,56 +262,150 @@ public class FtpClientWrapper extends ClientWrapper {
     }
 
     @Override
-    public void delete(String directory, String filename) throws IOException {
+    protected void deleteFile(String directory, String filename) throws IOException {
+        String path = path(directory, filename);
+        try {
+            if (path != null && client.deleteFile(path)) {
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
         changeWorkingDirectory(directory, false);
         try {
             if (!client.deleteFile(filename)) {
                 throw new IOException("Could not delete " + directory + "/" + filename);
             }
+            if (path != null) {
+                pathsRejected("DELE " + path);
+            }
         } catch (IOException | RuntimeException e) {
             throw invalidate(e);
         }
     }
 
     @Override
-    public void move(String fromCompletePath, String toCompletePath) throws IOException {
+    protected void moveFile(String fromCompletePath, String toCompletePath) throws IOException {
         if (!client.rename(fromCompletePath, toCompletePath)) {
             throw new IOException("Could not move from " + fromCompletePath + " to " + toCompletePath);
         }
     }
 
     @Override
-    public List<RemoteFile> list(String directory) throws IOException {
-        List<RemoteFile> fileList = new ArrayList<>();
+    public void list(String directory, Predicate<RemoteFile> filter, Consumer<RemoteFile> consumer) throws IOException {
+        Iterator<RemoteFile> iter = listIterator(directory, filter);
+        while (iter.hasNext()) {
+            consumer.accept(iter.next());
+        }
+    }
+
+    /**
+     * The raw listing is read completely by commons-net, but {@link FTPFile}s
+     * and {@link RemoteFile}s are created page by page while iterating.
+     */
+    @Override
+    public Iterator<RemoteFile> listIterator(String directory, Predicate<RemoteFile> filter) throws IOException {
+        String path = path(directory, null);
+        try {
+            switchMode(false);
+            if (path != null) {
+                String pathname = path.isEmpty() ? null : path;
+                FTPListParseEngine engine = useMlsd ? client.initiateMListParsing(pathname)
+                        : client.initiateListParsing(pathname);
+                // A failing command results in an empty engine, not in an
+                // exception
+                if (FTPReply.isPositiveCompletion(client.getReplyCode())) {
+                    return new RemoteFileIterator(engine, filter);
+                }
+                logger.debug("Listing " + path + " failed: " + client.getReplyString());
+            }
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
         changeWorkingDirectory(directory, false);
         try {
-            FTPFile[] files = client.listFiles();
-            for (FTPFile file : files) {
+            FTPListParseEngine engine = useMlsd ? client.initiateMListParsing() : client.initiateListParsing();
+            if (path != null) {
+                pathsRejected("listing " + path);
+            }
+            return new RemoteFileIterator(engine, filter);
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
+    }
+
+    @Override
+    public RemoteFile stat(String directory, String filename) throws IOException {
+        if (!useMlsd) {
+            return super.stat(directory, filename);
+        }
+        String path = path(directory, filename);
+        try {
+            if (path != null) {
+                FTPFile file = client.mlistFile(path);
                 if (file != null) {
-                    FtpFileType type;
-                    switch (file.getType()) {
-                    case FTPFile.FILE_TYPE:
-                        type = FtpFileType.FILE;
-                        break;
-                    case FTPFile.DIRECTORY_TYPE:
-                        type = FtpFileType.DIRECTORY;
-                        break;
-                    case FTPFile.SYMBOLIC_LINK_TYPE:
-                        type = FtpFileType.SYMBOLIC_LINK;
-                        break;
-                    case FTPFile.UNKNOWN_TYPE:
-                    default:
-                        type = FtpFileType.UNKNOWN;
-                    }
-                    Calendar cal = file.getTimestamp();
-                    Date timestamp = cal == null ? null : cal.getTime();
-                    fileList.add(new RemoteFile(type, file.getName(), file.getSize(), timestamp));
+                    return toRemoteFile(file);
                 }
             }
         } catch (IOException | RuntimeException e) {
             throw invalidate(e);
         }
-        return fileList;
+        changeWorkingDirectory(directory, false);
+        try {
+            FTPFile file = client.mlistFile(filename);
+            if (file == null) {
+                return null;
+            }
+            if (path != null) {
+                pathsRejected("MLST " + path);
+            }
+            return toRemoteFile(file);
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
+    }
+
+    /**
+     * An operation with a path failed, but succeeded after changing the
+     * directory. Don't try paths again on this connection.
+     */
+    private void pathsRejected(String operation) {
+        logger.info("Server rejected " + operation + ", changing directories from now on");
+        setUsePaths(false);
+    }
+
+    public boolean isUseMlsd() {
+        return useMlsd;
+    }
+
+    private static RemoteFile toRemoteFile(FTPFile file) {
+        FtpFileType type;
+        switch (file.getType()) {
+        case FTPFile.FILE_TYPE:
+            type = FtpFileType.FILE;
+            break;
+        case FTPFile.DIRECTORY_TYPE:
+            type = FtpFileType.DIRECTORY;
+            break;
+        case FTPFile.SYMBOLIC_LINK_TYPE:
+            type = FtpFileType.SYMBOLIC_LINK;
+            break;
+        case FTPFile.UNKNOWN_TYPE:
+        default:
+            type = FtpFileType.UNKNOWN;
+        }
+        Calendar cal = file.getTimestamp();
+        Date timestamp = cal == null ? null : cal.getTime();
+        return new RemoteFile(type, file.getName(), file.getSize(), timestamp);
+    }
+
+    @Override
+    protected boolean tryChangeDirectory(String path) throws IOException {
+        try {
+            return client.changeWorkingDirectory(path);
+        } catch (IOException | RuntimeException e) {
+            throw invalidate(e);
+        }
     }
 
     @Override
@@ -246,4 +488,94 @@ public class FtpClientWrapper extends ClientWrapper {
             return new IOException(ex);
         }
     }
+
+    /**
+     * Remembers whether the transfer has been read to the end.
+     */
+    private static class TransferInputStream extends FilterInputStream {
+        private boolean endReached;
+
+        TransferInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return endReached(super.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return endReached(super.read(b, off, len));
+        }
+
+        boolean isEndReached() {
+            return endReached;
+        }
+
+        private int endReached(int result) {
+            if (result < 0) {
+                endReached = true;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Converts the entries of an {@link FTPListParseEngine} page by page and
+     * skips the ones not accepted by the filter.
+     */
+    private static class RemoteFileIterator implements Iterator<RemoteFile> {
+        private static final int PAGE_SIZE = 1000;
+
+        private final FTPListParseEngine engine;
+        private final Predicate<RemoteFile> filter;
+        private FTPFile[] page;
+        private int pageIndex;
+        private RemoteFile next;
+
+        RemoteFileIterator(FTPListParseEngine engine, Predicate<RemoteFile> filter) {
+            this.engine = engine;
+            this.filter = filter;
+            page = new FTPFile[0];
+            pageIndex = 0;
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public RemoteFile next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            RemoteFile result = next;
+            next = advance();
+            return result;
+        }
+
+        private RemoteFile advance() {
+            while (true) {
+                while (pageIndex < page.length) {
+                    FTPFile file = page[pageIndex];
+                    page[pageIndex++] = null;
+                    // MLSD lists the directory itself and its parent
+                    if (file != null && !".".equals(file.getName()) && !"..".equals(file.getName())) {
+                        RemoteFile remoteFile = toRemoteFile(file);
+                        if (filter.test(remoteFile)) {
+                            return remoteFile;
+                        }
+                    }
+                }
+                if (!engine.hasNext()) {
+                    return null;
+                }
+                page = engine.getNext(PAGE_SIZE);
+                pageIndex = 0;
+            }
+        }
+    }
 }
@@ -0,0 +1,166 @@
+package org.mule.modules.ftpclient.sftp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the number of sftp requests in flight for a configuration. Starting
+ * with the initial value, the number is doubled as long as the throughput of
+ * the transfers improves by more than 10%. Then it goes back to the best value
+ * and stays there. Only transfers of at least 1 MB are measured, a step takes
+ * the average of several transfers. The time spent by the caller between
+ * reads or writes is not counted, so slow processing of the content doesn't
+ * hide the effect of the requests in flight.
+ */
+public class AdaptiveBulkRequests {
+	private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveBulkRequests.class);
+	static final long MIN_BYTES = 1024 * 1024;
+	static final int SAMPLES_PER_STEP = 3;
+	private static final double MIN_IMPROVEMENT = 1.1;
+
+	private final int max;
+	private int current;
+	private int best;
+	private double bestThroughput;
+	private boolean settled;
+	private int samples;
+	private long bytes;
+	private long nanos;
+
+	/**
+	 * @param initial
+	 *            Number of requests to start with.
+	 * @param max
+	 *            Upper limit.
+	 */
+	public AdaptiveBulkRequests(int initial, int max) {
+		this.max = max;
+		current = Math.min(initial, max);
+		best = current;
+	}
+
+	/**
+	 * @return Number of requests in flight for the next transfer.
+	 */
+	public synchronized int current() {
+		return current;
+	}
+
+	public synchronized boolean isSettled() {
+		return settled;
+	}
+
+	/**
+	 * @param level
+	 *            Number of requests used for the transfer.
+	 * @param transferred
+	 *            Bytes transferred.
+	 * @param duration
+	 *            Duration of the transfer in nanoseconds.
+	 */
+	public synchronized void record(int level, long transferred, long duration) {
+		if (settled || level != current || transferred < MIN_BYTES || duration <= 0) {
+			return;
+		}
+		bytes += transferred;
+		nanos += duration;
+		if (++samples < SAMPLES_PER_STEP) {
+			return;
+		}
+		double throughput = (double) bytes / nanos;
+		samples = 0;
+		bytes = 0;
+		nanos = 0;
+		if (throughput > bestThroughput * MIN_IMPROVEMENT) {
+			best = current;
+			bestThroughput = throughput;
+			if (current < max) {
+				current = Math.min(current * 2, max);
+				LOGGER.debug("{} bytes/ms with {} requests in flight, trying {}", (long) (throughput * 1e6), best, current);
+				return;
+			}
+		}
+		current = best;
+		settled = true;
+		LOGGER.debug("Settled at {} requests in flight, {} bytes/ms", best, (long) (bestThroughput * 1e6));
+	}
+
+	/**
+	 * @return Stream which records its throughput when closed, timing only
+	 *         the reads.
+	 */
+	InputStream track(InputStream is, final int level) {
+		return new CountingInputStream(is) {
+			private boolean closed;
+			private long readStart;
+			private long duration;
+
+			@Override
+			protected void beforeRead(int n) {
+				readStart = System.nanoTime();
+			}
+
+			@Override
+			protected void afterRead(int n) {
+				super.afterRead(n);
+				duration += System.nanoTime() - readStart;
+			}
+
+			@Override
+			public void close() throws IOException {
+				super.close();
+				if (!closed) {
+					closed = true;
+					record(level, getByteCount(), duration);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return Stream which records its throughput when closed, timing only
+	 *         the writes and the close, which waits for the outstanding
+	 *         acknowledgements.
+	 */
+	OutputStream track(OutputStream out, final int level) {
+		return new CountingOutputStream(out) {
+			private boolean closed;
+			private long writeStart;
+			private long duration;
+
+			@Override
+			protected void beforeWrite(int n) {
+				super.beforeWrite(n);
+				writeStart = System.nanoTime();
+			}
+
+			@Override
+			protected void afterWrite(int n) {
+				duration += System.nanoTime() - writeStart;
+			}
+
+			@Override
+			public void flush() throws IOException {
+				long start = System.nanoTime();
+				super.flush();
+				duration += System.nanoTime() - start;
+			}
+
+			@Override
+			public void close() throws IOException {
+				long start = System.nanoTime();
+				super.close();
+				if (!closed) {
+					closed = true;
+					record(level, getByteCount(), duration + System.nanoTime() - start);
+				}
+			}
+		};
+	}
+}
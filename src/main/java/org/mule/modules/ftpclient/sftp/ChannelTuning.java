@@ -0,0 +1,50 @@
+package org.mule.modules.ftpclient.sftp;
+
+import java.lang.reflect.Method;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jcraft.jsch.Channel;
+
+/**
+ * Sets the local window and maximum packet size of a JSch channel. JSch has no
+ * public setters for them, so they are called by reflection. The values are
+ * sent when the channel is opened, so this has to happen before
+ * {@link Channel#connect()}. When JSch changes, a warning is logged and the
+ * defaults stay.
+ */
+public final class ChannelTuning {
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChannelTuning.class);
+
+	private ChannelTuning() {
+	}
+
+	/**
+	 * @param channel
+	 *            Channel which is not connected yet.
+	 * @param windowSize
+	 *            Local window size in bytes, 0 for the JSch default.
+	 * @param packetSize
+	 *            Maximum packet size in bytes, 0 for the JSch default.
+	 */
+	public static void apply(Channel channel, int windowSize, int packetSize) {
+		try {
+			if (windowSize > 0) {
+				invoke(channel, "setLocalWindowSizeMax", windowSize);
+				invoke(channel, "setLocalWindowSize", windowSize);
+			}
+			if (packetSize > 0) {
+				invoke(channel, "setLocalPacketSize", packetSize);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			LOGGER.warn("Can't set window size {} and packet size {} for this JSch version", windowSize, packetSize, e);
+		}
+	}
+
+	private static void invoke(Channel channel, String name, int value) throws ReflectiveOperationException {
+		Method method = Channel.class.getDeclaredMethod(name, int.class);
+		method.setAccessible(true);
+		method.invoke(channel, Integer.valueOf(value));
+	}
+}
@@ -0,0 +1,65 @@
+package org.mule.modules.ftpclient.sftp;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * Decides whether compressing a file on the ssh connection is worth it, by
+ * the file name or by deflating a sample of the content.
+ */
+public final class Compressibility {
+	/** Bytes of an upload which are sampled before the transfer starts */
+	public static final int SAMPLE_SIZE = 64 * 1024;
+	private static final double MAX_RATIO = 0.9;
+	private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<>(Arrays.asList("7z", "bz2", "gz", "tgz", "xz", "zst",
+			"lz4", "zip", "jar", "war", "ear", "rar", "docx", "xlsx", "pptx", "odt", "ods", "jpg", "jpeg", "png", "gif", "webp",
+			"mp3", "mp4", "mkv", "avi", "mov", "pgp", "gpg", "enc"));
+
+	private Compressibility() {
+	}
+
+	/**
+	 * @param filename
+	 *            Name of a file.
+	 * @return <code>true</code> when the extension stands for compressed or
+	 *         encrypted content.
+	 */
+	public static boolean isCompressedName(String filename) {
+		return COMPRESSED_EXTENSIONS.contains(FilenameUtils.getExtension(filename).toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * @param sample
+	 *            Start of the content.
+	 * @param length
+	 *            Number of bytes in <code>sample</code>.
+	 * @return <code>true</code> when the sample shrinks to less than 90% with
+	 *         the fastest deflate level.
+	 */
+	public static boolean isCompressible(byte[] sample, int length) {
+		if (length == 0) {
+			return true;
+		}
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		try {
+			deflater.setInput(sample, 0, length);
+			deflater.finish();
+			byte[] out = new byte[8192];
+			long limit = (long) (length * MAX_RATIO);
+			while (!deflater.finished()) {
+				deflater.deflate(out);
+				if (deflater.getBytesWritten() >= limit) {
+					return false;
+				}
+			}
+			return true;
+		} finally {
+			deflater.end();
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package org.mule.modules.ftpclient.sftp;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps the first bytes written and opens the real stream when the sample is
+ * complete (or on close), so that the sample can decide how the content is
+ * transferred.
+ */
+abstract class SamplingOutputStream extends OutputStream {
+	private final byte[] sample;
+	private int count;
+	private OutputStream delegate;
+	private boolean closed;
+
+	SamplingOutputStream(int sampleSize) {
+		sample = new byte[sampleSize];
+	}
+
+	/**
+	 * @param compressible
+	 *            Result of {@link Compressibility#isCompressible(byte[], int)}
+	 *            for the sample.
+	 * @return The stream to write the content to.
+	 */
+	protected abstract OutputStream open(boolean compressible) throws IOException;
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (delegate != null) {
+			delegate.write(b, off, len);
+			return;
+		}
+		int n = Math.min(len, sample.length - count);
+		System.arraycopy(b, off, sample, count, n);
+		count += n;
+		if (count == sample.length) {
+			start();
+			if (len > n) {
+				delegate.write(b, off + n, len - n);
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		// a flush must not force the decision before the sample is complete
+		if (delegate != null) {
+			delegate.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (delegate == null) {
+			start();
+		}
+		delegate.close();
+	}
+
+	private void start() throws IOException {
+		delegate = open(Compressibility.isCompressible(sample, count));
+		delegate.write(sample, 0, count);
+	}
+}
@@ -1,18 +1,17 @@
 package org.mule.modules.ftpclient.sftp;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.ConnectException;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.Collection;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
-import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -28,6 +27,7 @@ import org.slf4j.LoggerFactory;
 
 import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.ChannelSftp.LsEntry;
+import com.jcraft.jsch.ChannelSftp.LsEntrySelector;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
 import com.jcraft.jsch.Session;
@@ -41,43 +41,175 @@ public class SftpClientWrapper extends ClientWrapper {
 	private static final Logger LOGGER = LoggerFactory.getLogger(SftpClientWrapper.class);
 
 	private ChannelSftp channel;
+	private SharedSession sharedSession;
+	private boolean sharedSessionReleased;
+	private AdaptiveBulkRequests adaptiveBulkRequests;
+	private Callable<SftpClientWrapper> bypassFactory;
+	private SftpClientWrapper bypass;
 
 	public SftpClientWrapper(ChannelSftp channel) {
 		this.channel = channel;
 	}
 
+	/**
+	 * @param channel
+	 *            A connected channel, opened on <code>sharedSession</code>.
+	 * @param sharedSession
+	 *            Session shared with other wrappers. It is not disconnected on
+	 *            {@link #destroy()}, just released.
+	 */
+	public SftpClientWrapper(ChannelSftp channel, SharedSession sharedSession) {
+		this.channel = channel;
+		this.sharedSession = sharedSession;
+	}
+
 	@Override
 	public void destroy() throws JSchException {
+		closeBypassChannel();
 		if (channel != null) {
-			Session session = channel.getSession();
-			channel.disconnect();
-			if (session != null && session.isConnected()) {
-				session.disconnect();
+			if (sharedSession != null) {
+				channel.disconnect();
+				synchronized (this) {
+					if (!sharedSessionReleased) {
+						sharedSessionReleased = true;
+						sharedSession.release();
+					}
+				}
+			} else {
+				Session session = channel.getSession();
+				channel.disconnect();
+				if (session != null && session.isConnected()) {
+					session.disconnect();
+				}
 			}
 		}
 	}
 
 	@Override
 	public boolean validate() {
+		if (bypass != null && !bypass.validate()) {
+			// opened again when needed
+			closeBypassChannel();
+		}
 		return channel.isConnected();
 	}
 
 	@Override
-	public OutputStream getOutputStream(String directory, String filename) throws IOException, SftpException {
+	public boolean isConnected() {
+		return channel != null && channel.isConnected();
+	}
+
+	/**
+	 * @param adaptiveBulkRequests
+	 *            Decides the number of requests in flight for each transfer and
+	 *            gets the throughput. <code>null</code> to keep the number of
+	 *            the channel.
+	 */
+	public void setAdaptiveBulkRequests(AdaptiveBulkRequests adaptiveBulkRequests) {
+		this.adaptiveBulkRequests = adaptiveBulkRequests;
+	}
+
+	/**
+	 * @param bypassFactory
+	 *            Opens a wrapper with a connected channel on a shared,
+	 *            uncompressed session, used for content which doesn't compress.
+	 *            It is destroyed with this wrapper. <code>null</code> to
+	 *            transfer everything on the channel of this wrapper.
+	 */
+	public void setBypassFactory(Callable<SftpClientWrapper> bypassFactory) {
+		this.bypassFactory = bypassFactory;
+	}
+
+	@Override
+	public OutputStream getOutputStream(final String directory, final String filename, final boolean append)
+			throws IOException, SftpException {
+		if (bypassFactory == null) {
+			return openOutputStream(directory, filename, append);
+		}
+		if (Compressibility.isCompressedName(filename)) {
+			return openBypassOutputStream(directory, filename, append);
+		}
+		return new SamplingOutputStream(Compressibility.SAMPLE_SIZE) {
+			@Override
+			protected OutputStream open(boolean compressible) throws IOException {
+				try {
+					return compressible ? openOutputStream(directory, filename, append)
+							: openBypassOutputStream(directory, filename, append);
+				} catch (SftpException e) {
+					throw new IOException("Can't write " + directory + "/" + filename, e);
+				}
+			}
+		};
+	}
+
+	private OutputStream openOutputStream(String directory, String filename, boolean append) throws IOException, SftpException {
+		int level = applyBulkRequests(channel);
+		int mode = append ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE;
+		String path = path(directory, filename);
+		if (path != null) {
+			try {
+				OutputStream out = channel.put(quote(path), mode);
+				rememberDirectory(directory);
+				return track(out, level);
+			} catch (SftpException e) {
+				if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+					throw e;
+				}
+				// Directory is missing, create it while changing to it
+				forgetDirectory(directory);
+			}
+		}
 		changeWorkingDirectory(directory, true);
-		OutputStream out = channel.put(filename);
-		return out;
+		OutputStream out = channel.put(quote(filename), mode);
+		return track(out, level);
+	}
+
+	/**
+	 * Write on the uncompressed channel. Its working directory is the login
+	 * directory, a missing directory is created with the main channel.
+	 */
+	private OutputStream openBypassOutputStream(String directory, String filename, boolean append) throws IOException, SftpException {
+		ChannelSftp bypassChannel = bypassChannel();
+		int level = applyBulkRequests(bypassChannel);
+		int mode = append ? ChannelSftp.APPEND : ChannelSftp.OVERWRITE;
+		String path = quote(loginRelativePath(directory, filename));
+		try {
+			return track(bypassChannel.put(path, mode), level);
+		} catch (SftpException e) {
+			if (e.id != ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+				throw e;
+			}
+		}
+		changeWorkingDirectory(directory, true);
+		return track(bypassChannel.put(path, mode), level);
 	}
 
 	@Override
-	public InputStream getInputStream(final String directory, final String filename, final Consumer<ClientWrapper> onClose) throws SftpException, IOException {
-		changeWorkingDirectory(directory, false);
-		final InputStream is = channel.get(filename);
+	public InputStream getInputStream(final String directory, final String filename, long offset, final Consumer<ClientWrapper> onClose)
+			throws SftpException, IOException {
+		final InputStream is;
+		final boolean inDirectory;
+		String path = path(directory, filename);
+		if (bypassFactory != null && Compressibility.isCompressedName(filename)) {
+			ChannelSftp bypassChannel = bypassChannel();
+			int level = applyBulkRequests(bypassChannel);
+			is = track(bypassChannel.get(quote(loginRelativePath(directory, filename)), null, offset), level);
+			inDirectory = false;
+		} else if (path != null) {
+			int level = applyBulkRequests(channel);
+			is = track(channel.get(quote(path), null, offset), level);
+			inDirectory = false;
+		} else {
+			int level = applyBulkRequests(channel);
+			changeWorkingDirectory(directory, false);
+			is = track(channel.get(quote(filename), null, offset), level);
+			inDirectory = true;
+		}
 		return new AutoCloseOnEOFInputStream(is, new ConsumerWithIOException() {
 			@Override
 			public void apply() {
 				try {
-					onClose.accept(SftpClientWrapper.this);
+					runOnClose(directory, inDirectory, onClose);
 				} catch (Exception e) {// signature is from commons.pool NOSONAR
 					LOGGER.debug("ignore exception in cleanup", e);
 				}
@@ -85,56 +217,173 @@ public class SftpClientWrapper extends ClientWrapper {
 		});
 	}
 
+	/**
+	 * @return Number of requests in flight for the next transfer, 0 when not
+	 *         adaptive.
+	 */
+	private int applyBulkRequests(ChannelSftp target) throws IOException {
+		if (adaptiveBulkRequests == null) {
+			return 0;
+		}
+		int level = adaptiveBulkRequests.current();
+		try {
+			target.setBulkRequests(level);
+		} catch (JSchException e) {
+			throw new IOException(e);
+		}
+		return level;
+	}
+
+	private ChannelSftp bypassChannel() throws IOException {
+		if (bypass != null && !bypass.validate()) {
+			closeBypassChannel();
+		}
+		if (bypass == null) {
+			try {
+				bypass = bypassFactory.call();
+			} catch (Exception e) {// signature of Callable NOSONAR
+				throw new IOException("Can't open uncompressed channel", e);
+			}
+		}
+		return bypass.channel;
+	}
+
+	private void closeBypassChannel() {
+		if (bypass != null) {
+			try {
+				bypass.destroy();
+			} catch (JSchException e) {
+				LOGGER.debug("ignore exception in cleanup", e);
+			}
+			bypass = null;
+		}
+	}
+
+	/**
+	 * @return Path of the file relative to the login directory (or absolute),
+	 *         independent of the working directory of the main channel.
+	 */
+	static String loginRelativePath(String directory, String filename) {
+		if (StringUtils.isEmpty(directory)) {
+			return filename;
+		}
+		return StringUtils.removeEnd(directory, "/") + "/" + filename;
+	}
+
+	private InputStream track(InputStream is, int level) {
+		return adaptiveBulkRequests == null ? is : adaptiveBulkRequests.track(is, level);
+	}
+
+	private OutputStream track(OutputStream out, int level) {
+		return adaptiveBulkRequests == null ? out : adaptiveBulkRequests.track(out, level);
+	}
+
 	@Override
-	public void delete(String directory, String filename) throws IOException {
-		changeWorkingDirectory(directory, false);
+	protected void deleteFile(String directory, String filename) throws IOException {
+		String path = path(directory, filename);
+		if (path == null) {
+			changeWorkingDirectory(directory, false);
+		}
 		try {
-			channel.rm(filename);
+			channel.rm(quote(path == null ? filename : path));
 		} catch (SftpException e) {
 			throw new IOException("Can't delete " + directory + "/" + filename, e);
 		}
 	}
 
 	@Override
-	public void move(String fromCompletePath, String toCompletePath) throws SftpException {
-		channel.rename(fromCompletePath, toCompletePath);
+	protected void moveFile(String fromCompletePath, String toCompletePath) throws SftpException {
+		channel.rename(quote(fromCompletePath), quote(toCompletePath));
 	}
 
 	@Override
-	public List<RemoteFile> list(String directory) throws IOException {
-		changeWorkingDirectory(directory, false);
-		List<RemoteFile> fileList = new ArrayList<>();
+	public void list(String directory, final Predicate<RemoteFile> filter, final Consumer<RemoteFile> consumer) throws IOException {
+		String path = path(directory, null);
+		if (path == null) {
+			changeWorkingDirectory(directory, false);
+		}
 		try {
-			@SuppressWarnings("unchecked")
-			Collection<LsEntry> files = channel.ls(".");
-			for (LsEntry e : files) {
-				String name = e.getFilename();
-				if (".".equals(name) || "..".equals(name)) {
-					continue;
-				}
-				SftpATTRS attrs = e.getAttrs();
-				FtpFileType type;
-				if (attrs.isDir()) {
-					type = FtpFileType.DIRECTORY;
-				} else if (attrs.isLink()) {
-					type = FtpFileType.SYMBOLIC_LINK;
-				} else if (attrs.isReg()) {
-					type = FtpFileType.FILE;
-				} else {
-					type = FtpFileType.UNKNOWN;
+			channel.ls(StringUtils.isEmpty(path) ? "." : quote(path), new LsEntrySelector() {
+				@Override
+				public int select(LsEntry e) {
+					String name = e.getFilename();
+					if (!".".equals(name) && !"..".equals(name)) {
+						RemoteFile file = toRemoteFile(name, e.getAttrs());
+						if (filter.test(file)) {
+							consumer.accept(file);
+						}
+					}
+					return CONTINUE;
 				}
-				fileList.add(new RemoteFile(type, name, attrs.getSize(), new Date(attrs.getMTime() * 1000L)));
-			}
+			});
 		} catch (SftpException e) {
 			throw invalidate(new IOException("Can't list " + directory, e));
 		}
-		return fileList;
+	}
+
+	@Override
+	public RemoteFile stat(String directory, String filename) throws IOException {
+		String path = path(directory, filename);
+		if (path == null) {
+			changeWorkingDirectory(directory, false);
+		}
+		try {
+			return toRemoteFile(filename, channel.stat(quote(path == null ? filename : path)));
+		} catch (SftpException e) {
+			if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+				return null;
+			}
+			throw new IOException("Can't stat " + directory + "/" + filename, e);
+		}
+	}
+
+	/**
+	 * JSch expands '*' and '?' in remote paths (a listing of "in*" lists all
+	 * matching directories) and drops backslashes, so they are escaped to
+	 * address the path itself.
+	 */
+	static String quote(String path) {
+		StringBuilder sb = new StringBuilder(path.length() + 8);
+		for (char ch : path.toCharArray()) {
+			if (ch == '*' || ch == '?' || ch == '\\') {
+				sb.append('\\');
+			}
+			sb.append(ch);
+		}
+		return sb.toString();
+	}
+
+	private static RemoteFile toRemoteFile(String name, SftpATTRS attrs) {
+		FtpFileType type;
+		if (attrs.isDir()) {
+			type = FtpFileType.DIRECTORY;
+		} else if (attrs.isLink()) {
+			type = FtpFileType.SYMBOLIC_LINK;
+		} else if (attrs.isReg()) {
+			type = FtpFileType.FILE;
+		} else {
+			type = FtpFileType.UNKNOWN;
+		}
+		return new RemoteFile(type, name, attrs.getSize(), new Date(attrs.getMTime() * 1000L));
+	}
+
+	@Override
+	protected boolean tryChangeDirectory(String path) throws IOException {
+		try {
+			channel.cd(quote(path));
+			return true;
+		} catch (SftpException e) {
+			if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE || e.id == ChannelSftp.SSH_FX_FAILURE) {
+				return false;
+			}
+			throw invalidate(new IOException(e));
+		}
 	}
 
 	@Override
 	protected void changeToAbsoluteDirectory(String directory, boolean create) throws IOException {
 		try {
-			channel.cd(directory);
+			channel.cd(quote(directory));
 		} catch (SftpException e) {
 			// We may fail because the directory does not exist: Just create and
 			// try again
@@ -165,7 +414,7 @@ public class SftpClientWrapper extends ClientWrapper {
 	@Override
 	protected void changeToChildDirectory(String name, boolean create) throws IOException {
 		try {
-			channel.cd(name);
+			channel.cd(quote(name));
 		} catch (SftpException e) {
 			// We may fail because the directory does not exist: Just create and
 			// try again
@@ -187,11 +436,28 @@ public class SftpClientWrapper extends ClientWrapper {
 		}
 	}
 
-	public static ChannelSftp createChannel(JSch jsch, String host, int port, int timeout, String knownHostsFile, String user, String password)
-			throws ConnectionException {
+	public static ChannelSftp createChannel(JSch jsch, String host, int port, int timeout, String knownHostsFile, String user, String password,
+			Properties sessionConfig) throws ConnectionException {
+		Session session = createSession(jsch, host, port, timeout, knownHostsFile, user, password, sessionConfig);
+		return openChannel(session, host, port, user);
+	}
+
+	/**
+	 * @param password
+	 *            Password, <code>null</code> when the identities added to
+	 *            <code>jsch</code> are used.
+	 * @param sessionConfig
+	 *            Additional JSch session configuration (e.g. compression),
+	 *            may be <code>null</code>.
+	 */
+	public static Session createSession(JSch jsch, String host, int port, int timeout, String knownHostsFile, String user, String password,
+			Properties sessionConfig) throws ConnectionException {
 		try {
 			Properties props = new Properties();
 			configureHostChecking(jsch, knownHostsFile, props);
+			if (sessionConfig != null) {
+				props.putAll(sessionConfig);
+			}
 
 			Session session = jsch.getSession(user, host);
 			session.setConfig(props);
@@ -199,66 +465,55 @@ public class SftpClientWrapper extends ClientWrapper {
 			session.setPassword(password);
 			session.setTimeout(timeout);
 			session.connect(timeout);
-			return (ChannelSftp) session.openChannel(CHANNEL_SFTP);
+			return session;
 		} catch (JSchException e) {
 			translateException(e, host, port, user);
 			return null; // not reached, but compiler doesn't know
 		}
 	}
 
-	public static ChannelSftp createChannel(JSch jsch, String host, int port, int timeout, String knownHostsFile, String user, String identityFile,
-			String identityResource, String passphrase) throws ConnectionException {
+	private static ChannelSftp openChannel(Session session, String host, int port, String user) throws ConnectionException {
 		try {
-			if (StringUtils.isNotBlank(identityResource)) {
-				addIdentityFromResource(jsch, identityResource, passphrase);
-			} else {
-				addIdentity(jsch, new File(identityFile), passphrase);
-			}
-			Properties props = new Properties();
-			configureHostChecking(jsch, knownHostsFile, props);
-
-			Session session = jsch.getSession(user, host);
-			session.setConfig(props);
-			session.setPort(port);
-			session.setTimeout(timeout);
-			session.connect(timeout);
 			return (ChannelSftp) session.openChannel(CHANNEL_SFTP);
 		} catch (JSchException e) {
+			session.disconnect();
 			translateException(e, host, port, user);
 			return null; // not reached, but compiler doesn't know
 		}
 	}
 
-	private static void addIdentityFromResource(JSch jsch, String identityResource, String passphrase) throws JSchException, ConnectionException {
-		File file = null;
+	/**
+	 * Add the private key to <code>jsch</code>, which keeps it in memory for
+	 * all sessions created later.
+	 *
+	 * @param identityFile
+	 *            Key file, used when <code>identityResource</code> is blank.
+	 * @param identityResource
+	 *            Key as classpath resource.
+	 * @throws ConnectionException
+	 *             When the key can't be read.
+	 */
+	public static void addIdentity(JSch jsch, String identityFile, String identityResource, String passphrase) throws ConnectionException {
+		byte[] passphraseBytes = StringUtils.isEmpty(passphrase) ? null : passphrase.getBytes(StandardCharsets.UTF_8);
 		try {
-			file = File.createTempFile(identityResource, "tmp");
-			try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(identityResource.trim());
-					OutputStream os = new FileOutputStream(file)) {
-				if (is == null) {
-					throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Can't load classpath resource " + identityResource);
-				}
-				IOUtils.copy(is, os);
-				addIdentity(jsch, file, passphrase);
-			} finally {
-				if (file != null) {
-					file.delete();
-				}
-			}
-		} catch (IOException e) {
-			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), "Can't copy " + identityResource + " to temp file");
-		} finally {
-			if (file != null) {
-				file.delete();
+			if (StringUtils.isNotBlank(identityResource)) {
+				jsch.addIdentity(identityResource, readResource(identityResource.trim()), null, passphraseBytes);
+			} else {
+				jsch.addIdentity(new File(identityFile).getAbsolutePath(), passphraseBytes);
 			}
+		} catch (JSchException e) {
+			throw new ConnectionException(ConnectionExceptionCode.INCORRECT_CREDENTIALS, "", "Can't use identity " + (StringUtils.isNotBlank(identityResource) ? identityResource : identityFile), e);
 		}
 	}
 
-	private static void addIdentity(JSch jsch, File file, String passphrase) throws JSchException {
-		if (StringUtils.isEmpty(passphrase)) {
-			jsch.addIdentity(file.getAbsolutePath());
-		} else {
-			jsch.addIdentity(file.getAbsolutePath(), passphrase);
+	private static byte[] readResource(String identityResource) throws ConnectionException {
+		try (InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream(identityResource)) {
+			if (is == null) {
+				throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, "", "Can't load classpath resource " + identityResource);
+			}
+			return IOUtils.toByteArray(is);
+		} catch (IOException e) {
+			throw new ConnectionException(ConnectionExceptionCode.UNKNOWN, e.getMessage(), "Can't read " + identityResource);
 		}
 	}
 
@@ -0,0 +1,66 @@
+package org.mule.modules.ftpclient.sftp;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.Session;
+
+/**
+ * A JSch {@link Session} on which several sftp channels are opened. Channels
+ * have to be reserved with {@link #tryReserve(int)} before they are opened and
+ * given back with {@link #release()}. The session is disconnected when the
+ * last channel has been released.
+ */
+public class SharedSession {
+	private final Session session;
+	private int channels;
+
+	public SharedSession(Session session) {
+		this.session = session;
+		channels = 0;
+	}
+
+	/**
+	 * @param maxChannels
+	 *            Maximum number of channels on this session.
+	 * @return <code>true</code> when the session is connected and a channel has
+	 *         been reserved.
+	 */
+	public synchronized boolean tryReserve(int maxChannels) {
+		if (session.isConnected() && channels < maxChannels) {
+			channels++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Open a new channel (without connecting it). A channel must have been
+	 * reserved before.
+	 *
+	 * @return The new channel.
+	 * @throws JSchException
+	 *             When the channel can't be opened.
+	 */
+	public ChannelSftp openChannel() throws JSchException {
+		return (ChannelSftp) session.openChannel(SftpClientWrapper.CHANNEL_SFTP);
+	}
+
+	/**
+	 * Give back a reserved channel. Disconnects the session when no channel is
+	 * left.
+	 */
+	public synchronized void release() {
+		channels--;
+		if (channels <= 0 && session.isConnected()) {
+			session.disconnect();
+		}
+	}
+
+	public synchronized boolean isConnected() {
+		return session.isConnected();
+	}
+
+	public synchronized int getChannels() {
+		return channels;
+	}
+}
@@ -2,11 +2,18 @@ package org.mule.modules.ftpclient;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+import org.apache.commons.lang3.StringUtils;
 import org.junit.Test;
 
 public class ClientWrapperTest {
@@ -36,6 +43,195 @@ public class ClientWrapperTest {
         assertEquals("foo", ClientWrapper.normalize("foo/"));
     }
 
+    @Test
+    public void testPathNotUsed() {
+        assertNull(new ClientWrapperImpl().path("foo", "bar.txt"));
+    }
+
+    @Test
+    public void testPathRelative() {
+        ClientWrapper wrapper = new ClientWrapperImpl();
+        wrapper.setUsePaths(true);
+        assertEquals("foo/bar/baz.txt", wrapper.path("foo/bar/", "baz.txt"));
+        assertEquals("baz.txt", wrapper.path("", "baz.txt"));
+        assertEquals("", wrapper.path(null, null));
+    }
+
+    @Test
+    public void testPathAbsolute() {
+        ClientWrapper wrapper = new ClientWrapperImpl();
+        wrapper.setUsePaths(true);
+        assertEquals("/foo/bar/baz.txt", wrapper.path("/foo/bar", "baz.txt"));
+        assertEquals("/baz.txt", wrapper.path("/", "baz.txt"));
+    }
+
+    @Test
+    public void testPathAfterChangingDirectory() throws Exception {
+        ClientWrapper wrapper = new ClientWrapperImpl();
+        wrapper.setUsePaths(true);
+        wrapper.changeWorkingDirectory("foo/bar", false);
+        assertEquals("../baz/x.txt", wrapper.path("foo/baz", "x.txt"));
+        assertEquals("x.txt", wrapper.path("foo/bar", "x.txt"));
+        assertEquals("../../x.txt", wrapper.path("", "x.txt"));
+    }
+
+    @Test
+    public void testCreateBelowKnownDirectory() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/out");
+        wrapper.setDirectoryCache(new DirectoryCache(100));
+        wrapper.changeWorkingDirectory("/out/2017/05/17", true);
+        assertEquals(Arrays.asList("CWD /out/2017/05/17", "CWD /", "CWD out", "CWD 2017", "MKD 2017", "CWD 2017",
+                "MKD 05", "CWD 05", "MKD 17", "CWD 17"), wrapper.commands);
+
+        wrapper.commands.clear();
+        wrapper.changeWorkingDirectory("/out/2017/05/18", true);
+        assertEquals(Arrays.asList("CWD /out/2017/05/18", "CWD /out/2017/05", "CWD 18", "MKD 18", "CWD 18"),
+                wrapper.commands);
+        assertEquals("/out/2017/05/18", wrapper.getCurrentDirectory());
+    }
+
+    @Test
+    public void testJumpToKnownRelativeDirectory() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/a", "/a/b", "/a/b/c", "/x");
+        wrapper.setDirectoryCache(new DirectoryCache(100));
+        wrapper.changeWorkingDirectory("a/b/c", false);
+        wrapper.changeWorkingDirectory("x", false);
+
+        wrapper.commands.clear();
+        wrapper.changeWorkingDirectory("a/b/c", false);
+        assertEquals(Arrays.asList("CWD ../a/b/c"), wrapper.commands);
+        assertEquals("a/b/c", wrapper.getCurrentDirectory());
+    }
+
+    @Test
+    public void testForgetDirectoryAfterFailure() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/a", "/a/b", "/a/b/c");
+        DirectoryCache cache = new DirectoryCache(100);
+        wrapper.setDirectoryCache(cache);
+        wrapper.changeWorkingDirectory("a/b/c", false);
+        assertTrue(cache.contains("a/b/c"));
+        wrapper.changeWorkingDirectory("", false);
+        wrapper.directories.remove("/a/b/c");
+
+        wrapper.commands.clear();
+        wrapper.changeWorkingDirectory("a/b/c", true);
+        assertEquals(Arrays.asList("CWD a/b/c", "CWD a/b", "CWD c", "MKD c", "CWD c"), wrapper.commands);
+        assertTrue(cache.contains("a/b/c"));
+    }
+
+    @Test
+    public void testStayInAbsoluteDirectory() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/a", "/a/b");
+        wrapper.runInDirectory("/a/b", new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper client) {
+                try {
+                    client.changeWorkingDirectory("/a/b/", false);
+                    client.changeWorkingDirectory("/a/b", false);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertEquals(Arrays.asList("CWD /a/b"), wrapper.commands);
+    }
+
+    @Test
+    public void testChangeToAbsoluteDirectoryAgain() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/a", "/a/b");
+        wrapper.changeWorkingDirectory("/a/b", false);
+        wrapper.changeWorkingDirectory("/a/b", false);
+        assertEquals(Arrays.asList("CWD /a/b", "CWD /a/b"), wrapper.commands);
+    }
+
+    @Test
+    public void testLeaveDirectoryInBatch() throws Exception {
+        SimulatedClientWrapper wrapper = new SimulatedClientWrapper("/a", "/a/b");
+        wrapper.runInDirectory("/a/b", new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper client) {
+                try {
+                    client.changeWorkingDirectory("/a", false);
+                    client.changeWorkingDirectory("/a/b", false);
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertEquals(Arrays.asList("CWD /a/b", "CWD /a", "CWD /a/b"), wrapper.commands);
+    }
+
+    /**
+     * Simulates the directory tree of a server, the login directory is the
+     * root.
+     */
+    private static class SimulatedClientWrapper extends ClientWrapperImpl {
+        private final Set<String> directories;
+        private final List<String> commands;
+        private List<String> cwd;
+
+        SimulatedClientWrapper(String... directories) {
+            this.directories = new HashSet<>(Arrays.asList(directories));
+            this.directories.add("/");
+            commands = new ArrayList<>();
+            cwd = new ArrayList<>();
+        }
+
+        @Override
+        protected boolean tryChangeDirectory(String path) {
+            commands.add("CWD " + path);
+            List<String> target = resolve(path);
+            if (directories.contains("/" + StringUtils.join(target, '/'))) {
+                cwd = target;
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        protected void changeToAbsoluteDirectory(String directory, boolean create) {
+            if (!tryChangeDirectory(directory)) {
+                throw new IllegalStateException("no such directory");
+            }
+        }
+
+        @Override
+        protected void changeToParentDirectory() {
+            commands.add("CDUP");
+            cwd.remove(cwd.size() - 1);
+        }
+
+        @Override
+        protected void changeToChildDirectory(String name, boolean create) {
+            if (!tryChangeDirectory(name)) {
+                throw new IllegalStateException("no such directory");
+            }
+        }
+
+        @Override
+        protected void createDirectory(String name) {
+            commands.add("MKD " + name);
+            directories.add("/" + StringUtils.join(resolve(name), '/'));
+        }
+
+        private List<String> resolve(String path) {
+            List<String> result = path.startsWith("/") ? new ArrayList<String>() : new ArrayList<>(cwd);
+            for (String part : split(path)) {
+                if ("..".equals(part)) {
+                    result.remove(result.size() - 1);
+                } else {
+                    result.add(part);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void destroy() {
+            commands.add("QUIT");
+        }
+    }
+
     /**
      * This does not really implement any of the abstract methods, it just helps
      * to test non abstract methods.
@@ -54,22 +250,28 @@ public class ClientWrapperTest {
         }
 
         @Override
-        public OutputStream getOutputStream(String directory, String filename) {
+        public boolean isConnected() {
+            throw new UnsupportedOperationException("isConnected");
+        }
+
+        @Override
+        public OutputStream getOutputStream(String directory, String filename, boolean append) {
             throw new UnsupportedOperationException("getOutputStream");
         }
 
         @Override
-        public InputStream getInputStream(String directory, String filename, Consumer<ClientWrapper> onClose) {
+        public InputStream getInputStream(String directory, String filename, long offset,
+                Consumer<ClientWrapper> onClose) {
             throw new UnsupportedOperationException("getInputStream");
         }
 
         @Override
-        public void delete(String directory, String filename) {
+        protected void deleteFile(String directory, String filename) {
             throw new UnsupportedOperationException("delete");
         }
 
         @Override
-        public void move(String fromFile, String toCompletePath) {
+        protected void moveFile(String fromFile, String toCompletePath) {
             throw new UnsupportedOperationException("move");
         }
 
@@ -78,6 +280,16 @@ public class ClientWrapperTest {
             throw new UnsupportedOperationException("");
         }
 
+        @Override
+        public void list(String directory, Predicate<RemoteFile> filter, Consumer<RemoteFile> consumer) {
+            throw new UnsupportedOperationException("list");
+        }
+
+        @Override
+        protected boolean tryChangeDirectory(String path) {
+            throw new UnsupportedOperationException("tryChangeDirectory");
+        }
+
         @Override
         protected void changeToAbsoluteDirectory(String aDirectory, boolean aCreate) {
             throw new UnsupportedOperationException("");
@@ -85,12 +297,12 @@ public class ClientWrapperTest {
 
         @Override
         protected void changeToParentDirectory() {
-            throw new UnsupportedOperationException("list");
+            // only the directory stored in ClientWrapper changes
         }
 
         @Override
         protected void changeToChildDirectory(String name, boolean create) {
-            throw new UnsupportedOperationException("changeToChildDirectory");
+            // only the directory stored in ClientWrapper changes
         }
 
         @Override
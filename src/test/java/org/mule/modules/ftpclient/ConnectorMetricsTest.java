@@ -0,0 +1,89 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+
+public class ConnectorMetricsTest {
+
+    @Test
+    public void countsOperationsAndErrors() {
+        ConnectorMetrics metrics = new ConnectorMetrics();
+        long start = System.nanoTime();
+        metrics.record(Operation.LIST, start, true);
+        metrics.record(Operation.LIST, start, false);
+        OperationStatistics list = metrics.getOperation(Operation.LIST);
+        assertEquals(2, list.getCount());
+        assertEquals(1, list.getErrors());
+        assertEquals(0, metrics.getOperation(Operation.GET).getCount());
+    }
+
+    @Test
+    public void histogramBuckets() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500_000L);
+        histogram.record(3_000_000L);
+        histogram.record(120_000_000_000L);
+        long[] buckets = histogram.getBuckets();
+        assertEquals(LatencyHistogram.LIMITS_MILLIS.length + 1, buckets.length);
+        assertEquals(1, buckets[0]);
+        assertEquals(1, buckets[2]);
+        assertEquals(1, buckets[buckets.length - 1]);
+        assertEquals(3, histogram.getCount());
+        assertEquals(120_000.0, histogram.getMaxMillis(), 0.001);
+    }
+
+    @Test
+    public void meteredStreams() throws IOException {
+        ConnectorMetrics metrics = new ConnectorMetrics();
+        InputStream is = new MeteredInputStream(new ByteArrayInputStream(new byte[1000]), metrics, Operation.GET,
+                System.nanoTime());
+        assertEquals(1, metrics.getOpenStreams());
+        IOUtils.toByteArray(is);
+        is.close();
+        OutputStream out = new MeteredOutputStream(new ByteArrayOutputStream(), metrics, Operation.PUT, System.nanoTime());
+        out.write(new byte[300]);
+        out.write(1);
+        out.close();
+        assertEquals(1000, metrics.getBytesIn());
+        assertEquals(301, metrics.getBytesOut());
+        assertEquals(0, metrics.getOpenStreams());
+        assertEquals(1, metrics.getOperation(Operation.GET).getCount());
+        assertEquals(1, metrics.getOperation(Operation.PUT).getCount());
+    }
+
+    @Test
+    public void pollsAndReset() {
+        ConnectorMetrics metrics = new ConnectorMetrics();
+        metrics.recordPoll("poll in", System.nanoTime(), 3, true);
+        metrics.recordPoll("poll in", System.nanoTime(), 2, false);
+        PollStatistics poll = metrics.getPolls().get("poll in");
+        assertEquals(2, poll.getCycles());
+        assertEquals(1, poll.getErrors());
+        assertEquals(5, poll.getFiles());
+        assertEquals(2, poll.getLastFiles());
+
+        metrics.reset();
+        assertTrue(metrics.getPolls().isEmpty());
+        assertEquals(0, metrics.getOperation(Operation.LIST).getCount());
+    }
+
+    @Test
+    public void registerAndUnregister() {
+        ConnectorMetrics metrics = new ConnectorMetrics();
+        metrics.register("FtpConfig", "user@localhost:21");
+        assertNotNull(metrics.getObjectName());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics.getObjectName()));
+        metrics.unregister();
+        assertNull(metrics.getObjectName());
+    }
+}
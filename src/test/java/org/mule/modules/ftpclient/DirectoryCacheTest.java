@@ -0,0 +1,35 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class DirectoryCacheTest {
+
+    @Test
+    public void invalidateRemovesSubdirectories() {
+        DirectoryCache cache = new DirectoryCache(10);
+        cache.add("a");
+        cache.add("a/b");
+        cache.add("ab");
+        cache.add("/a/b");
+        cache.invalidate("a");
+        assertFalse(cache.contains("a"));
+        assertFalse(cache.contains("a/b"));
+        assertTrue(cache.contains("ab"));
+        assertTrue(cache.contains("/a/b"));
+    }
+
+    @Test
+    public void leastRecentlyUsedIsDropped() {
+        DirectoryCache cache = new DirectoryCache(2);
+        cache.add("a");
+        cache.add("b");
+        assertTrue(cache.contains("a"));
+        cache.add("c");
+        assertEquals(2, cache.size());
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertTrue(cache.contains("c"));
+    }
+}
@@ -0,0 +1,98 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mule.api.ConnectionException;
+import org.mule.modules.ftpclient.config.AbstractConfig;
+
+public class DirectoryWalkerTest {
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @After
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void walkTree() throws Exception {
+        TreeConfig config = new TreeConfig();
+        config.add("/root", dir("a"), dir("b"), file("x"));
+        config.add("/root/a", dir("c"));
+        config.add("/root/a/c");
+        config.add("/root/b");
+        DirectoryWalker walker = new DirectoryWalker(config, 5, null, null, pool);
+        Map<String, List<RemoteFile>> tree = walker.walk("/root");
+        assertEquals(Arrays.asList("/root", "/root/a", "/root/a/c", "/root/b"), new ArrayList<>(tree.keySet()));
+        assertEquals(0, walker.getFailures());
+    }
+
+    @Test
+    public void skipFailingSubdirectory() throws Exception {
+        TreeConfig config = new TreeConfig();
+        config.add("/root", dir("a"), dir("broken"), dir("b"));
+        config.add("/root/a");
+        config.add("/root/b");
+        DirectoryWalker walker = new DirectoryWalker(config, 5, null, null, pool);
+        Map<String, List<RemoteFile>> tree = walker.walk("/root");
+        assertEquals(Arrays.asList("/root", "/root/a", "/root/b"), new ArrayList<>(tree.keySet()));
+        assertEquals(1, walker.getFailures());
+    }
+
+    @Test(expected = IOException.class)
+    public void failOnRootDirectory() throws Exception {
+        new DirectoryWalker(new TreeConfig(), 5, null, null, pool).walk("/root");
+    }
+
+    @Test
+    public void poolIsReusable() throws Exception {
+        TreeConfig config = new TreeConfig();
+        config.add("/root");
+        new DirectoryWalker(config, 5, null, null, pool).walk("/root");
+        assertEquals(1, new DirectoryWalker(config, 5, null, null, pool).walk("/root").size());
+        assertFalse(pool.isShutdown());
+    }
+
+    private static RemoteFile dir(String name) {
+        return new RemoteFile(FtpFileType.DIRECTORY, name, 0, new Date(0));
+    }
+
+    private static RemoteFile file(String name) {
+        return new RemoteFile(FtpFileType.FILE, name, 1, new Date(0));
+    }
+
+    /**
+     * Lists a fixed tree, unknown directories can't be listed.
+     */
+    private static class TreeConfig extends AbstractConfig {
+        private final Map<String, List<RemoteFile>> listings = new HashMap<>();
+
+        void add(String directory, RemoteFile... entries) {
+            listings.put(directory, Arrays.asList(entries));
+        }
+
+        @Override
+        public List<RemoteFile> list(String directory) throws Exception {
+            List<RemoteFile> listing = listings.get(directory);
+            if (listing == null) {
+                throw new IOException("No such directory " + directory);
+            }
+            return listing;
+        }
+
+        @Override
+        protected ClientWrapper createClientWrapper() throws ConnectionException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class FileStabilityTrackerTest {
+
+    @Test
+    public void stableAfterPolls() {
+        FileStabilityTracker tracker = new FileStabilityTracker(2, 0);
+        RemoteFile file = new RemoteFile(FtpFileType.FILE, "a.txt", 10L, new Date(1000));
+        assertFalse(tracker.isStable(file, 0));
+        assertFalse(tracker.isStable(file, 1));
+        assertTrue(tracker.isStable(file, 2));
+        assertTrue(tracker.isStable(file, 3));
+    }
+
+    @Test
+    public void changedSizeRestarts() {
+        FileStabilityTracker tracker = new FileStabilityTracker(1, 0);
+        assertFalse(tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 10L, null), 0));
+        assertFalse(tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 20L, null), 1));
+        assertTrue(tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 20L, null), 2));
+        assertFalse(tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 20L, new Date(5)), 3));
+    }
+
+    @Test
+    public void stableAfterQuietPeriod() {
+        FileStabilityTracker tracker = new FileStabilityTracker(0, 1000);
+        RemoteFile file = new RemoteFile(FtpFileType.FILE, "a.txt", 10L, null);
+        assertFalse(tracker.isStable(file, 0));
+        assertFalse(tracker.isStable(file, 999));
+        assertTrue(tracker.isStable(file, 1000));
+    }
+
+    @Test
+    public void forgetMissingFiles() {
+        FileStabilityTracker tracker = new FileStabilityTracker(1, 0);
+        tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 10L, null), 0);
+        tracker.isStable(new RemoteFile(FtpFileType.FILE, "b.txt", 10L, null), 0);
+        tracker.retainAll(Collections.singleton("b.txt"));
+        assertEquals(1, tracker.size());
+        assertFalse(tracker.isStable(new RemoteFile(FtpFileType.FILE, "a.txt", 10L, null), 1));
+        assertTrue(tracker.isStable(new RemoteFile(FtpFileType.FILE, "b.txt", 10L, null), 1));
+    }
+}
@@ -0,0 +1,53 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class PayloadBufferTest {
+
+    @Test
+    public void exactSize() throws Exception {
+        byte[] content = createContent(100_000);
+        assertArrayEquals(content, (byte[]) PayloadBuffer.read(new ByteArrayInputStream(content), 100_000, 0));
+    }
+
+    @Test
+    public void wrongSize() throws Exception {
+        byte[] content = createContent(100_000);
+        assertArrayEquals(content, (byte[]) PayloadBuffer.read(new ByteArrayInputStream(content), 90_000, 0));
+        assertArrayEquals(content, (byte[]) PayloadBuffer.read(new ByteArrayInputStream(content), 110_000, 0));
+        assertArrayEquals(content, (byte[]) PayloadBuffer.read(new ByteArrayInputStream(content), -1, 200_000));
+    }
+
+    @Test
+    public void spoolAboveThreshold() throws Exception {
+        byte[] content = createContent(100_000);
+        assertSpooled(content, PayloadBuffer.read(new ByteArrayInputStream(content), 100_000, 50_000));
+        assertSpooled(content, PayloadBuffer.read(new ByteArrayInputStream(content), -1, 50_000));
+        assertSpooled(content, PayloadBuffer.read(new ByteArrayInputStream(content), 50_000, 50_000));
+    }
+
+    private static void assertSpooled(byte[] content, Object payload) throws Exception {
+        MappedContent mapped = (MappedContent) payload;
+        assertEquals(content.length, mapped.getSize());
+        for (int i = 0; i < 2; i++) {
+            try (InputStream is = mapped.openStream()) {
+                assertArrayEquals(content, IOUtils.toByteArray(is));
+            }
+        }
+        assertArrayEquals(content, mapped.toByteArray());
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+}
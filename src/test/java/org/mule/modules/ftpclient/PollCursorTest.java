@@ -0,0 +1,76 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PollCursorTest {
+
+    @Test
+    public void sortByTimestamp() {
+        PollCursor cursor = new PollCursor(PollOrder.Timestamp);
+        List<RemoteFile> files = Arrays.asList(file("a", 1, 300), file("b", 1, 100), file("c", 1, 200));
+        assertEquals(Arrays.asList("b", "c", "a"), names(cursor.select(files, 0)));
+    }
+
+    @Test
+    public void sortBySize() {
+        PollCursor cursor = new PollCursor(PollOrder.Size);
+        List<RemoteFile> files = Arrays.asList(file("a", 30, 0), file("b", 10, 0), file("c", 10, 0));
+        assertEquals(Arrays.asList("b", "c", "a"), names(cursor.select(files, 0)));
+    }
+
+    @Test
+    public void continueAfterCap() {
+        PollCursor cursor = new PollCursor(PollOrder.Name);
+        List<RemoteFile> files = Arrays.asList(file("e", 1, 0), file("d", 1, 0), file("c", 1, 0), file("b", 1, 0),
+                file("a", 1, 0));
+        assertEquals(Arrays.asList("a", "b"), names(cursor.select(files, 2)));
+        assertEquals(Arrays.asList("c", "d"), names(cursor.select(files, 2)));
+        assertEquals(Arrays.asList("e", "a"), names(cursor.select(files, 2)));
+    }
+
+    @Test
+    public void continueAfterRemovedFiles() {
+        PollCursor cursor = new PollCursor(PollOrder.Name);
+        assertEquals(Arrays.asList("a", "b"),
+                names(cursor.select(Arrays.asList(file("a", 1, 0), file("b", 1, 0), file("c", 1, 0)), 2)));
+        // a and b have been deleted, new file 0 sorts before the cursor
+        assertEquals(Arrays.asList("c", "d"), names(cursor.select(
+                Arrays.asList(file("0", 1, 0), file("c", 1, 0), file("d", 1, 0), file("e", 1, 0)), 2)));
+    }
+
+    @Test
+    public void listingOrderContinuesAfterLastName() {
+        PollCursor cursor = new PollCursor(PollOrder.None);
+        List<RemoteFile> files = Arrays.asList(file("x", 1, 0), file("a", 1, 0), file("m", 1, 0));
+        assertEquals(Arrays.asList("x", "a"), names(cursor.select(files, 2)));
+        assertEquals(Arrays.asList("m", "x"), names(cursor.select(files, 2)));
+    }
+
+    @Test
+    public void resetWhenAllFit() {
+        PollCursor cursor = new PollCursor(PollOrder.Name);
+        List<RemoteFile> files = Arrays.asList(file("a", 1, 0), file("b", 1, 0), file("c", 1, 0));
+        assertEquals(Arrays.asList("a", "b"), names(cursor.select(files, 2)));
+        assertEquals(Arrays.asList("a", "b", "c"), names(cursor.select(files, 3)));
+        assertEquals(Arrays.asList("a", "b"), names(cursor.select(files, 2)));
+    }
+
+    private static RemoteFile file(String name, long size, long timestamp) {
+        return new RemoteFile(FtpFileType.FILE, name, size, new Date(timestamp));
+    }
+
+    private static List<String> names(List<RemoteFile> files) {
+        List<String> result = new ArrayList<>();
+        for (RemoteFile file : files) {
+            result.add(file.getName());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,51 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class PollSchedulerTest {
+
+    @Test
+    public void backOffWhileEmpty() {
+        PollScheduler scheduler = new PollScheduler(1000, 5000, 0);
+        assertTrue(scheduler.isDue(0));
+        scheduler.recordPoll(0, 0);
+        assertEquals(1000, scheduler.getInterval());
+        assertFalse(scheduler.isDue(999));
+        assertTrue(scheduler.isDue(1000));
+        scheduler.recordPoll(0, 1000);
+        assertEquals(2000, scheduler.getInterval());
+        scheduler.recordPoll(0, 3000);
+        assertEquals(4000, scheduler.getInterval());
+        scheduler.recordPoll(0, 7000);
+        assertEquals(5000, scheduler.getInterval());
+        assertFalse(scheduler.isDue(11_999));
+        assertTrue(scheduler.isDue(12_000));
+    }
+
+    @Test
+    public void filesResetInterval() {
+        PollScheduler scheduler = new PollScheduler(1000, 60_000, 0);
+        scheduler.recordPoll(0, 0);
+        scheduler.recordPoll(0, 1000);
+        scheduler.recordPoll(3, 3000);
+        assertEquals(0, scheduler.getInterval());
+        assertTrue(scheduler.isDue(3000));
+        scheduler.recordPoll(0, 3000);
+        assertEquals(1000, scheduler.getInterval());
+    }
+
+    @Test
+    public void jitterWithinRange() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            PollScheduler scheduler = new PollScheduler(10_000, 10_000, 20, random);
+            scheduler.recordPoll(0, 0);
+            assertFalse(scheduler.isDue(7_999));
+            assertTrue(scheduler.isDue(12_000));
+        }
+    }
+}
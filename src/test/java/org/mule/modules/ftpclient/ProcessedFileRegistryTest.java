@@ -0,0 +1,20 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.mule.modules.ftpclient.config.FtpConfig;
+
+public class ProcessedFileRegistryTest {
+
+    @Test
+    public void storePerDirectory() {
+        FtpConfig config = new FtpConfig();
+        config.setHost("localhost");
+        config.setPort(21);
+        assertFalse(ProcessedFileRegistry.storeName(config, "in").equals(ProcessedFileRegistry.storeName(config, "/in")));
+        assertFalse(ProcessedFileRegistry.storeName(config, "").equals(ProcessedFileRegistry.storeName(config, "/")));
+        assertFalse(ProcessedFileRegistry.storeName(config, "a_b").equals(ProcessedFileRegistry.storeName(config, "a/b")));
+        assertEquals(ProcessedFileRegistry.storeName(config, "in"), ProcessedFileRegistry.storeName(config, "in/"));
+    }
+}
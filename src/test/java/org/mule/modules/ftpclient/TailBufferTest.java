@@ -0,0 +1,38 @@
+package org.mule.modules.ftpclient;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class TailBufferTest {
+
+    @Test
+    public void keepsLastBytes() {
+        TailBuffer buffer = new TailBuffer(4);
+        buffer.write(new byte[] { 1, 2, 3 }, 0, 3);
+        buffer.write(new byte[] { 4, 5, 6 }, 0, 3);
+        assertEquals(2, buffer.getStart());
+        assertEquals(6, buffer.getEnd());
+        byte[] read = new byte[4];
+        buffer.read(2, read, 0, 4);
+        assertArrayEquals(new byte[] { 3, 4, 5, 6 }, read);
+    }
+
+    @Test
+    public void writeLargerThanCapacity() {
+        TailBuffer buffer = new TailBuffer(3);
+        buffer.write(new byte[] { 0, 1, 2, 3, 4, 5, 6 }, 1, 5);
+        assertEquals(2, buffer.getStart());
+        assertEquals(5, buffer.getEnd());
+        byte[] read = new byte[2];
+        buffer.read(3, read, 0, 2);
+        assertArrayEquals(new byte[] { 4, 5 }, read);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readDroppedBytes() {
+        TailBuffer buffer = new TailBuffer(2);
+        buffer.write(new byte[] { 1, 2, 3 }, 0, 3);
+        buffer.read(0, new byte[1], 0, 1);
+    }
+}
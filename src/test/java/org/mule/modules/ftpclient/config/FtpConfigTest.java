@@ -0,0 +1,57 @@
+package org.mule.modules.ftpclient.config;
+
+import static org.junit.Assert.*;
+
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Test;
+import org.mule.api.ConnectionException;
+
+public class FtpConfigTest {
+
+    @Test
+    public void roundTripBufferIsBandwidthDelayProduct() {
+        // 100 Mbit/s for 80 ms are 1 MB
+        assertEquals(1_000_000, FtpConfig.roundTripBufferSize(80_000_000L, 100));
+    }
+
+    @Test
+    public void roundTripBufferHasLimits() {
+        assertEquals(64 * 1024, FtpConfig.roundTripBufferSize(100_000L, 100));
+        assertEquals(16 * 1024 * 1024, FtpConfig.roundTripBufferSize(2_000_000_000L, 10_000));
+    }
+
+    @Test
+    public void buffersAreAppliedToClient() throws Exception {
+        FtpConfig config = new FtpConfig();
+        config.setBufferSize(128 * 1024);
+        config.setSendBufferSize(256 * 1024);
+        config.setReceiveBufferSize(512 * 1024);
+        FTPClient client = new FTPClient();
+
+        config.tune(client);
+        assertEquals(128 * 1024, client.getBufferSize());
+        assertEquals(256 * 1024, client.getSendDataSocketBufferSize());
+        assertEquals(512 * 1024, client.getReceiveDataSocketBufferSize());
+    }
+
+    @Test(expected = ConnectionException.class)
+    public void modeZLevelIsValidated() throws Exception {
+        FtpConfig config = new FtpConfig();
+        config.setModeZ(ModeZ.Always);
+        config.setModeZLevel(10);
+        config.connect("user");
+    }
+
+    @Test
+    public void manualProfileKeepsClientDefaults() throws Exception {
+        FTPClient client = new FTPClient();
+        int bufferSize = client.getBufferSize();
+        int sendBufferSize = client.getSendDataSocketBufferSize();
+        int receiveBufferSize = client.getReceiveDataSocketBufferSize();
+
+        new FtpConfig().tune(client);
+        assertEquals(bufferSize, client.getBufferSize());
+        assertEquals(sendBufferSize, client.getSendDataSocketBufferSize());
+        assertEquals(receiveBufferSize, client.getReceiveDataSocketBufferSize());
+    }
+}
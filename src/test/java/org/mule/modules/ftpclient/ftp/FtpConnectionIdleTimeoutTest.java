@@ -23,7 +23,7 @@ public class FtpConnectionIdleTimeoutTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
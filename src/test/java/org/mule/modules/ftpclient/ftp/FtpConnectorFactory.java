@@ -7,6 +7,7 @@ import java.util.List;
 import org.mule.api.ConnectionException;
 import org.mule.modules.ftpclient.FtpClientConnector;
 import org.mule.modules.ftpclient.config.FtpConfig;
+import org.mule.modules.ftpclient.config.ModeZ;
 import org.mule.modules.ftpclient.config.TransferMode;
 
 public class FtpConnectorFactory implements Closeable {
@@ -27,6 +28,7 @@ public class FtpConnectorFactory implements Closeable {
     @Override
     public void close() {
         for (FtpClientConnector fcc : created) {
+            fcc.stop();
             FtpConfig config = fcc.getConfig();
             config.disconnect();
             fcc.setConfig(null);
@@ -52,4 +54,32 @@ public class FtpConnectorFactory implements Closeable {
 
         return connector;
     }
+
+    public FtpClientConnector createModeZConnector(ModeZ modeZ) throws ConnectionException {
+        FtpConfig config = new FtpConfig();
+        config.setHost(host);
+        config.setPort(port);
+        config.setPassword(password);
+        config.setModeZ(modeZ);
+        config.connect(user);
+        FtpClientConnector connector = new FtpClientConnector();
+        connector.setConfig(config);
+        created.add(connector);
+
+        return connector;
+    }
+
+    public FtpClientConnector createAsyncCompletionConnector(int completionThreads) throws ConnectionException {
+        FtpConfig config = new FtpConfig();
+        config.setHost(host);
+        config.setPort(port);
+        config.setPassword(password);
+        config.setCompletionThreads(completionThreads);
+        config.connect(user);
+        FtpClientConnector connector = new FtpClientConnector();
+        connector.setConfig(config);
+        created.add(connector);
+
+        return connector;
+    }
 }
@@ -25,7 +25,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -35,7 +35,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
     public void getFailsWhenServerStopped() throws Exception {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
         stopFtpServer();
-        connector.getFile("", "does-not-matter", true);
+        connector.getFile("", "does-not-matter", true, -1);
     }
 
     @Test
@@ -43,7 +43,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         try {
-            connector.getFile("", "test.txt", true);
+            connector.getFile("", "test.txt", true, -1);
             fail("Exception missing");
         } catch (IOException e) {
             // expected
@@ -56,7 +56,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile(null, "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile(null, "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -68,7 +68,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(new File(fileManager.getDirectory(), "sub-dir"), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("sub-dir", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("sub-dir", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -80,7 +80,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(new File(fileManager.getDirectory(), "sub-dir"), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("/sub-dir", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("/sub-dir", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -93,7 +93,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Ascii, true);
 
         fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertFalse(HELLO.equals(IOUtils.toString(is, StandardCharsets.UTF_8)));
         }
@@ -107,7 +107,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
 
         File testFile = new File(fileManager.getDirectory(), "test.txt");
         fileManager.createTextFile(testFile, HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -120,7 +120,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
 
         fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
-        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true, -1)) {
             assertNotNull("input stream", is);
             byte[] read = IOUtils.toByteArray(is);
             assertArrayEquals(written, read);
@@ -133,7 +133,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
 
         fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
-        byte[] read = (byte[]) connector.getFile("", "test.bin", false);
+        byte[] read = (byte[]) connector.getFile("", "test.bin", false, -1);
         assertArrayEquals(written, read);
     }
 
@@ -143,7 +143,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, false);
 
         fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
-        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true, -1)) {
             assertNotNull("input stream", is);
             byte[] read = IOUtils.toByteArray(is);
             assertArrayEquals(written, read);
@@ -171,7 +171,7 @@ public class FtpGetTest extends AbstractFtpClientTest {
 
         File baseDir = fileManager.getDirectory();
         fileManager.createTextFile(new File(new File(baseDir, directory), "test.txt"), content);
-        byte[] result = (byte[]) connector.getFile(directory, "test.txt", false);
+        byte[] result = (byte[]) connector.getFile(directory, "test.txt", false, -1);
         assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), result);
     }
 }
@@ -4,14 +4,20 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Test;
 import org.mule.modules.ftpclient.FtpClientConnector;
 import org.mule.modules.ftpclient.FtpFileType;
 import org.mule.modules.ftpclient.RemoteFile;
+import org.mule.modules.ftpclient.config.FtpConfig;
+import org.mule.modules.ftpclient.config.ListingMode;
 import org.mule.modules.ftpclient.config.TransferMode;
 
 public class FtpListTest extends AbstractFtpClientTest {
@@ -39,6 +45,54 @@ public class FtpListTest extends AbstractFtpClientTest {
         }
     }
 
+    @Test
+    public void listIteratorTest() throws Exception {
+        final int count = 10;
+        for (int i = 0; i < count; i++) {
+            fileManager.createBinaryFile(new File(fileManager.getDirectory(), filename(i)), new byte[filesize(i)]);
+        }
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        Iterator<RemoteFile> iter = connector.listIterator("", "file_0[2-4]\\.txt");
+        Set<String> names = new HashSet<>();
+        while (iter.hasNext()) {
+            RemoteFile rf = iter.next();
+            assertEquals(FtpFileType.FILE, rf.getType());
+            names.add(rf.getName());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(filename(2), filename(3), filename(4))), names);
+    }
+
+    @Test
+    public void listTestWithListCommand() throws Exception {
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), filename(1)), new byte[filesize(1)]);
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        FtpConfig config = connector.getConfig();
+        config.disconnect();
+        config.setListingMode(ListingMode.List);
+        config.connect(ADMIN_USER);
+
+        Collection<RemoteFile> files = connector.list("");
+        assertEquals(1, files.size());
+        RemoteFile rf = files.iterator().next();
+        assertEquals(filename(1), rf.getName());
+        assertEquals(filesize(1), rf.getSize());
+    }
+
+    @Test
+    public void statTest() throws Exception {
+        File file = new File(fileManager.getDirectory(), filename(3));
+        fileManager.createBinaryFile(file, new byte[filesize(3)]);
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        FtpConfig config = connector.getConfig();
+
+        RemoteFile rf = config.stat("", filename(3));
+        assertEquals(filename(3), rf.getName());
+        assertEquals(filesize(3), rf.getSize());
+        assertEquals(FtpFileType.FILE, rf.getType());
+        assertEquals(file.lastModified() / 1000, rf.getTimestamp().getTime() / 1000);
+        assertNull(config.stat("", "does-not-exist"));
+    }
+
     @Test(expected = IOException.class)
     public void listNonExistingDirectory() throws Exception {
         FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
@@ -0,0 +1,43 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+import org.mule.modules.ftpclient.ConnectorMetrics;
+import org.mule.modules.ftpclient.ConnectorMetrics.Operation;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.TransferMode;
+
+public class FtpMetricsTest extends AbstractFtpClientTest {
+
+    @Test
+    public void countsOperations() throws Exception {
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        byte[] content = "Hello, world!".getBytes(StandardCharsets.UTF_8);
+        connector.putFile("", "test.txt", content, null);
+        assertArrayEquals(content, (byte[]) connector.getFile("", "test.txt", false, -1));
+        connector.list("");
+        connector.delete("", "test.txt");
+
+        ConnectorMetrics metrics = connector.getConfig().getMetrics();
+        assertEquals(1, metrics.getOperation(Operation.PUT).getCount());
+        assertEquals(1, metrics.getOperation(Operation.GET).getCount());
+        assertEquals(1, metrics.getOperation(Operation.LIST).getCount());
+        assertEquals(1, metrics.getOperation(Operation.DELETE).getCount());
+        assertTrue(metrics.getOperation(Operation.CONNECT).getCount() >= 1);
+        assertEquals(content.length, metrics.getBytesIn());
+        assertEquals(content.length, metrics.getBytesOut());
+        assertEquals(0, metrics.getOpenStreams());
+    }
+
+    @Test
+    public void registeredAsMBean() throws Exception {
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        ConnectorMetrics metrics = connector.getConfig().getMetrics();
+        assertNotNull(metrics.getObjectName());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(metrics.getObjectName()));
+    }
+}
@@ -0,0 +1,76 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.mule.modules.ftpclient.ClientWrapper;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.ModeZ;
+
+/**
+ * MODE Z against the embedded Apache FtpServer, which inflates uploads and
+ * deflates downloads in this mode. Content which arrives intact shows that
+ * both sides switched.
+ */
+public class FtpModeZServerTest extends AbstractFtpClientTest {
+    private static final byte[] CONTENT = StringUtils.repeat("id;name;amount\n1;foo;12.50\n", 10_000)
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void putAndGetDeflated() throws Exception {
+        FtpClientConnector connector = connectorFactory.createModeZConnector(ModeZ.Always);
+
+        connector.putFile("", "data.csv", new ByteArrayInputStream(CONTENT), null);
+        assertTrue("MODE Z not used", isDeflateMode(connector));
+        assertArrayEquals(CONTENT, fileManager.readBinaryFile(new File(fileManager.getDirectory(), "data.csv")));
+
+        assertArrayEquals(CONTENT, (byte[]) connector.getFile("", "data.csv", false, -1));
+        assertTrue("MODE Z not used", isDeflateMode(connector));
+    }
+
+    @Test
+    public void listingSwitchesBackToStreamMode() throws Exception {
+        FtpClientConnector connector = connectorFactory.createModeZConnector(ModeZ.Always);
+
+        connector.putFile("", "data.csv", new ByteArrayInputStream(CONTENT), null);
+        assertEquals(1, connector.list("").size());
+        assertFalse("listing read in MODE Z", isDeflateMode(connector));
+        // and to MODE Z again
+        assertArrayEquals(CONTENT, (byte[]) connector.getFile("", "data.csv", false, -1));
+    }
+
+    @Test
+    public void autoWithoutFeatureStaysUncompressed() throws Exception {
+        // FtpServer doesn't announce MODE Z in FEAT
+        FtpClientConnector connector = connectorFactory.createModeZConnector(ModeZ.Auto);
+
+        connector.putFile("", "data.csv", new ByteArrayInputStream(CONTENT), null);
+        assertFalse(isDeflateMode(connector));
+        assertArrayEquals(CONTENT, (byte[]) connector.getFile("", "data.csv", false, -1));
+    }
+
+    private static boolean isDeflateMode(FtpClientConnector connector) throws Exception {
+        final AtomicBoolean deflateMode = new AtomicBoolean();
+        connector.getConfig().runWithClient(new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper wrapper) {
+                try {
+                    Field field = FtpClientWrapper.class.getDeclaredField("deflateMode");
+                    field.setAccessible(true);
+                    deflateMode.set(field.getBoolean(wrapper));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        return deflateMode.get();
+    }
+}
@@ -0,0 +1,112 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.net.ftp.FTPClient;
+import org.junit.Test;
+import org.mule.modules.ftpclient.ClientWrapper;
+
+public class FtpModeZTest {
+    private static final byte[] CONTENT = StringUtils.repeat("id;name;amount\n1;foo;12.50\n", 1000)
+            .getBytes(StandardCharsets.UTF_8);
+    private static final Consumer<ClientWrapper> NOTHING = new Consumer<ClientWrapper>() {
+        @Override
+        public void accept(ClientWrapper wrapper) {
+            // nothing to complete
+        }
+    };
+
+    @Test
+    public void uploadIsDeflated() throws IOException {
+        FakeClient client = new FakeClient();
+        FtpClientWrapper wrapper = new FtpClientWrapper(client);
+        wrapper.setDeflateLevel(6);
+        try (OutputStream out = wrapper.getOutputStream("", "a.csv", false)) {
+            out.write(CONTENT);
+        }
+        assertEquals(Arrays.asList("MODE Z", "STOR a.csv"), client.commands);
+        byte[] sent = client.stored.toByteArray();
+        assertTrue(sent.length < CONTENT.length / 3);
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(sent))));
+    }
+
+    @Test
+    public void downloadIsInflated() throws IOException {
+        FakeClient client = new FakeClient();
+        ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(deflated)) {
+            out.write(CONTENT);
+        }
+        client.retrieved = deflated.toByteArray();
+        FtpClientWrapper wrapper = new FtpClientWrapper(client);
+        wrapper.setDeflateLevel(6);
+        try (InputStream is = wrapper.getInputStream("", "a.csv", 0, NOTHING)) {
+            assertArrayEquals(CONTENT, IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void restartUsesStreamMode() throws IOException {
+        FakeClient client = new FakeClient();
+        client.retrieved = new byte[0];
+        FtpClientWrapper wrapper = new FtpClientWrapper(client);
+        wrapper.setDeflateLevel(6);
+        wrapper.getOutputStream("", "a.csv", false).close();
+        wrapper.getInputStream("", "a.csv", 100, NOTHING).close();
+        assertEquals(Arrays.asList("MODE Z", "STOR a.csv", "MODE S", "RETR a.csv"), client.commands);
+    }
+
+    private static class FakeClient extends FTPClient {
+        private final List<String> commands = new ArrayList<>();
+        private final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+        private byte[] retrieved;
+
+        @Override
+        public int sendCommand(String command, String args) {
+            commands.add(command + " " + args);
+            return 200;
+        }
+
+        @Override
+        public OutputStream storeFileStream(String remote) {
+            commands.add("STOR " + remote);
+            return stored;
+        }
+
+        @Override
+        public InputStream retrieveFileStream(String remote) {
+            commands.add("RETR " + remote);
+            return new ByteArrayInputStream(retrieved);
+        }
+
+        @Override
+        public boolean completePendingCommand() {
+            return true;
+        }
+
+        @Override
+        public boolean changeWorkingDirectory(String pathname) {
+            return true;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+}
@@ -6,7 +6,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
@@ -15,9 +18,13 @@ import org.mule.api.MuleMessage;
 import org.mule.api.transport.PropertyScope;
 import org.mule.modules.ftpclient.AutoCloseOnEOFInputStream;
 import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.PollOrder;
+import org.mule.modules.ftpclient.ProcessedFileRegistry;
+import org.mule.modules.ftpclient.RegistryMode;
 import org.mule.modules.ftpclient.config.TransferMode;
 import org.mule.modules.ftpclient.util.PollingThread;
 import org.mule.modules.ftpclient.util.SourceCallbackRecorder;
+import org.mule.util.store.SimpleMemoryObjectStore;
 
 public class FtpPollTest extends AbstractFtpClientTest {
     private PollingThread pollingThread;
@@ -81,6 +88,202 @@ public class FtpPollTest extends AbstractFtpClientTest {
         assertDeleted(new File(fileManager.getDirectory(), "test.txt"), 5_000);
     }
 
+    @Test
+    public void pollInParallel() throws Exception {
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            fileManager.createTextFile(new File(fileManager.getDirectory(), "test-" + i + ".txt"), "Hello " + i);
+        }
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "", ".*", "", true, false, callback).setParallelism(4);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(count, 10_000);
+        assertEquals(count, messages.size());
+        for (int i = 0; i < count; i++) {
+            assertDeleted(new File(fileManager.getDirectory(), "test-" + i + ".txt"), 5_000);
+        }
+
+        // The worker threads are shared and stopped with the connector
+        pollingThread.interrupt();
+        pollingThread.join(1_000);
+        connector.stop();
+        long end = System.currentTimeMillis() + 5_000;
+        while (countThreads("ftp-client-worker-") > 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, countThreads("ftp-client-worker-"));
+    }
+
+    private static int countThreads(String prefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void pollWithPrefetch() throws Exception {
+        pollWithPrefetch(false);
+    }
+
+    @Test
+    public void pollWithPrefetchStreaming() throws Exception {
+        pollWithPrefetch(true);
+    }
+
+    private void pollWithPrefetch(boolean streaming) throws Exception {
+        final int count = 10;
+        for (int i = 0; i < count; i++) {
+            fileManager.createTextFile(new File(fileManager.getDirectory(), "test-" + i + ".txt"), "Hello " + i);
+        }
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        // While a file is in the flow, the next one has to be downloaded
+        final List<String> notPrefetched = Collections.synchronizedList(new ArrayList<String>());
+        SourceCallbackRecorder callback = new SourceCallbackRecorder() {
+            @Override
+            public synchronized Object process(Object payload, Map<String, Object> properties) throws Exception {
+                int handed = getMessages().size() + 1;
+                int expected = Math.min(handed + 1, count);
+                long end = System.currentTimeMillis() + 5_000;
+                while (ftpServer.getTotalDownloadNumber() < expected && System.currentTimeMillis() < end) {
+                    Thread.sleep(10);
+                }
+                if (ftpServer.getTotalDownloadNumber() < expected) {
+                    notPrefetched.add((String) properties.get("filename"));
+                }
+                return super.process(payload, properties);
+            }
+        };
+        pollingThread = new PollingThread(connector, 1000, "", ".*", "", true, streaming, callback).setPrefetch(2)
+                .setMaxFilesPerPoll(count, PollOrder.Name);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(count, 30_000);
+        assertEquals(count, messages.size());
+        assertEquals(Collections.emptyList(), notPrefetched);
+        for (int i = 0; i < count; i++) {
+            // in listing order
+            assertEquals("test-" + i + ".txt", messages.get(i).getInboundProperty("filename"));
+        }
+        for (MuleMessage message : messages) {
+            String name = message.getInboundProperty("filename");
+            Object payload = message.getPayload();
+            byte[] content;
+            if (streaming) {
+                try (InputStream is = (InputStream) payload) {
+                    content = IOUtils.toByteArray(is);
+                }
+            } else {
+                content = (byte[]) payload;
+            }
+            assertEquals("Hello " + name.substring(5, name.length() - 4), new String(content, StandardCharsets.UTF_8));
+        }
+        for (int i = 0; i < count; i++) {
+            assertDeleted(new File(fileManager.getDirectory(), "test-" + i + ".txt"), 5_000);
+        }
+    }
+
+    @Test
+    public void pollRecursive() throws Exception {
+        File root = fileManager.getDirectory();
+        fileManager.createTextFile(new File(root, "top.txt"), "top");
+        fileManager.createTextFile(new File(root, "in/a/20170517/a.txt"), "a");
+        fileManager.createTextFile(new File(root, "in/b/20170517/b.txt"), "b");
+        fileManager.createTextFile(new File(root, "in/b/20170518/c.txt"), "c");
+        fileManager.createTextFile(new File(root, "in/skip/20170517/d.txt"), "d");
+        fileManager.createTextFile(new File(root, "in/a/20170517/too/deep/e.txt"), "e");
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 1000, "in", ".*\\.txt", "", true, false, callback)
+                .setRecursion(3, "[^/]+/\\d{8}", "skip").setParallelism(2);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(3, 10_000);
+        assertEquals(3, messages.size());
+        assertDeleted(new File(root, "in/a/20170517/a.txt"), 5_000);
+        assertDeleted(new File(root, "in/b/20170517/b.txt"), 5_000);
+        assertDeleted(new File(root, "in/b/20170518/c.txt"), 5_000);
+        assertTrue(new File(root, "top.txt").isFile());
+        assertTrue(new File(root, "in/skip/20170517/d.txt").isFile());
+        assertTrue(new File(root, "in/a/20170517/too/deep/e.txt").isFile());
+    }
+
+    @Test
+    public void pollWithMaxFilesInNameOrder() throws Exception {
+        final int count = 7;
+        for (int i = count - 1; i >= 0; i--) {
+            fileManager.createTextFile(new File(fileManager.getDirectory(), "test-" + i + ".txt"), "Hello " + i);
+        }
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "", ".*", "", true, false, callback)
+                .setMaxFilesPerPoll(2, PollOrder.Name);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(count, 10_000);
+        assertEquals(count, messages.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("test-" + i + ".txt", messages.get(i).getInboundProperty("filename"));
+        }
+    }
+
+    @Test
+    public void pollWithMaxFilesWithoutWaitingForTrigger() throws Exception {
+        final int count = 7;
+        for (int i = 0; i < count; i++) {
+            fileManager.createTextFile(new File(fileManager.getDirectory(), "test-" + i + ".txt"), "Hello " + i);
+        }
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        // No backoff, the capped polls follow each other within one trigger
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 60_000, "", ".*", "", true, false, callback)
+                .setMaxFilesPerPoll(2, PollOrder.Name);
+        pollingThread.start();
+        assertEquals(count, callback.waitForMessages(count, 10_000).size());
+    }
+
+    @Test
+    public void pollWithAsyncCompletion() throws Exception {
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            fileManager.createTextFile(new File(fileManager.getDirectory(), "test-" + i + ".txt"), "Hello " + i);
+        }
+
+        FtpClientConnector connector = connectorFactory.createAsyncCompletionConnector(2);
+        connector.setMuleContext(createMuleContext());
+        assertNotNull(connector.getConfig().getCompletionExecutor());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 10, "", ".*", "", true, false, callback);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(count, 10_000);
+        for (int i = 0; i < count; i++) {
+            assertDeleted(new File(fileManager.getDirectory(), "test-" + i + ".txt"), 5_000);
+        }
+        assertEquals(count, messages.size());
+        // Files with a pending delete are not read twice
+        assertEquals(count, callback.waitForMessages(count + 1, 500).size());
+
+        connector.getConfig().disconnect();
+        assertNull(connector.getConfig().getCompletionExecutor());
+    }
+
     @Test
     public void pollForExistingFileDoNotDelete() throws Exception {
         final String HELLO = "Hello, world!";
@@ -101,6 +304,43 @@ public class FtpPollTest extends AbstractFtpClientTest {
         assertTrue(new File(fileManager.getDirectory(), "test.txt").isFile());
     }
 
+    @Test
+    public void pollWithRegistryDoNotDelete() throws Exception {
+        fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), "Hello");
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+        objectStoreManagerMock.storeResult(new SimpleMemoryObjectStore<String>(), "getObjectStore",
+                ProcessedFileRegistry.storeName(connector.getConfig(), ""), false);
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "", ".*", "", false, false, callback)
+                .setRegistryMode(RegistryMode.InMemory);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(1, 10_000);
+        assertEquals(1, messages.size());
+        Thread.sleep(1_000);
+        assertEquals(1, callback.getMessages().size());
+        assertTrue(new File(fileManager.getDirectory(), "test.txt").isFile());
+    }
+
+    @Test
+    public void pollStableFile() throws Exception {
+        fileManager.createTextFile(new File(fileManager.getDirectory(), "test.txt"), "Hello");
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        long start = System.currentTimeMillis();
+        pollingThread = new PollingThread(connector, 100, "", ".*", "", true, false, callback).setStability(2, 500);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(1, 10_000);
+        assertEquals(1, messages.size());
+        assertTrue(System.currentTimeMillis() - start >= 500);
+        assertDeleted(new File(fileManager.getDirectory(), "test.txt"), 5_000);
+    }
+
     @Test
     public void pollForExistingFileStreaming() throws Exception {
         final String HELLO = "Hello, world!";
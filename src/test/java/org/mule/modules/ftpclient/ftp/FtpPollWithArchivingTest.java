@@ -6,7 +6,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.junit.After;
@@ -150,6 +154,59 @@ public class FtpPollWithArchivingTest extends AbstractFtpClientTest {
         checkFile(new File(input, TEST_TXT_OK + ".archive"), new byte[0]);
     }
 
+    @Test
+    public void pollWithBatchCompletion() throws Exception {
+        fileManager.createBinaryFile(new File(input, TEST_TXT), HELLO_BYTES);
+        fileManager.createBinaryFile(new File(input, TEST_TXT_OK), new byte[0]);
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        // the actions run after both files have been handed to the flow
+        final List<Boolean> presentInFlow = Collections.synchronizedList(new ArrayList<Boolean>());
+        SourceCallbackRecorder callback = new SourceCallbackRecorder() {
+            @Override
+            public synchronized Object process(Object payload, Map<String, Object> properties) throws Exception {
+                presentInFlow.add(new File(input, TEST_TXT).exists() && new File(input, TEST_TXT_OK).exists());
+                return super.process(payload, properties);
+            }
+        };
+        pollingThread = new PollingThread(connector, 100, INPUT, ".*", "", false, "../" + ARCHIVE, false, callback)
+                .setParallelism(2).setBatchCompletion(true);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(2, 10_000);
+        assertEquals(2, messages.size());
+        assertEquals(Arrays.asList(true, true), presentInFlow);
+        assertDeleted(new File(input, TEST_TXT), 5_000);
+        assertDeleted(new File(input, TEST_TXT_OK), 5_000);
+        checkFile(new File(archive, TEST_TXT), HELLO_BYTES);
+        checkFile(new File(archive, TEST_TXT_OK), new byte[0]);
+    }
+
+    @Test
+    public void pollWithBatchCompletionAndPrefetch() throws Exception {
+        fileManager.createBinaryFile(new File(input, TEST_TXT), HELLO_BYTES);
+        fileManager.createBinaryFile(new File(input, TEST_TXT_OK), new byte[0]);
+
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        connector.setMuleContext(createMuleContext());
+
+        // the prefetched files queue their actions without a connection
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, INPUT, ".*", "", false, "../" + ARCHIVE, true, callback)
+                .setPrefetch(2).setBatchCompletion(true);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(2, 10_000);
+        assertEquals(2, messages.size());
+        for (MuleMessage message : messages) {
+            ((InputStream) message.getPayload()).close();
+        }
+        assertDeleted(new File(input, TEST_TXT), 5_000);
+        assertDeleted(new File(input, TEST_TXT_OK), 5_000);
+        checkFile(new File(archive, TEST_TXT), HELLO_BYTES);
+        checkFile(new File(archive, TEST_TXT_OK), new byte[0]);
+    }
+
     private void checkFile(MuleMessage message, byte[] content, String originalFilename, String filename, long length,
             boolean streaming) throws IOException {
         assertEquals(4, message.getPropertyNames(PropertyScope.INBOUND).size());
@@ -0,0 +1,46 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.FtpConfig;
+import org.mule.modules.ftpclient.config.TransferMode;
+
+public class FtpPoolTest extends AbstractFtpClientTest {
+
+    @Test
+    public void twoStreamsAtTheSameTime() throws Exception {
+        fileManager.createTextFile(new File(fileManager.getDirectory(), "a.txt"), "A");
+        fileManager.createTextFile(new File(fileManager.getDirectory(), "b.txt"), "B");
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+
+        try (InputStream a = (InputStream) connector.getFile("", "a.txt", true, -1);
+                InputStream b = (InputStream) connector.getFile("", "b.txt", true, -1)) {
+            assertEquals("B", IOUtils.toString(b, StandardCharsets.UTF_8));
+            assertEquals("A", IOUtils.toString(a, StandardCharsets.UTF_8));
+        }
+        assertEquals(2, connector.list("").size());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void borrowTimeout() throws Exception {
+        fileManager.createTextFile(new File(fileManager.getDirectory(), "a.txt"), "A");
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        FtpConfig config = connector.getConfig();
+        config.disconnect();
+        config.setPoolMaxActive(1);
+        config.setPoolMaxWait(100);
+        config.connect(ADMIN_USER);
+
+        try (InputStream a = (InputStream) connector.getFile("", "a.txt", true, -1)) {
+            connector.list("");
+        }
+    }
+}
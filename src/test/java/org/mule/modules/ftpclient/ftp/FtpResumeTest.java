@@ -0,0 +1,254 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.mule.api.MuleMessage;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.FtpConfig;
+import org.mule.modules.ftpclient.config.TransferMode;
+import org.mule.modules.ftpclient.util.PollingThread;
+import org.mule.modules.ftpclient.util.SourceCallbackRecorder;
+
+public class FtpResumeTest extends AbstractFtpClientTest {
+
+    @Test
+    public void putAndGetWithResume() throws Exception {
+        byte[] written = createContent(300_000);
+        FtpClientConnector connector = createResumingConnector();
+
+        connector.putFile("", "test.bin", new ByteArrayInputStream(written), null);
+        assertArrayEquals(written, fileManager.readBinaryFile(new File(fileManager.getDirectory(), "test.bin")));
+
+        byte[] read = (byte[]) connector.getFile("", "test.bin", false, -1);
+        assertArrayEquals(written, read);
+        // Connections must still be usable
+        assertEquals(1, connector.list("").size());
+    }
+
+    @Test
+    public void appendToPartialFile() throws Exception {
+        byte[] written = createContent(10_000);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), Arrays.copyOf(written, 4_000));
+        FtpConfig config = createResumingConnector().getConfig();
+
+        try (OutputStream out = config.openOutputStream("", "test.bin", true)) {
+            out.write(written, 4_000, 6_000);
+        }
+        assertArrayEquals(written, fileManager.readBinaryFile(new File(fileManager.getDirectory(), "test.bin")));
+    }
+
+    @Test
+    public void shortFileIsFailure() throws Exception {
+        byte[] written = createContent(10_000);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
+        FtpConfig config = createResumingConnector().getConfig();
+
+        try (InputStream is = config.getInputStream("", "test.bin", 12_000L, null)) {
+            IOUtils.toByteArray(is);
+            fail("Missing bytes not detected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void getResumesAfterBrokenDataConnection() throws Exception {
+        byte[] written = randomContent(300_000);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
+        FlakyFtpConfig config = createFlakyConfig(2, 0);
+        try {
+            try (InputStream is = config.getInputStream("", "test.bin", written.length, null)) {
+                assertArrayEquals(written, IOUtils.toByteArray(is));
+            }
+            assertEquals(3, config.reads.get());
+        } finally {
+            config.disconnect();
+        }
+    }
+
+    @Test
+    public void getFailsWhenResumeAttemptsAreExhausted() throws Exception {
+        byte[] written = randomContent(300_000);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
+        FlakyFtpConfig config = createFlakyConfig(3, 0);
+        try {
+            try (InputStream is = config.getInputStream("", "test.bin", written.length, null)) {
+                IOUtils.toByteArray(is);
+                fail("Broken transfer not reported");
+            } catch (IOException e) {
+                // expected
+            }
+            // the first transfer and two resume attempts
+            assertEquals(3, config.reads.get());
+        } finally {
+            config.disconnect();
+        }
+    }
+
+    @Test
+    public void putResumesAfterBrokenDataConnection() throws Exception {
+        byte[] written = randomContent(300_000);
+        FlakyFtpConfig config = createFlakyConfig(0, 2);
+        try {
+            try (OutputStream out = config.getOutputStream("", "test.bin")) {
+                out.write(written);
+            }
+            assertEquals(3, config.writes.get());
+            assertArrayEquals(written, fileManager.readBinaryFile(new File(fileManager.getDirectory(), "test.bin")));
+        } finally {
+            config.disconnect();
+        }
+    }
+
+    @Test
+    public void pollWithDeleteInSubdirectoryAfterResume() throws Exception {
+        byte[] written = randomContent(300_000);
+        File file = new File(fileManager.getDirectory(), "sub/in/test.bin");
+        fileManager.createBinaryFile(file, written);
+        FlakyFtpConfig config = createFlakyConfig(1, 0);
+        PollingThread pollingThread = null;
+        try {
+            // With paths the resumed download doesn't change into the
+            // directory, so the connection of the delete may be elsewhere
+            config.disconnect();
+            config.setUseFullPaths(true);
+            config.connect(ADMIN_USER);
+            FtpClientConnector connector = new FtpClientConnector();
+            connector.setConfig(config);
+            connector.setMuleContext(createMuleContext());
+
+            SourceCallbackRecorder callback = new SourceCallbackRecorder();
+            pollingThread = new PollingThread(connector, 100, "sub/in", ".*", "", true, false, callback);
+            pollingThread.start();
+            List<MuleMessage> messages = callback.waitForMessages(1, 10_000);
+            assertEquals(1, messages.size());
+            assertArrayEquals(written, (byte[]) messages.get(0).getPayload());
+            assertDeleted(file, 5_000);
+            assertEquals(2, config.reads.get());
+        } finally {
+            if (pollingThread != null) {
+                pollingThread.interrupt();
+                pollingThread.join(1_000);
+            }
+            config.disconnect();
+        }
+    }
+
+    private FlakyFtpConfig createFlakyConfig(int failingReads, int failingWrites) throws Exception {
+        FlakyFtpConfig config = new FlakyFtpConfig(failingReads, failingWrites);
+        config.setHost("localhost");
+        config.setPort(port);
+        config.setPassword(ADMIN_PASSWORD);
+        config.setResumeAttempts(2);
+        config.setResumeBufferSize(400_000);
+        config.connect(ADMIN_USER);
+        return config;
+    }
+
+    private static byte[] randomContent(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private FtpClientConnector createResumingConnector() throws Exception {
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        FtpConfig config = connector.getConfig();
+        config.setResumeAttempts(2);
+        config.setResumeBufferSize(100_000);
+        return connector;
+    }
+
+    /**
+     * Breaks the data connection of the first transfers after
+     * {@link #BREAK_AFTER} bytes, like a dropped connection.
+     */
+    private static class FlakyFtpConfig extends FtpConfig {
+        private static final int BREAK_AFTER = 50_000;
+        private final int failingReads;
+        private final int failingWrites;
+        final AtomicInteger reads = new AtomicInteger();
+        final AtomicInteger writes = new AtomicInteger();
+
+        FlakyFtpConfig(int failingReads, int failingWrites) {
+            this.failingReads = failingReads;
+            this.failingWrites = failingWrites;
+        }
+
+        @Override
+        public InputStream getInputStream(String directory, String filename, long offset) throws Exception {
+            InputStream is = super.getInputStream(directory, filename, offset);
+            if (reads.incrementAndGet() > failingReads) {
+                return is;
+            }
+            return new FilterInputStream(is) {
+                private int count;
+                private boolean broken;
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (count >= BREAK_AFTER) {
+                        close();
+                        broken = true;
+                        throw new IOException("Connection reset");
+                    }
+                    int n = in.read(b, off, Math.min(len, BREAK_AFTER - count));
+                    count += Math.max(n, 0);
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!broken) {
+                        super.close();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public OutputStream openOutputStream(String directory, String filename, boolean append) throws Exception {
+            OutputStream out = super.openOutputStream(directory, filename, append);
+            if (writes.incrementAndGet() > failingWrites) {
+                return out;
+            }
+            return new FilterOutputStream(out) {
+                private int count;
+                private boolean broken;
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    int n = Math.min(len, BREAK_AFTER - count);
+                    out.write(b, off, n);
+                    count += n;
+                    if (n < len) {
+                        close();
+                        broken = true;
+                        throw new IOException("Connection reset");
+                    }
+                }
+
+                @Override
+                public void close() throws IOException {
+                    if (!broken) {
+                        super.close();
+                    }
+                }
+            };
+        }
+    }
+}
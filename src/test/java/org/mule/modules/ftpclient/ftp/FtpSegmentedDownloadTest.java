@@ -0,0 +1,96 @@
+package org.mule.modules.ftpclient.ftp;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Test;
+import org.mule.api.MuleMessage;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.FtpConfig;
+import org.mule.modules.ftpclient.config.TransferMode;
+import org.mule.modules.ftpclient.util.PollingThread;
+import org.mule.modules.ftpclient.util.SourceCallbackRecorder;
+
+public class FtpSegmentedDownloadTest extends AbstractFtpClientTest {
+    private PollingThread pollingThread;
+
+    @Override
+    @After
+    public void cleanup() throws Exception {
+        if (pollingThread != null) {
+            pollingThread.interrupt();
+            pollingThread.join(1_000);
+        }
+        super.cleanup();
+    }
+
+    @Test
+    public void getFileInSegments() throws Exception {
+        byte[] written = createContent(1_000_001);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
+        FtpClientConnector connector = createSegmentingConnector();
+
+        byte[] read = (byte[]) connector.getFile("", "test.bin", false, -1);
+        assertArrayEquals(written, read);
+
+        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true, -1)) {
+            assertArrayEquals(written, IOUtils.toByteArray(is));
+        }
+        // Connections must still be usable
+        assertEquals(1, connector.list("").size());
+        // Segments ending early are aborted, their connections are reused
+        assertTrue(ftpServer.getTotalConnectionNumber() <= 3);
+    }
+
+    @Test
+    public void pollInSegments() throws Exception {
+        byte[] written = createContent(500_000);
+        fileManager.createBinaryFile(new File(fileManager.getDirectory(), "test.bin"), written);
+        FtpClientConnector connector = createSegmentingConnector();
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "", ".*", "", true, false, callback);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(1, 10_000);
+        assertEquals(1, messages.size());
+        assertArrayEquals(written, (byte[]) messages.get(0).getPayload());
+        assertDeleted(new File(fileManager.getDirectory(), "test.bin"), 5_000);
+    }
+
+    @Test
+    public void pollInSegmentsFromSubdirectory() throws Exception {
+        byte[] written = createContent(500_000);
+        File file = new File(fileManager.getDirectory(), "sub/in/test.bin");
+        fileManager.createBinaryFile(file, written);
+        FtpClientConnector connector = createSegmentingConnector();
+        // With paths the segments don't change into the directory, so the
+        // connection of the delete is still in the login directory
+        FtpConfig config = connector.getConfig();
+        config.disconnect();
+        config.setUseFullPaths(true);
+        config.connect(ADMIN_USER);
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "sub/in", ".*", "", true, false, callback);
+        pollingThread.start();
+        List<MuleMessage> messages = callback.waitForMessages(1, 10_000);
+        assertEquals(1, messages.size());
+        assertArrayEquals(written, (byte[]) messages.get(0).getPayload());
+        assertDeleted(file, 5_000);
+    }
+
+    private FtpClientConnector createSegmentingConnector() throws Exception {
+        FtpClientConnector connector = connectorFactory.createConnector(TransferMode.Binary, true);
+        FtpConfig config = connector.getConfig();
+        config.setSegmentSize(100_000);
+        config.setSegmentParallelism(3);
+        return connector;
+    }
+}
@@ -9,6 +9,7 @@ import org.apache.ftpserver.FtpServerFactory;
 import org.apache.ftpserver.filesystem.nativefs.NativeFileSystemFactory;
 import org.apache.ftpserver.ftplet.FtpException;
 import org.apache.ftpserver.ftplet.UserManager;
+import org.apache.ftpserver.impl.DefaultFtpServer;
 import org.apache.ftpserver.listener.ListenerFactory;
 
 /**
@@ -62,6 +63,21 @@ public class SimpleFtpServer {
         return port;
     }
 
+    /**
+     * @return Number of connections accepted since the server has been
+     *         started.
+     */
+    public int getTotalConnectionNumber() {
+        return ((DefaultFtpServer) server).getServerContext().getFtpStatistics().getTotalConnectionNumber();
+    }
+
+    /**
+     * @return Number of completed downloads since the server has been started.
+     */
+    public int getTotalDownloadNumber() {
+        return ((DefaultFtpServer) server).getServerContext().getFtpStatistics().getTotalDownloadNumber();
+    }
+
     public void startServer() throws IOException, FtpException {
         if (port == 0) {
             try (ServerSocket socket = new ServerSocket(0)) {
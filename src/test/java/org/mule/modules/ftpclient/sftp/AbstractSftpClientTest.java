@@ -50,6 +50,7 @@ public abstract class AbstractSftpClientTest extends AbstractClientTest {
         c.addUser(new SftpUser(PWD_USER_NAME, pwdUserDir.toPath(), true).setPassword(PWD_USER_PWD));
         c.addUser(new SftpUser("key-user", keyUserDir.toPath(), true).addKey(KEY_USER_KEY));
         c.setPort(port);
+        c.setCompress(true);
         ftpServer = new SftpServer(c);
         ftpServer.start();
 
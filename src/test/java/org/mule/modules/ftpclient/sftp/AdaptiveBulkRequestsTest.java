@@ -0,0 +1,97 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.output.NullOutputStream;
+import org.junit.Test;
+
+public class AdaptiveBulkRequestsTest {
+    private static final long MB = AdaptiveBulkRequests.MIN_BYTES;
+
+    @Test
+    public void doublesWhileThroughputImproves() {
+        AdaptiveBulkRequests adaptive = new AdaptiveBulkRequests(16, 128);
+        step(adaptive, 16, 100);
+        assertEquals(32, adaptive.current());
+        step(adaptive, 32, 50);
+        assertEquals(64, adaptive.current());
+        // no improvement, back to 32
+        step(adaptive, 64, 48);
+        assertEquals(32, adaptive.current());
+        assertTrue(adaptive.isSettled());
+        step(adaptive, 32, 10);
+        assertEquals(32, adaptive.current());
+    }
+
+    @Test
+    public void stopsAtMaximum() {
+        AdaptiveBulkRequests adaptive = new AdaptiveBulkRequests(16, 32);
+        step(adaptive, 16, 100);
+        step(adaptive, 32, 50);
+        assertEquals(32, adaptive.current());
+        assertTrue(adaptive.isSettled());
+    }
+
+    @Test
+    public void ignoresSmallAndStaleTransfers() {
+        AdaptiveBulkRequests adaptive = new AdaptiveBulkRequests(16, 128);
+        for (int i = 0; i < 10; i++) {
+            adaptive.record(16, MB - 1, 1_000_000L);
+            adaptive.record(8, MB, 1_000_000L);
+        }
+        assertEquals(16, adaptive.current());
+        assertFalse(adaptive.isSettled());
+    }
+
+    @Test
+    public void timesOnlyReads() throws Exception {
+        RecordingBulkRequests adaptive = new RecordingBulkRequests();
+        try (InputStream is = adaptive.track(new ByteArrayInputStream(new byte[(int) MB]), 16)) {
+            byte[] buffer = new byte[(int) MB / 4];
+            while (is.read(buffer) > 0) {
+                Thread.sleep(50);
+            }
+        }
+        assertEquals(MB, adaptive.transferred);
+        assertTrue(adaptive.duration + " ns", adaptive.duration < 50_000_000L);
+    }
+
+    @Test
+    public void timesOnlyWrites() throws Exception {
+        RecordingBulkRequests adaptive = new RecordingBulkRequests();
+        try (OutputStream out = adaptive.track(new NullOutputStream(), 16)) {
+            byte[] buffer = new byte[(int) MB / 4];
+            for (int i = 0; i < 4; i++) {
+                out.write(buffer);
+                Thread.sleep(50);
+            }
+        }
+        assertEquals(MB, adaptive.transferred);
+        assertTrue(adaptive.duration + " ns", adaptive.duration < 50_000_000L);
+    }
+
+    private static void step(AdaptiveBulkRequests adaptive, int level, long millisPerMb) {
+        for (int i = 0; i < AdaptiveBulkRequests.SAMPLES_PER_STEP; i++) {
+            adaptive.record(level, MB, millisPerMb * 1_000_000L);
+        }
+    }
+
+    private static class RecordingBulkRequests extends AdaptiveBulkRequests {
+        long transferred;
+        long duration;
+
+        RecordingBulkRequests() {
+            super(16, 128);
+        }
+
+        @Override
+        public synchronized void record(int level, long transferred, long duration) {
+            this.transferred = transferred;
+            this.duration = duration;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+public class CompressibilityTest {
+
+    @Test
+    public void compressedNames() {
+        assertTrue(Compressibility.isCompressedName("archive.ZIP"));
+        assertTrue(Compressibility.isCompressedName("data.csv.gz"));
+        assertFalse(Compressibility.isCompressedName("data.csv"));
+        assertFalse(Compressibility.isCompressedName("README"));
+    }
+
+    @Test
+    public void textIsCompressible() {
+        byte[] text = StringUtils.repeat("id;name;amount\n1;foo;12.50\n", 1000).getBytes(StandardCharsets.UTF_8);
+        assertTrue(Compressibility.isCompressible(text, text.length));
+    }
+
+    @Test
+    public void randomIsNotCompressible() {
+        byte[] random = new byte[Compressibility.SAMPLE_SIZE];
+        new Random(1).nextBytes(random);
+        assertFalse(Compressibility.isCompressible(random, random.length));
+    }
+
+    @Test
+    public void samplingDecidesWhenSampleIsComplete() throws IOException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        final Boolean[] decision = new Boolean[1];
+        OutputStream out = new SamplingOutputStream(10) {
+            @Override
+            protected OutputStream open(boolean compressible) {
+                decision[0] = compressible;
+                return target;
+            }
+        };
+        out.write(new byte[] { 1, 2, 3 });
+        out.flush();
+        assertNull(decision[0]);
+        out.write(new byte[12], 0, 12);
+        assertNotNull(decision[0]);
+        out.write(7);
+        out.close();
+        assertEquals(16, target.size());
+        assertEquals(7, target.toByteArray()[15]);
+    }
+
+    @Test
+    public void samplingOpensOnCloseForShortContent() throws IOException {
+        final ByteArrayOutputStream target = new ByteArrayOutputStream();
+        OutputStream out = new SamplingOutputStream(100) {
+            @Override
+            protected OutputStream open(boolean compressible) {
+                return target;
+            }
+        };
+        out.write(new byte[] { 1, 2, 3 });
+        out.close();
+        assertArrayEquals(new byte[] { 1, 2, 3 }, target.toByteArray());
+    }
+}
@@ -0,0 +1,104 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.mule.modules.ftpclient.ClientWrapper;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.SshCompression;
+
+import com.jcraft.jsch.ChannelSftp;
+import com.jcraft.jsch.Session;
+
+public class SftpCompressionTest extends AbstractSftpClientTest {
+    // indexes of the negotiated algorithms in Session.guess
+    private static final int COMPRESSION_C2S = 6;
+    private static final int COMPRESSION_S2C = 7;
+
+    @Test
+    public void zlib() throws Exception {
+        FtpClientConnector connector = connectorFactory.createCompressedConnector(PWD_USER_NAME, PWD_USER_PWD,
+                SshCompression.Zlib, false);
+        putAndGet(connector, "data.csv", csv());
+        assertCompression("zlib", channel(pooledWrapper(connector)));
+    }
+
+    @Test
+    public void zlibOpenssh() throws Exception {
+        FtpClientConnector connector = connectorFactory.createCompressedConnector(PWD_USER_NAME, PWD_USER_PWD,
+                SshCompression.ZlibOpenssh, false);
+        putAndGet(connector, "data.csv", csv());
+        assertCompression("zlib@openssh.com", channel(pooledWrapper(connector)));
+    }
+
+    @Test
+    public void bypassForIncompressibleContent() throws Exception {
+        FtpClientConnector connector = connectorFactory.createCompressedConnector(PWD_USER_NAME, PWD_USER_PWD,
+                SshCompression.Zlib, true);
+        byte[] random = new byte[200_000];
+        new Random(3).nextBytes(random);
+        putAndGet(connector, "sub/data.csv", csv());
+        SftpClientWrapper wrapper = pooledWrapper(connector);
+        assertNull("compressible content needs no bypass", field(wrapper, "bypass"));
+
+        putAndGet(connector, "sub/random.bin", random);
+        putAndGet(connector, "sub/archive.zip", random);
+        assertEquals(3, connector.list("sub").size());
+        assertSame(wrapper, pooledWrapper(connector));
+        SftpClientWrapper bypass = (SftpClientWrapper) field(wrapper, "bypass");
+        assertNotNull("bypass not used", bypass);
+        assertCompression("zlib", channel(wrapper));
+        assertCompression("none", channel(bypass));
+    }
+
+    private void putAndGet(FtpClientConnector connector, String path, byte[] content) throws Exception {
+        String directory = path.contains("/") ? StringUtils.substringBeforeLast(path, "/") : "";
+        String filename = StringUtils.substringAfterLast("/" + path, "/");
+        connector.putFile(directory, filename, new ByteArrayInputStream(content), null);
+        assertArrayEquals(content, fileManager.readBinaryFile(new File(pwdUserDir, path)));
+        assertArrayEquals(content, (byte[]) connector.getFile(directory, filename, false, -1));
+    }
+
+    private static void assertCompression(String expected, ChannelSftp channel) throws Exception {
+        Session session = channel.getSession();
+        Field field = Session.class.getDeclaredField("guess");
+        field.setAccessible(true);
+        String[] guess = (String[]) field.get(session);
+        assertEquals(expected, guess[COMPRESSION_C2S]);
+        assertEquals(expected, guess[COMPRESSION_S2C]);
+    }
+
+    private static SftpClientWrapper pooledWrapper(FtpClientConnector connector) throws Exception {
+        final AtomicReference<SftpClientWrapper> wrapper = new AtomicReference<>();
+        connector.getConfig().runWithClient(new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper client) {
+                wrapper.set((SftpClientWrapper) client);
+            }
+        });
+        return wrapper.get();
+    }
+
+    private static ChannelSftp channel(SftpClientWrapper wrapper) throws Exception {
+        return (ChannelSftp) field(wrapper, "channel");
+    }
+
+    private static Object field(SftpClientWrapper wrapper, String name) throws ReflectiveOperationException {
+        Field field = SftpClientWrapper.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(wrapper);
+    }
+
+    private static byte[] csv() {
+        return StringUtils.repeat("id;name;amount\n1;foo;12.50\n", 10_000).getBytes(StandardCharsets.UTF_8);
+    }
+}
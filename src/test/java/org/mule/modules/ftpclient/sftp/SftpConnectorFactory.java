@@ -7,6 +7,7 @@ import java.util.List;
 import org.mule.api.ConnectionException;
 import org.mule.modules.ftpclient.FtpClientConnector;
 import org.mule.modules.ftpclient.config.SftpConfig;
+import org.mule.modules.ftpclient.config.SshCompression;
 
 public class SftpConnectorFactory implements Closeable {
     private String host;
@@ -24,6 +25,7 @@ public class SftpConnectorFactory implements Closeable {
     @Override
     public void close() {
         for (FtpClientConnector fcc : created) {
+            fcc.stop();
             SftpConfig config = fcc.getConfig();
             config.disconnect();
             fcc.setConfig(null);
@@ -42,6 +44,50 @@ public class SftpConnectorFactory implements Closeable {
         return createConnector(config);
     }
 
+    public FtpClientConnector createSharedSessionConnector(String user, String pwd, int maxChannelsPerSession)
+            throws ConnectionException {
+        SftpConfig config = new SftpConfig();
+        config.setHost(host);
+        config.setPort(port);
+        config.setKnownHostsFile(knownHostsFile);
+        config.setPassword(pwd);
+        config.setShareSession(true);
+        config.setMaxChannelsPerSession(maxChannelsPerSession);
+        config.connect(user);
+
+        return createConnector(config);
+    }
+
+    public FtpClientConnector createTunedConnector(String user, String pwd, int bulkRequests, boolean adaptive,
+            int windowSize, int packetSize) throws ConnectionException {
+        SftpConfig config = new SftpConfig();
+        config.setHost(host);
+        config.setPort(port);
+        config.setKnownHostsFile(knownHostsFile);
+        config.setPassword(pwd);
+        config.setBulkRequests(bulkRequests);
+        config.setAdaptiveBulkRequests(adaptive);
+        config.setWindowSize(windowSize);
+        config.setPacketSize(packetSize);
+        config.connect(user);
+
+        return createConnector(config);
+    }
+
+    public FtpClientConnector createCompressedConnector(String user, String pwd, SshCompression compression,
+            boolean bypass) throws ConnectionException {
+        SftpConfig config = new SftpConfig();
+        config.setHost(host);
+        config.setPort(port);
+        config.setKnownHostsFile(knownHostsFile);
+        config.setPassword(pwd);
+        config.setCompression(compression);
+        config.setCompressionBypass(bypass);
+        config.connect(user);
+
+        return createConnector(config);
+    }
+
     public FtpClientConnector createPrivateKeyFromFileConnector(String user, String identityFile, String passphrase)
             throws ConnectionException {
         SftpConfig config = new SftpConfig();
@@ -0,0 +1,109 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.SftpConfig;
+import org.mule.modules.ftpclient.util.PollingThread;
+import org.mule.modules.ftpclient.util.SourceCallbackRecorder;
+
+public class SftpFullPathTest extends AbstractSftpClientTest {
+    private static final byte[] HELLO_BYTES = "Hello, world!".getBytes(StandardCharsets.UTF_8);
+    private PollingThread pollingThread;
+
+    @Override
+    @After
+    public void cleanup() throws Exception {
+        if (pollingThread != null) {
+            pollingThread.interrupt();
+            pollingThread.join(1_000);
+        }
+        super.cleanup();
+    }
+
+    @Test
+    public void putGetListDeleteWithPaths() throws Exception {
+        final String HELLO = "Hello, world!";
+        FtpClientConnector connector = createFullPathConnector();
+
+        connector.putFile("sub/dir", "test.txt", HELLO.getBytes(StandardCharsets.UTF_8), null);
+        File file = new File(pwdUserDir, "sub/dir/test.txt");
+        assertEquals(HELLO, fileManager.readTextFile(file));
+
+        connector.putFile("sub/dir", "test2.txt", HELLO.getBytes(StandardCharsets.UTF_8), null);
+        assertEquals(2, connector.list("sub/dir").size());
+        assertEquals(1, connector.list("sub").size());
+
+        byte[] content = (byte[]) connector.getFile("sub/dir", "test.txt", false, -1);
+        assertEquals(HELLO, new String(content, StandardCharsets.UTF_8));
+
+        connector.delete("sub/dir", "test.txt");
+        assertFalse(file.exists());
+        assertEquals(1, connector.list("sub/dir").size());
+    }
+
+    @Test
+    public void wildcardsAreNotExpanded() throws Exception {
+        File wildcardDir = new File(pwdUserDir, "sub/a*");
+        // Not a valid name on every file system
+        Assume.assumeTrue(wildcardDir.mkdirs());
+        fileManager.createTextFile(new File(wildcardDir, "a?.txt"), "A");
+        fileManager.createTextFile(new File(pwdUserDir, "sub/ab/b1.txt"), "B");
+        fileManager.createTextFile(new File(pwdUserDir, "sub/ab/b2.txt"), "B");
+        FtpClientConnector connector = createFullPathConnector();
+
+        assertEquals(1, connector.list("sub/a*").size());
+        assertEquals("a?.txt", connector.list("sub/a*").iterator().next().getName());
+        byte[] content = (byte[]) connector.getFile("sub/a*", "a?.txt", false, -1);
+        assertEquals("A", new String(content, StandardCharsets.UTF_8));
+        connector.delete("sub/a*", "a?.txt");
+        assertEquals(0, connector.list("sub/a*").size());
+        assertEquals(2, connector.list("sub/ab").size());
+    }
+
+    @Test
+    public void pollWithDeleteInSubdirectory() throws Exception {
+        File input = new File(pwdUserDir, "sub/in");
+        fileManager.createBinaryFile(new File(input, "test.txt"), HELLO_BYTES);
+        FtpClientConnector connector = createFullPathConnector();
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "sub/in", ".*", "", true, false, callback);
+        pollingThread.start();
+        assertEquals(1, callback.waitForMessages(1, 10_000).size());
+        assertDeleted(new File(input, "test.txt"), 5_000);
+    }
+
+    @Test
+    public void pollWithArchivingInSubdirectory() throws Exception {
+        File input = new File(pwdUserDir, "sub/in");
+        File archive = new File(pwdUserDir, "sub/archive");
+        assertTrue(archive.mkdirs());
+        fileManager.createBinaryFile(new File(input, "test.txt"), HELLO_BYTES);
+        FtpClientConnector connector = createFullPathConnector();
+        connector.setMuleContext(createMuleContext());
+
+        SourceCallbackRecorder callback = new SourceCallbackRecorder();
+        pollingThread = new PollingThread(connector, 100, "sub/in", ".*", "", false, "../archive", false, callback);
+        pollingThread.start();
+        assertEquals(1, callback.waitForMessages(1, 10_000).size());
+        assertDeleted(new File(input, "test.txt"), 5_000);
+        checkFile(new File(archive, "test.txt"), HELLO_BYTES);
+    }
+
+    private FtpClientConnector createFullPathConnector() throws Exception {
+        FtpClientConnector connector = connectorFactory.createPwdUserConnector(PWD_USER_NAME, PWD_USER_PWD);
+        SftpConfig config = connector.getConfig();
+        config.disconnect();
+        config.setUseFullPaths(true);
+        config.connect(PWD_USER_NAME);
+        return connector;
+    }
+}
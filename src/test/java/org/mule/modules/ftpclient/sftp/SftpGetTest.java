@@ -18,7 +18,7 @@ public class SftpGetTest extends AbstractSftpClientTest {
         FtpClientConnector connector = connectorFactory.createPwdUserConnector(PWD_USER_NAME, PWD_USER_PWD);
 
         fileManager.createTextFile(new File(pwdUserDir, "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -31,7 +31,7 @@ public class SftpGetTest extends AbstractSftpClientTest {
                 KEY_USER_PASSPRHASE);
 
         fileManager.createTextFile(new File(keyUserDir, "test.txt"), HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -45,7 +45,7 @@ public class SftpGetTest extends AbstractSftpClientTest {
 
         File testFile = new File(pwdUserDir, "test.txt");
         fileManager.createTextFile(testFile, HELLO);
-        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.txt", true, -1)) {
             assertNotNull("input stream", is);
             assertEquals(HELLO, IOUtils.toString(is, StandardCharsets.UTF_8));
         }
@@ -58,7 +58,7 @@ public class SftpGetTest extends AbstractSftpClientTest {
         FtpClientConnector connector = connectorFactory.createPwdUserConnector(PWD_USER_NAME, PWD_USER_PWD);
 
         fileManager.createBinaryFile(new File(pwdUserDir, "test.bin"), written);
-        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true)) {
+        try (InputStream is = (InputStream) connector.getFile("", "test.bin", true, -1)) {
             assertNotNull("input stream", is);
             byte[] read = IOUtils.toByteArray(is);
             assertArrayEquals(written, read);
@@ -71,7 +71,19 @@ public class SftpGetTest extends AbstractSftpClientTest {
         FtpClientConnector connector = connectorFactory.createPwdUserConnector(PWD_USER_NAME, PWD_USER_PWD);
 
         fileManager.createBinaryFile(new File(pwdUserDir, "test.bin"), written);
-        byte[] read = (byte[]) connector.getFile("", "test.bin", false);
+        byte[] read = (byte[]) connector.getFile("", "test.bin", false, -1);
+        assertArrayEquals(written, read);
+    }
+
+    @Test
+    public void binaryInSegments() throws Exception {
+        byte[] written = createContent(1_000_001);
+        FtpClientConnector connector = connectorFactory.createPwdUserConnector(PWD_USER_NAME, PWD_USER_PWD);
+        connector.getConfig().setSegmentSize(100_000);
+        connector.getConfig().setSegmentParallelism(3);
+
+        fileManager.createBinaryFile(new File(pwdUserDir, "test.bin"), written);
+        byte[] read = (byte[]) connector.getFile("", "test.bin", false, -1);
         assertArrayEquals(written, read);
     }
 
@@ -96,7 +108,7 @@ public class SftpGetTest extends AbstractSftpClientTest {
 
         File baseDir = pwdUserDir;
         fileManager.createTextFile(new File(new File(baseDir, directory), "test.txt"), content);
-        byte[] result = (byte[]) connector.getFile(directory, "test.txt", false);
+        byte[] result = (byte[]) connector.getFile(directory, "test.txt", false, -1);
         assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), result);
     }
 }
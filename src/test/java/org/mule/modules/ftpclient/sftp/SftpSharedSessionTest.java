@@ -0,0 +1,47 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.config.SftpConfig;
+
+public class SftpSharedSessionTest extends AbstractSftpClientTest {
+
+    @Test
+    public void channelsAreSpreadOverSessions() throws Exception {
+        fileManager.createTextFile(new File(pwdUserDir, "a.txt"), "A");
+        fileManager.createTextFile(new File(pwdUserDir, "b.txt"), "B");
+        fileManager.createTextFile(new File(pwdUserDir, "c.txt"), "C");
+        FtpClientConnector connector = connectorFactory.createSharedSessionConnector(PWD_USER_NAME, PWD_USER_PWD, 2);
+        SftpConfig config = connector.getConfig();
+        assertEquals(1, config.getSharedSessionCount());
+
+        try (InputStream a = (InputStream) connector.getFile("", "a.txt", true, -1);
+                InputStream b = (InputStream) connector.getFile("", "b.txt", true, -1);
+                InputStream c = (InputStream) connector.getFile("", "c.txt", true, -1)) {
+            assertEquals(2, config.getSharedSessionCount());
+            assertEquals("A", IOUtils.toString(a, StandardCharsets.UTF_8));
+            assertEquals("B", IOUtils.toString(b, StandardCharsets.UTF_8));
+            assertEquals("C", IOUtils.toString(c, StandardCharsets.UTF_8));
+        }
+        // Channels are given back to the pool and reused, no new session needed
+        assertEquals(3, connector.list("").size());
+        assertEquals(2, config.getSharedSessionCount());
+    }
+
+    @Test
+    public void disconnectClosesSessions() throws Exception {
+        FtpClientConnector connector = connectorFactory.createSharedSessionConnector(PWD_USER_NAME, PWD_USER_PWD, 2);
+        SftpConfig config = connector.getConfig();
+        assertTrue(config.isConnected());
+        config.disconnect();
+        assertFalse(config.isConnected());
+        assertEquals(0, config.getSharedSessionCount());
+    }
+}
@@ -0,0 +1,78 @@
+package org.mule.modules.ftpclient.sftp;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.lang.reflect.Field;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+import org.mule.modules.ftpclient.ClientWrapper;
+import org.mule.modules.ftpclient.FtpClientConnector;
+
+import com.jcraft.jsch.Channel;
+import com.jcraft.jsch.ChannelSftp;
+
+public class SftpTuningTest extends AbstractSftpClientTest {
+
+    @Test
+    public void putAndGetWithLargeWindow() throws Exception {
+        FtpClientConnector connector = connectorFactory.createTunedConnector(PWD_USER_NAME, PWD_USER_PWD, 64, false,
+                4 * 1024 * 1024, 64 * 1024);
+        ChannelSftp channel = channel(connector);
+        assertEquals(4 * 1024 * 1024, intField(channel, "lwsize_max"));
+        assertEquals(64 * 1024, intField(channel, "lmpsize"));
+        putAndGet(connector);
+    }
+
+    @Test
+    public void putAndGetWithAdaptiveRequests() throws Exception {
+        FtpClientConnector connector = connectorFactory.createTunedConnector(PWD_USER_NAME, PWD_USER_PWD, 0, true, 0,
+                0);
+        // room for 128 requests of 32 KB
+        assertEquals(4 * 1024 * 1024, intField(channel(connector), "lwsize_max"));
+        for (int i = 0; i < 3; i++) {
+            putAndGet(connector);
+        }
+    }
+
+    private void putAndGet(FtpClientConnector connector) throws Exception {
+        byte[] content = new byte[2 * 1024 * 1024 + 17];
+        new Random(17).nextBytes(content);
+        connector.putFile("", "test.bin", new ByteArrayInputStream(content), null);
+        assertArrayEquals(content, fileManager.readBinaryFile(new File(pwdUserDir, "test.bin")));
+        assertArrayEquals(content, (byte[]) connector.getFile("", "test.bin", false, -1));
+    }
+
+    /**
+     * @return Channel of a pooled connection.
+     */
+    private static ChannelSftp channel(FtpClientConnector connector) throws Exception {
+        final AtomicReference<ChannelSftp> channel = new AtomicReference<>();
+        connector.getConfig().runWithClient(new Consumer<ClientWrapper>() {
+            @Override
+            public void accept(ClientWrapper wrapper) {
+                try {
+                    Field field = SftpClientWrapper.class.getDeclaredField("channel");
+                    field.setAccessible(true);
+                    channel.set((ChannelSftp) field.get(wrapper));
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        return channel.get();
+    }
+
+    /**
+     * JSch has no getters for the window and packet size.
+     */
+    private static int intField(ChannelSftp channel, String name) throws ReflectiveOperationException {
+        Field field = Channel.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.getInt(channel);
+    }
+}
@@ -13,15 +13,18 @@ import org.junit.After;
 import org.junit.Before;
 import org.mule.api.MuleContext;
 import org.mule.api.config.MuleConfiguration;
+import org.mule.api.config.MuleProperties;
 import org.mule.api.el.ExpressionLanguageExtension;
 import org.mule.api.expression.ExpressionManager;
 import org.mule.api.lifecycle.InitialisationException;
 import org.mule.api.registry.MuleRegistry;
+import org.mule.api.store.ObjectStoreManager;
 import org.mule.el.mvel.MVELExpressionLanguage;
 import org.mule.expression.DefaultExpressionManager;
 
 public class AbstractClientTest {
     protected FileManager fileManager;
+    protected SimpleMock<ObjectStoreManager> objectStoreManagerMock;
 
     @Before
     public void prepare() throws Exception {
@@ -75,6 +78,9 @@ public class AbstractClientTest {
         SimpleMock<MuleRegistry> registryMock = new SimpleMock<>(MuleRegistry.class);
         registryMock.storeResult(new ArrayList<Object>(), "lookupObjectsForLifecycle",
                 ExpressionLanguageExtension.class);
+        objectStoreManagerMock = new SimpleMock<>(ObjectStoreManager.class);
+        registryMock.storeResult(objectStoreManagerMock.getMockObject(), "lookupObject",
+                MuleProperties.OBJECT_STORE_MANAGER);
         return registryMock.getMockObject();
     }
 
@@ -2,6 +2,9 @@ package org.mule.modules.ftpclient.util;
 
 import org.mule.api.callback.SourceCallback;
 import org.mule.modules.ftpclient.FtpClientConnector;
+import org.mule.modules.ftpclient.PollOptions;
+import org.mule.modules.ftpclient.PollOrder;
+import org.mule.modules.ftpclient.RegistryMode;
 
 public class PollingThread extends Thread {
     private enum ArchiveMode {
@@ -9,7 +12,7 @@ public class PollingThread extends Thread {
             @Override
             public void runPoll(PollingThread pt) throws Exception {
                 pt.connector.poll(pt.directory, pt.filename, pt.filenameTranslatorExpression, pt.deleteAfterGet,
-                        pt.streaming, pt.callback);
+                        pt.streaming, pt.registryMode, pt.options, pt.callback);
             }
         },
         DIRECTORY {
@@ -17,14 +20,14 @@ public class PollingThread extends Thread {
             public void runPoll(PollingThread pt) throws Exception {
                 pt.connector.pollWithArchivingByMovingToDirectory(pt.directory, pt.filename,
                         pt.filenameTranslatorExpression, pt.deleteAfterGet, pt.moveToDirectory, pt.streaming,
-                        pt.callback);
+                        pt.options, pt.callback);
             }
         },
         RENAME {
             @Override
             public void runPoll(PollingThread pt) throws Exception {
                 pt.connector.pollWithArchivingByRenaming(pt.directory, pt.filename, pt.filenameTranslatorExpression,
-                        pt.filenameExpression, pt.originalFilenameExpression, pt.streaming, pt.callback);
+                        pt.filenameExpression, pt.originalFilenameExpression, pt.streaming, pt.options, pt.callback);
             }
         };
 
@@ -43,6 +46,8 @@ public class PollingThread extends Thread {
     private SourceCallback callback;
     private String filenameExpression;
     private String originalFilenameExpression;
+    private RegistryMode registryMode = RegistryMode.None;
+    private PollOptions options = new PollOptions();
 
     private PollingThread(FtpClientConnector connector, long pollingPeriod, String directory, String filename,
             String filenameTranslatorExpression) {
@@ -89,6 +94,52 @@ public class PollingThread extends Thread {
         this.callback = callback;
     }
 
+    public PollingThread setParallelism(int parallelism) {
+        options.setParallelism(parallelism);
+        return this;
+    }
+
+    public PollingThread setStability(int stablePolls, long quietPeriod) {
+        options.setStablePolls(stablePolls);
+        options.setQuietPeriod(quietPeriod);
+        return this;
+    }
+
+    public PollingThread setRegistryMode(RegistryMode registryMode) {
+        this.registryMode = registryMode;
+        return this;
+    }
+
+    public PollingThread setBatchCompletion(boolean batchCompletion) {
+        options.setBatchCompletion(batchCompletion);
+        return this;
+    }
+
+    public PollingThread setPrefetch(int prefetch) {
+        options.setPrefetch(prefetch);
+        return this;
+    }
+
+    public PollingThread setRecursion(int maxDepth, String includeDirectories, String excludeDirectories) {
+        options.setMaxDepth(maxDepth);
+        options.setIncludeDirectories(includeDirectories);
+        options.setExcludeDirectories(excludeDirectories);
+        return this;
+    }
+
+    public PollingThread setBackoff(long backoffMinInterval, long backoffMaxInterval, int backoffJitter) {
+        options.setBackoffMinInterval(backoffMinInterval);
+        options.setBackoffMaxInterval(backoffMaxInterval);
+        options.setBackoffJitter(backoffJitter);
+        return this;
+    }
+
+    public PollingThread setMaxFilesPerPoll(int maxFilesPerPoll, PollOrder sortOrder) {
+        options.setMaxFilesPerPoll(maxFilesPerPoll);
+        options.setSortOrder(sortOrder);
+        return this;
+    }
+
     @Override
     public void run() {
         try {